@@ -0,0 +1,10 @@
+package com.example.productcatalogservice.cache;
+
+public enum CacheWriteMode {
+    // MySQL first, then the fresh product is written to Redis
+    WRITE_THROUGH,
+    // Redis first, MySQL is written by ProductWriteBehindQueue shortly after
+    WRITE_BEHIND,
+    // MySQL first, then the Redis entry is dropped and reloaded on next read
+    INVALIDATE
+}
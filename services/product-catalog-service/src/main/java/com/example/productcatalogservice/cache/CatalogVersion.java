@@ -0,0 +1,60 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Version of the whole catalog, shared by all nodes in the "products:catalog"
+ * Redis hash. Bumped on every product write, so reading it costs one Redis
+ * call instead of an aggregate over the products table.
+ *
+ * The counter starts at the current time when the hash is missing, so a Redis
+ * reset doesn't hand out versions clients may still hold.
+ */
+@Component
+public class CatalogVersion {
+    static final String CATALOG_KEY = "products:catalog";
+
+    private static final String VERSION_FIELD = "version";
+
+    private static final String CHANGED_AT_FIELD = "changedAt";
+
+    // ARGV[1] is the current time in millis
+    private static final RedisScript<Long> BUMP_SCRIPT = RedisScript.of(
+            "redis.call('hsetnx', KEYS[1], 'version', ARGV[1]) "
+                    + "redis.call('hset', KEYS[1], 'changedAt', ARGV[1]) "
+                    + "return redis.call('hincrby', KEYS[1], 'version', 1)",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    public record Snapshot(long version, long changedAt) {
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        bump();
+    }
+
+    public long bump() {
+        return stringRedisTemplate.execute(BUMP_SCRIPT, List.of(CATALOG_KEY),
+                String.valueOf(System.currentTimeMillis()));
+    }
+
+    public Snapshot read() {
+        List<Object> values = stringRedisTemplate.opsForHash()
+                .multiGet(CATALOG_KEY, List.of(VERSION_FIELD, CHANGED_AT_FIELD));
+        if(values.get(0) == null || values.get(1) == null) {
+            long version = bump();
+            return new Snapshot(version, System.currentTimeMillis());
+        }
+        return new Snapshot(Long.parseLong((String) values.get(0)), Long.parseLong((String) values.get(1)));
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.modals.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Two tier product cache: a bounded in-process cache (L1) in front of the
+ * shared Redis "products" hash (L2). L1 entries are dropped on every node
+ * through a Redis pub/sub message whenever a product changes.
+ *
+ * Redis hash fields can't expire on their own, so every L2 entry also gets
+ * its expiry time in the "products:expiry" sorted set, which is swept on a
+ * schedule.
+ *
+ * Misses are loaded once per id no matter how many requests are waiting for
+ * it, and hot L1 entries are refreshed shortly before they expire (XFetch),
+ * so popular products don't all fall through at the same moment. The refresh
+ * reads the Redis copy, MySQL is only read when that copy is gone or expires
+ * before the refreshed L1 entry would.
+ */
+@Component
+public class ProductCache implements MessageListener {
+    static final String PRODUCTS_KEY = "products";
+
+    static final String EXPIRY_KEY = "products:expiry";
+
+    private static final long SWEEP_BATCH_SIZE = 1000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final LongAdder redisHits = new LongAdder();
+
+    private final LongAdder redisMisses = new LongAdder();
+
+    private final LongAdder redisEvictions = new LongAdder();
+
+    private final LongAdder earlyRefreshes = new LongAdder();
+
+    private final SingleFlight<Long, Product> loads = new SingleFlight<>();
+
+    private final List<Consumer<List<Long>>> remoteChangeListeners = new CopyOnWriteArrayList<>();
+
+    // Moving average of how long a load from MySQL takes, the XFetch delta
+    private volatile double loadNanos;
+
+    @Autowired
+    private RedisTemplate<String,Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${products.cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    @Value("${products.cache.local.ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    @Value("${products.cache.redis.ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    @Value("${products.cache.invalidation-channel:products:invalidate}")
+    private String invalidationChannel;
+
+    // 0 turns early refresh off, above 1 refreshes earlier
+    @Value("${products.cache.early-refresh.beta:1.0}")
+    private double earlyRefreshBeta;
+
+    private Cache<Long, Product> localCache;
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    @PostConstruct
+    void init() {
+        // Caffeine evicts with W-TinyLFU once maximumSize is reached
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "products.local");
+        FunctionCounter.builder("products.cache.redis.requests", redisHits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("products.cache.redis.requests", redisMisses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("products.cache.redis.evictions", redisEvictions, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("products.cache.early.refreshes", earlyRefreshes, LongAdder::sum)
+                .register(meterRegistry);
+
+        refreshExecutor = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "product-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    public Product get(Long id) {
+        Product product = localCache.getIfPresent(id);
+        if(product != null) {
+            return product;
+        }
+        return getFromRedis(id);
+    }
+
+    // Looks up both tiers and loads a miss through the loader, once per id across concurrent callers
+    public Product get(Long id, Function<Long, Product> loader) {
+        Product product = localCache.getIfPresent(id);
+        if(product != null) {
+            if(shouldRefreshEarly(id)) {
+                earlyRefreshes.increment();
+                loads.loadAsync(id, () -> refresh(id, loader), refreshExecutor);
+            }
+            return product;
+        }
+
+        product = getFromRedis(id);
+        if(product != null) {
+            return product;
+        }
+
+        try {
+            return loads.load(id, () -> load(id, loader)).join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
+
+    // Looks up many ids at once: L1, then one HMGET for the rest, then one loader call for what Redis is missing
+    public Map<Long, Product> getAll(Collection<Long> ids, Function<Collection<Long>, Collection<Product>> loader) {
+        Map<Long, Product> products = new HashMap<>(localCache.getAllPresent(ids));
+        List<Long> remoteIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        remoteIds.removeAll(products.keySet());
+        if(remoteIds.isEmpty()) {
+            return products;
+        }
+
+        List<Object> values = redisTemplate.opsForHash().multiGet(PRODUCTS_KEY, new ArrayList<>(remoteIds));
+        List<Long> missingIds = new ArrayList<>();
+        for(int i = 0; i < remoteIds.size(); i++) {
+            Product product = values != null && i < values.size() ? (Product) values.get(i) : null;
+            if(product == null) {
+                missingIds.add(remoteIds.get(i));
+            } else {
+                products.put(product.getId(), product);
+                localCache.put(product.getId(), product);
+            }
+        }
+        redisHits.add(remoteIds.size() - missingIds.size());
+        redisMisses.add(missingIds.size());
+        if(missingIds.isEmpty()) {
+            return products;
+        }
+
+        Collection<Product> loadedProducts = loader.apply(missingIds);
+        putAll(loadedProducts);
+        loadedProducts.forEach(product -> products.put(product.getId(), product));
+        return products;
+    }
+
+    // Fills both tiers after a read, other nodes are not notified
+    public void put(Product product) {
+        Long id = product.getId();
+        long expiresAt = System.currentTimeMillis() + redisTtlSeconds * 1000;
+        pipelined(redisOperations -> {
+            redisOperations.opsForHash().put(PRODUCTS_KEY, id, product);
+            redisOperations.opsForZSet().add(EXPIRY_KEY, id, expiresAt);
+        });
+        localCache.put(id, product);
+    }
+
+    // Bulk put, one HMSET and one ZADD in a single round trip
+    public void putAll(Collection<Product> products) {
+        if(products.isEmpty()) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + redisTtlSeconds * 1000;
+        Map<Object, Object> fields = new HashMap<>();
+        Set<ZSetOperations.TypedTuple<Object>> expiries = new HashSet<>();
+        for(Product product : products) {
+            fields.put(product.getId(), product);
+            expiries.add(ZSetOperations.TypedTuple.of(product.getId(), (double) expiresAt));
+        }
+        pipelined(redisOperations -> {
+            redisOperations.opsForHash().putAll(PRODUCTS_KEY, fields);
+            redisOperations.opsForZSet().add(EXPIRY_KEY, expiries);
+        });
+        products.forEach(product -> localCache.put(product.getId(), product));
+    }
+
+    // Publishes a changed product to both tiers and drops stale L1 copies on other nodes
+    public void write(Product product) {
+        put(product);
+        publishInvalidation(product.getId());
+    }
+
+    public void evict(Long id) {
+        pipelined(redisOperations -> {
+            redisOperations.opsForHash().delete(PRODUCTS_KEY, id);
+            redisOperations.opsForZSet().remove(EXPIRY_KEY, id);
+        });
+        localCache.invalidate(id);
+        publishInvalidation(id);
+    }
+
+    // Bulk variants of write and evict, one round trip and one invalidation message for all ids
+    public void writeAll(Collection<Product> products) {
+        if(products.isEmpty()) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + redisTtlSeconds * 1000;
+        pipelined(redisOperations -> {
+            for(Product product : products) {
+                redisOperations.opsForHash().put(PRODUCTS_KEY, product.getId(), product);
+                redisOperations.opsForZSet().add(EXPIRY_KEY, product.getId(), expiresAt);
+            }
+        });
+        List<Long> ids = new ArrayList<>(products.size());
+        for(Product product : products) {
+            localCache.put(product.getId(), product);
+            ids.add(product.getId());
+        }
+        publishInvalidation(ids);
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        if(ids.isEmpty()) {
+            return;
+        }
+        Object[] keys = ids.toArray();
+        pipelined(redisOperations -> {
+            redisOperations.opsForHash().delete(PRODUCTS_KEY, keys);
+            redisOperations.opsForZSet().remove(EXPIRY_KEY, keys);
+        });
+        localCache.invalidateAll(ids);
+        publishInvalidation(ids);
+    }
+
+    // Expired entries stay readable until the next sweep, at most one sweep interval
+    @Scheduled(fixedDelayString = "${products.cache.redis.sweep-interval-ms:30000}")
+    public void sweepExpired() {
+        Set<Object> expiredIds;
+        do {
+            expiredIds = redisTemplate.opsForZSet()
+                    .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis(), 0, SWEEP_BATCH_SIZE);
+            if(expiredIds == null || expiredIds.isEmpty()) {
+                return;
+            }
+            Object[] ids = expiredIds.toArray();
+            redisTemplate.opsForHash().delete(PRODUCTS_KEY, ids);
+            redisTemplate.opsForZSet().remove(EXPIRY_KEY, ids);
+            redisEvictions.add(ids.length);
+        } while (expiredIds.size() == SWEEP_BATCH_SIZE);
+    }
+
+    private Product getFromRedis(Long id) {
+        Product product = (Product) redisTemplate.opsForHash().get(PRODUCTS_KEY, id);
+        if(product == null) {
+            redisMisses.increment();
+            return null;
+        }
+        redisHits.increment();
+        localCache.put(id, product);
+        return product;
+    }
+
+    private Product load(Long id, Function<Long, Product> loader) {
+        long start = System.nanoTime();
+        Product product = loader.apply(id);
+        long elapsed = System.nanoTime() - start;
+        loadNanos = loadNanos == 0 ? elapsed : loadNanos * 0.8 + elapsed * 0.2;
+
+        if(product == null) {
+            localCache.invalidate(id);
+        } else {
+            put(product);
+        }
+        return product;
+    }
+
+    // Takes the Redis copy while it outlives the refreshed L1 entry, one round trip for the product and its expiry
+    private Product refresh(Long id, Function<Long, Product> loader) {
+        List<Object> results = pipelined(redisOperations -> {
+            redisOperations.opsForHash().get(PRODUCTS_KEY, id);
+            redisOperations.opsForZSet().score(EXPIRY_KEY, id);
+        });
+        Product product = results != null && results.size() == 2 ? (Product) results.get(0) : null;
+        Double expiresAt = product != null ? (Double) results.get(1) : null;
+        if(expiresAt != null && expiresAt - System.currentTimeMillis() > TimeUnit.SECONDS.toMillis(localTtlSeconds)) {
+            redisHits.increment();
+            localCache.put(id, product);
+            return product;
+        }
+        redisMisses.increment();
+        return load(id, loader);
+    }
+
+    // XFetch: refresh with a probability that grows as the entry gets closer to expiring
+    private boolean shouldRefreshEarly(Long id) {
+        if(earlyRefreshBeta <= 0 || loadNanos == 0 || loads.isInFlight(id)) {
+            return false;
+        }
+        Optional<Duration> age = localCache.policy().expireAfterWrite()
+                .flatMap(expiration -> expiration.ageOf(id));
+        if(age.isEmpty()) {
+            return false;
+        }
+        long remainingNanos = TimeUnit.SECONDS.toNanos(localTtlSeconds) - age.get().toNanos();
+        double random = ThreadLocalRandom.current().nextDouble();
+        return -loadNanos * earlyRefreshBeta * Math.log(random) >= remainingNanos;
+    }
+
+    // Sends all commands in one round trip, returns their replies in order
+    private List<Object> pipelined(Consumer<RedisOperations<String,Object>> commands) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                commands.accept((RedisOperations<String,Object>) operations);
+                return null;
+            }
+        });
+    }
+
+    private void publishInvalidation(Long id) {
+        stringRedisTemplate.convertAndSend(invalidationChannel, nodeId + ":" + id);
+    }
+
+    private void publishInvalidation(Collection<Long> ids) {
+        StringJoiner body = new StringJoiner(",", nodeId + ":", "");
+        ids.forEach(id -> body.add(id.toString()));
+        stringRedisTemplate.convertAndSend(invalidationChannel, body.toString());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        if(separator < 0 || body.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for(String id : body.substring(separator + 1).split(",")) {
+            ids.add(Long.valueOf(id));
+        }
+        localCache.invalidateAll(ids);
+        remoteChangeListeners.forEach(listener -> listener.accept(ids));
+    }
+
+    // Called with the ids another node wrote or deleted, after their L1 entries are dropped
+    public void addRemoteChangeListener(Consumer<List<Long>> listener) {
+        remoteChangeListeners.add(listener);
+    }
+
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+}
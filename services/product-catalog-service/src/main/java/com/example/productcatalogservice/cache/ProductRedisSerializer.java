@@ -0,0 +1,390 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.modals.State;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Compact Redis encoding for cached products.
+ *
+ * Every value starts with a format version byte and a type tag. Product and
+ * Category payloads are either a hand written binary layout (a presence
+ * bitmask followed by varint/UTF-8 fields) or Jackson CBOR/Smile. Ids are
+ * varints and anything else falls back to JDK serialization, as do values
+ * written before this serializer existed, so old entries still read back.
+ * Values with an unknown format version are treated as a cache miss, so are
+ * values holding a state this release doesn't know.
+ */
+public class ProductRedisSerializer implements RedisSerializer<Object> {
+    public enum Encoding {
+        BINARY, CBOR, SMILE
+    }
+
+    // 2: states are written by name instead of ordinal
+    static final byte FORMAT_VERSION = 2;
+
+    private static final byte TYPE_JDK = 0;
+    private static final byte TYPE_PRODUCT = 1;
+    private static final byte TYPE_CATEGORY = 2;
+    private static final byte TYPE_LONG = 3;
+
+    // First byte of every JDK serialization stream
+    private static final byte JDK_STREAM_MAGIC = (byte) 0xAC;
+
+    private static final int PRODUCT_ID = 1;
+    private static final int PRODUCT_NAME = 1 << 1;
+    private static final int PRODUCT_DESCRIPTION = 1 << 2;
+    private static final int PRODUCT_IMAGE_URL = 1 << 3;
+    private static final int PRODUCT_PRICE = 1 << 4;
+    private static final int PRODUCT_IS_PRIME = 1 << 5;
+    private static final int PRODUCT_CREATED_AT = 1 << 6;
+    private static final int PRODUCT_UPDATED_AT = 1 << 7;
+    private static final int PRODUCT_STATE = 1 << 8;
+    private static final int PRODUCT_CATEGORY = 1 << 9;
+    // Fields added later go last, so entries written before them still read back and older readers skip them
+    private static final int PRODUCT_VERSION = 1 << 10;
+
+    private static final int CATEGORY_ID = 1;
+    private static final int CATEGORY_NAME = 1 << 1;
+    private static final int CATEGORY_DESCRIPTION = 1 << 2;
+    private static final int CATEGORY_CREATED_AT = 1 << 3;
+    private static final int CATEGORY_UPDATED_AT = 1 << 4;
+    private static final int CATEGORY_STATE = 1 << 5;
+    private static final int CATEGORY_VERSION = 1 << 6;
+
+    private final Encoding encoding;
+
+    private final ObjectMapper objectMapper;
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public ProductRedisSerializer(Encoding encoding) {
+        this.encoding = encoding;
+        if(encoding == Encoding.CBOR) {
+            objectMapper = new ObjectMapper(new CBORFactory());
+        } else if(encoding == Encoding.SMILE) {
+            objectMapper = new ObjectMapper(new SmileFactory());
+        } else {
+            objectMapper = null;
+        }
+        if(objectMapper != null) {
+            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            // Category.products is lazy and not cached, so the entity's reference annotations are not needed
+            objectMapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+                @Override
+                public ReferenceProperty findReferenceType(AnnotatedMember member) {
+                    return null;
+                }
+            });
+            objectMapper.addMixIn(Category.class, CategoryMixin.class);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if(value == null) {
+            return new byte[0];
+        }
+
+        Output output = new Output();
+        output.write(FORMAT_VERSION);
+        if(value instanceof Product product) {
+            output.write(TYPE_PRODUCT);
+            if(objectMapper != null) {
+                output.writeBytes(toJackson(product));
+            } else {
+                writeProduct(output, product);
+            }
+        } else if(value instanceof Category category) {
+            output.write(TYPE_CATEGORY);
+            if(objectMapper != null) {
+                output.writeBytes(toJackson(category));
+            } else {
+                writeCategory(output, category);
+            }
+        } else if(value instanceof Long id) {
+            output.write(TYPE_LONG);
+            output.writeVarLong(id);
+        } else {
+            output.write(TYPE_JDK);
+            output.writeBytes(jdkSerializer.serialize(value));
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if(bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if(bytes[0] == JDK_STREAM_MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if(bytes[0] != FORMAT_VERSION) {
+            return null;
+        }
+
+        Input input = new Input(bytes, 2);
+        try {
+            switch (bytes[1]) {
+                case TYPE_PRODUCT:
+                    return objectMapper != null ? fromJackson(input.remaining(), Product.class) : readProduct(input);
+                case TYPE_CATEGORY:
+                    return objectMapper != null ? fromJackson(input.remaining(), Category.class) : readCategory(input);
+                case TYPE_LONG:
+                    return input.readVarLong();
+                case TYPE_JDK:
+                    return jdkSerializer.deserialize(input.remaining());
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException exception) {
+            // A state name written by a newer release
+            return null;
+        }
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    private void writeProduct(Output output, Product product) {
+        int fields = 0;
+        fields |= product.getId() != null ? PRODUCT_ID : 0;
+        fields |= product.getName() != null ? PRODUCT_NAME : 0;
+        fields |= product.getDescription() != null ? PRODUCT_DESCRIPTION : 0;
+        fields |= product.getImageUrl() != null ? PRODUCT_IMAGE_URL : 0;
+        fields |= product.getPrice() != null ? PRODUCT_PRICE : 0;
+        fields |= product.getIsPrime() != null ? PRODUCT_IS_PRIME : 0;
+        fields |= product.getCreatedAt() != null ? PRODUCT_CREATED_AT : 0;
+        fields |= product.getUpdatedAt() != null ? PRODUCT_UPDATED_AT : 0;
+        fields |= product.getState() != null ? PRODUCT_STATE : 0;
+        fields |= product.getCategory() != null ? PRODUCT_CATEGORY : 0;
+        fields |= product.getVersion() != null ? PRODUCT_VERSION : 0;
+        output.writeVarLong(fields);
+
+        if(product.getId() != null) output.writeVarLong(product.getId());
+        if(product.getName() != null) output.writeString(product.getName());
+        if(product.getDescription() != null) output.writeString(product.getDescription());
+        if(product.getImageUrl() != null) output.writeString(product.getImageUrl());
+        if(product.getPrice() != null) output.writeDouble(product.getPrice());
+        if(product.getIsPrime() != null) output.write(product.getIsPrime() ? 1 : 0);
+        if(product.getCreatedAt() != null) output.writeVarLong(product.getCreatedAt().getTime());
+        if(product.getUpdatedAt() != null) output.writeVarLong(product.getUpdatedAt().getTime());
+        if(product.getState() != null) output.writeString(product.getState().name());
+        if(product.getCategory() != null) writeCategory(output, product.getCategory());
+        if(product.getVersion() != null) output.writeVarLong(product.getVersion());
+    }
+
+    private Product readProduct(Input input) {
+        int fields = (int) input.readVarLong();
+        Product product = new Product();
+        product.setId(has(fields, PRODUCT_ID) ? input.readVarLong() : null);
+        product.setName(has(fields, PRODUCT_NAME) ? input.readString() : null);
+        product.setDescription(has(fields, PRODUCT_DESCRIPTION) ? input.readString() : null);
+        product.setImageUrl(has(fields, PRODUCT_IMAGE_URL) ? input.readString() : null);
+        product.setPrice(has(fields, PRODUCT_PRICE) ? input.readDouble() : null);
+        product.setIsPrime(has(fields, PRODUCT_IS_PRIME) ? input.read() == 1 : null);
+        product.setCreatedAt(has(fields, PRODUCT_CREATED_AT) ? new Date(input.readVarLong()) : null);
+        product.setUpdatedAt(has(fields, PRODUCT_UPDATED_AT) ? new Date(input.readVarLong()) : null);
+        product.setState(has(fields, PRODUCT_STATE) ? State.valueOf(input.readString()) : null);
+        product.setCategory(has(fields, PRODUCT_CATEGORY) ? readCategory(input) : null);
+        product.setVersion(has(fields, PRODUCT_VERSION) ? input.readVarLong() : null);
+        return product;
+    }
+
+    // Category.products is never written, it is lazy and not part of the cached view
+    private void writeCategory(Output output, Category category) {
+        int fields = 0;
+        fields |= category.getId() != null ? CATEGORY_ID : 0;
+        fields |= category.getName() != null ? CATEGORY_NAME : 0;
+        fields |= category.getDescription() != null ? CATEGORY_DESCRIPTION : 0;
+        fields |= category.getCreatedAt() != null ? CATEGORY_CREATED_AT : 0;
+        fields |= category.getUpdatedAt() != null ? CATEGORY_UPDATED_AT : 0;
+        fields |= category.getState() != null ? CATEGORY_STATE : 0;
+        fields |= category.getVersion() != null ? CATEGORY_VERSION : 0;
+        output.writeVarLong(fields);
+
+        if(category.getId() != null) output.writeVarLong(category.getId());
+        if(category.getName() != null) output.writeString(category.getName());
+        if(category.getDescription() != null) output.writeString(category.getDescription());
+        if(category.getCreatedAt() != null) output.writeVarLong(category.getCreatedAt().getTime());
+        if(category.getUpdatedAt() != null) output.writeVarLong(category.getUpdatedAt().getTime());
+        if(category.getState() != null) output.writeString(category.getState().name());
+        if(category.getVersion() != null) output.writeVarLong(category.getVersion());
+    }
+
+    private Category readCategory(Input input) {
+        int fields = (int) input.readVarLong();
+        Category category = new Category();
+        category.setId(has(fields, CATEGORY_ID) ? input.readVarLong() : null);
+        category.setName(has(fields, CATEGORY_NAME) ? input.readString() : null);
+        category.setDescription(has(fields, CATEGORY_DESCRIPTION) ? input.readString() : null);
+        category.setCreatedAt(has(fields, CATEGORY_CREATED_AT) ? new Date(input.readVarLong()) : null);
+        category.setUpdatedAt(has(fields, CATEGORY_UPDATED_AT) ? new Date(input.readVarLong()) : null);
+        category.setState(has(fields, CATEGORY_STATE) ? State.valueOf(input.readString()) : null);
+        category.setVersion(has(fields, CATEGORY_VERSION) ? input.readVarLong() : null);
+        return category;
+    }
+
+    private byte[] toJackson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException exception) {
+            throw new SerializationException("Could not write " + value.getClass().getSimpleName(), exception);
+        }
+    }
+
+    private <T> T fromJackson(byte[] bytes, Class<T> type) {
+        try {
+            return objectMapper.readValue(bytes, type);
+        } catch (IOException exception) {
+            throw new SerializationException("Could not read " + type.getSimpleName(), exception);
+        }
+    }
+
+    @JsonIgnoreProperties("products")
+    private abstract static class CategoryMixin {
+    }
+
+    private static boolean has(int fields, int field) {
+        return (fields & field) != 0;
+    }
+
+    // Unsynchronized ByteArrayOutputStream, it is written one byte at a time
+    private static class Output {
+        private byte[] buffer = new byte[128];
+
+        private int size;
+
+        void write(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            while((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for(int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            writeVarLong(utf8Length(value));
+            ensureCapacity(value.length() * 3);
+            for(int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if(c < 0x80) {
+                    buffer[size++] = (byte) c;
+                } else {
+                    // Rare in catalog text, let the JDK deal with surrogates and multi byte chars
+                    byte[] bytes = value.substring(i).getBytes(StandardCharsets.UTF_8);
+                    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+                    size += bytes.length;
+                    return;
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if(size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private static int utf8Length(String value) {
+            int length = value.length();
+            for(int i = 0; i < value.length(); i++) {
+                if(value.charAt(i) >= 0x80) {
+                    return i + value.substring(i).getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+            return length;
+        }
+    }
+
+    private static class Input {
+        private final byte[] bytes;
+
+        private int position;
+
+        Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        int read() {
+            if(position >= bytes.length) {
+                throw new SerializationException("Truncated product cache entry");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                int next = read();
+                value |= (long) (next & 0x7F) << shift;
+                if((next & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in product cache entry");
+        }
+
+        double readDouble() {
+            long bits = 0;
+            for(int i = 0; i < 8; i++) {
+                bits = (bits << 8) | read();
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if(length < 0 || position + length > bytes.length) {
+                throw new SerializationException("Truncated product cache entry");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        byte[] remaining() {
+            return Arrays.copyOfRange(bytes, position, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.services.ProductBatchWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pending MySQL writes for {@link CacheWriteMode#WRITE_BEHIND}. Writes to the
+ * same product are coalesced, only the latest one is flushed.
+ */
+@Component
+public class ProductWriteBehindQueue {
+    private static final Logger logger = LoggerFactory.getLogger(ProductWriteBehindQueue.class);
+
+    private final Map<Long, Product> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ProductBatchWriter productBatchWriter;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    public void enqueue(Product product) {
+        pending.put(product.getId(), product);
+    }
+
+    // Latest product not yet written to MySQL, so reloads don't read older rows
+    public Product getPending(Long id) {
+        return pending.get(id);
+    }
+
+    // Waits for a running flush so a discarded product can't be saved after it got deleted.
+    // Returns the product that was pending, null when there was none
+    public synchronized Product discard(Long id) {
+        return pending.remove(id);
+    }
+
+    // Puts back a discarded product unless something newer was queued since
+    public void restore(Product product) {
+        pending.putIfAbsent(product.getId(), product);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${products.cache.write-behind.flush-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void flush() {
+        if(pending.isEmpty()) {
+            return;
+        }
+
+        // Stays pending until saved, until then a cache miss would read the older row from MySQL
+        List<Product> batch = new ArrayList<>(pending.values());
+
+        try {
+            productBatchWriter.saveAll(batch);
+        } catch (RuntimeException exception) {
+            logger.warn("Write behind flush of {} products failed, retrying on next flush", batch.size(), exception);
+            return;
+        }
+        for(Product product : batch) {
+            // A newer write queued during the save is left for the next flush
+            pending.remove(product.getId(), product);
+        }
+        // The products events were published at enqueue time, before MySQL had them
+        catalogVersion.bump();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.productcatalogservice.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the
+ * loader, everyone arriving while it runs gets the same future.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Runs the loader on the calling thread if no load for the key is in flight
+    public CompletableFuture<V> load(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if(existing != null) {
+            return existing;
+        }
+        run(key, future, loader);
+        return future;
+    }
+
+    // Same as load, but the loader runs on the executor
+    public CompletableFuture<V> loadAsync(K key, Supplier<V> loader, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if(existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> run(key, future, loader));
+        } catch (RuntimeException exception) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(exception);
+        }
+        return future;
+    }
+
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    private void run(K key, CompletableFuture<V> future, Supplier<V> loader) {
+        try {
+            future.complete(loader.get());
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.productcatalogservice.clients;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Failure rate circuit breaker over the outcomes of the last windowSize calls.
+ * Once open it rejects calls for openDurationMillis, then lets halfOpenCalls
+ * trial calls through: all of them succeeding closes it, any failure opens it
+ * again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long openDurationMillis;
+
+    private final int halfOpenCalls;
+
+    private final LongSupplier clock;
+
+    // Ring buffer of the last outcomes, true for a failure
+    private final boolean[] outcomes;
+
+    private int next;
+
+    private int recorded;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int halfOpenPermits;
+
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMillis, int halfOpenCalls, LongSupplier clock) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if(state == State.OPEN) {
+            if(clock.getAsLong() - openedAt < openDurationMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if(state == State.HALF_OPEN) {
+            if(halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if(state == State.HALF_OPEN) {
+            if(++halfOpenSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if(state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if(state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if(state == State.CLOSED) {
+            record(true);
+            if(recorded >= minimumCalls && failures * 100.0 / recorded >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : failures * 100.0 / recorded;
+    }
+
+    private void record(boolean failure) {
+        if(recorded == windowSize) {
+            if(outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if(failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        openedAt = clock.getAsLong();
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
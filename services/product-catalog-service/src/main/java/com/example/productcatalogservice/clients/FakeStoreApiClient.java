@@ -0,0 +1,304 @@
+package com.example.productcatalogservice.clients;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking JSON client for fakestoreapi.com. One HttpClient is shared by
+ * all calls so connections are kept alive and reused (HTTP/2 when the server
+ * offers it). Calls go through a bulkhead of max-concurrent-requests permits
+ * and a circuit breaker, and slow GETs can be hedged with a second request.
+ */
+@Component
+public class FakeStoreApiClient {
+    @Value("${fakestore.base-url:https://fakestoreapi.com}")
+    private String baseUrl;
+
+    @Value("${fakestore.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    // Time allowed for the whole response once the request is sent
+    @Value("${fakestore.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${fakestore.max-concurrent-requests:32}")
+    private int maxConcurrentRequests;
+
+    @Value("${fakestore.client-threads:4}")
+    private int clientThreads;
+
+    @Value("${fakestore.circuit.window-size:20}")
+    private int circuitWindowSize;
+
+    @Value("${fakestore.circuit.minimum-calls:10}")
+    private int circuitMinimumCalls;
+
+    // Percentage of failed calls in the window that opens the circuit
+    @Value("${fakestore.circuit.failure-rate-threshold:50}")
+    private double circuitFailureRateThreshold;
+
+    @Value("${fakestore.circuit.open-duration-ms:30000}")
+    private long circuitOpenDurationMs;
+
+    @Value("${fakestore.circuit.half-open-calls:3}")
+    private int circuitHalfOpenCalls;
+
+    @Value("${fakestore.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    // GETs still running after max(p95 latency, min-delay-ms) get a second request
+    @Value("${fakestore.hedge.min-delay-ms:50}")
+    private long hedgeMinDelayMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HttpClient httpClient;
+
+    private ExecutorService executor;
+
+    private Semaphore bulkhead;
+
+    private CircuitBreaker circuitBreaker;
+
+    private final LatencyTracker latencyTracker = new LatencyTracker(256, 20);
+
+    private Counter successes;
+
+    private Counter failures;
+
+    private Counter rejections;
+
+    private Counter shortCircuits;
+
+    private Counter hedges;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(clientThreads, runnable -> {
+            Thread thread = new Thread(runnable, "fakestore-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        bulkhead = new Semaphore(maxConcurrentRequests);
+        circuitBreaker = new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, circuitFailureRateThreshold,
+                circuitOpenDurationMs, circuitHalfOpenCalls, System::currentTimeMillis);
+
+        successes = meterRegistry.counter("fakestore.requests", "outcome", "success");
+        failures = meterRegistry.counter("fakestore.requests", "outcome", "failure");
+        rejections = meterRegistry.counter("fakestore.requests", "outcome", "bulkhead_full");
+        shortCircuits = meterRegistry.counter("fakestore.requests", "outcome", "circuit_open");
+        hedges = meterRegistry.counter("fakestore.hedges");
+        // 0 closed, 1 open, 2 half open
+        Gauge.builder("fakestore.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .register(meterRegistry);
+        Gauge.builder("fakestore.circuit.failure.rate", circuitBreaker, CircuitBreaker::getFailureRate)
+                .register(meterRegistry);
+        Gauge.builder("fakestore.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .register(meterRegistry);
+        Gauge.builder("fakestore.latency.p95", latencyTracker, tracker -> tracker.percentileMillis(95))
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // Completes with null on 404 or an empty body, FakeStore answers unknown ids with an empty 200
+    public <T> CompletableFuture<T> get(String path, Class<T> responseType) {
+        return send("GET", path, null, responseType);
+    }
+
+    public <T> CompletableFuture<T> put(String path, Object body, Class<T> responseType) {
+        return send("PUT", path, body, responseType);
+    }
+
+    public <T> CompletableFuture<T> send(String method, String path, Object body, Class<T> responseType) {
+        HttpRequest request;
+        try {
+            request = buildRequest(method, path, body).build();
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+        return exchange(request).thenApply(response -> read(request, response, responseType));
+    }
+
+    // GET that sends the validators of the copy the caller holds, a 304 comes back as notModified
+    public <T> CompletableFuture<ConditionalResponse<T>> getIfChanged(String path, Class<T> responseType,
+                                                                      String etag, String lastModified) {
+        HttpRequest.Builder builder = buildRequest("GET", path, null);
+        if(etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        if(lastModified != null) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+        HttpRequest request = builder.build();
+        return exchange(request).thenApply(response -> {
+            String responseEtag = response.headers().firstValue("ETag").orElse(etag);
+            String responseLastModified = response.headers().firstValue("Last-Modified").orElse(lastModified);
+            if(response.statusCode() == 304) {
+                return new ConditionalResponse<>(null, true, responseEtag, responseLastModified);
+            }
+            return new ConditionalResponse<>(read(request, response, responseType), false,
+                    responseEtag, responseLastModified);
+        });
+    }
+
+    public record ConditionalResponse<T>(T body, boolean notModified, String etag, String lastModified) {
+    }
+
+    public int getAvailablePermits() {
+        return bulkhead.availablePermits();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // Fails fast instead of queueing when the bulkhead is full or the circuit is open, a slow upstream can't pile up callers
+    private CompletableFuture<HttpResponse<byte[]>> exchange(HttpRequest request) {
+        if(!bulkhead.tryAcquire()) {
+            rejections.increment();
+            return CompletableFuture.failedFuture(
+                    new FakeStoreClientException("Too many requests in flight to FakeStore"));
+        }
+        if(!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            shortCircuits.increment();
+            return CompletableFuture.failedFuture(
+                    new FakeStoreClientException("FakeStore circuit is open"));
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> primary = attempt(request);
+        CompletableFuture<HttpResponse<byte[]>> response = hedgeEnabled && "GET".equals(request.method())
+                ? hedge(request, primary) : primary;
+        // 4xx are the caller's fault and say nothing about the health of the upstream
+        return response.whenComplete((result, exception) -> {
+            if(exception != null || result.statusCode() >= 500) {
+                failures.increment();
+                circuitBreaker.onFailure();
+            } else {
+                successes.increment();
+                circuitBreaker.onSuccess();
+            }
+        });
+    }
+
+    // One request on the wire, the caller holds a bulkhead permit that is released when it completes
+    private CompletableFuture<HttpResponse<byte[]>> attempt(HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, exception) -> {
+                        bulkhead.release();
+                        if(exception == null) {
+                            latencyTracker.record(System.nanoTime() - start);
+                        }
+                    });
+        } catch (RuntimeException exception) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    // Sends a second copy of an idempotent request when the first one is slower than usual, the first response wins
+    private CompletableFuture<HttpResponse<byte[]>> hedge(HttpRequest request, CompletableFuture<HttpResponse<byte[]>> primary) {
+        long p95 = latencyTracker.percentileMillis(95);
+        if(p95 < 0) {
+            return primary;
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> response = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        complete(primary, response, running);
+        CompletableFuture.delayedExecutor(Math.max(p95, hedgeMinDelayMs), TimeUnit.MILLISECONDS, executor).execute(() -> {
+            // The hedge has to fit in the bulkhead like any other call
+            if(response.isDone() || !bulkhead.tryAcquire()) {
+                return;
+            }
+            running.incrementAndGet();
+            hedges.increment();
+            complete(attempt(request), response, running);
+        });
+        return response;
+    }
+
+    // The losing attempt is left to finish on its own and just releases its permit
+    private static void complete(CompletableFuture<HttpResponse<byte[]>> attempt,
+                                 CompletableFuture<HttpResponse<byte[]>> response, AtomicInteger running) {
+        attempt.whenComplete((result, exception) -> {
+            if(exception == null) {
+                response.complete(result);
+            } else if(running.decrementAndGet() == 0) {
+                response.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private HttpRequest.Builder buildRequest(String method, String path, Object body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Accept", "application/json");
+        if(body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private <T> T read(HttpRequest request, HttpResponse<byte[]> response, Class<T> responseType) {
+        int status = response.statusCode();
+        if(status == 404 || (status == 200 && response.body().length == 0)) {
+            return null;
+        }
+        if(status < 200 || status >= 300) {
+            throw new FakeStoreClientException(request.method() + " " + request.uri() + " returned " + status);
+        }
+        try {
+            return objectMapper.readerFor(responseType)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(response.body());
+        } catch (IOException exception) {
+            throw new FakeStoreClientException("Could not read " + request.uri(), exception);
+        }
+    }
+}
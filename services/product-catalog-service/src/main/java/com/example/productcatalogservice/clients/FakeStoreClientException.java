@@ -0,0 +1,11 @@
+package com.example.productcatalogservice.clients;
+
+public class FakeStoreClientException extends RuntimeException {
+    public FakeStoreClientException(String message) {
+        super(message);
+    }
+
+    public FakeStoreClientException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.productcatalogservice.clients;
+
+import java.util.Arrays;
+
+// Latencies of the last calls, used to pick the hedging delay
+public class LatencyTracker {
+    private final long[] samples;
+
+    private final int minimumSamples;
+
+    private int next;
+
+    private int size;
+
+    public LatencyTracker(int capacity, int minimumSamples) {
+        this.samples = new long[capacity];
+        this.minimumSamples = minimumSamples;
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    // -1 until minimumSamples calls were recorded
+    public long percentileMillis(double percentile) {
+        long[] copy;
+        synchronized (this) {
+            if(size < minimumSamples) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile / 100 * copy.length) - 1;
+        return copy[Math.max(index, 0)] / 1_000_000;
+    }
+}
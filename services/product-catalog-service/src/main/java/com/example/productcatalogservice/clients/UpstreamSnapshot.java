@@ -0,0 +1,102 @@
+package com.example.productcatalogservice.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Local copy of one FakeStore resource. Readers get the current copy without
+ * any locking or I/O while refreshes run in the background with conditional
+ * GETs, so an unchanged resource costs a 304 and no re-mapping.
+ */
+public class UpstreamSnapshot<R, T> {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamSnapshot.class);
+
+    private final FakeStoreApiClient fakeStoreApiClient;
+
+    private final String path;
+
+    private final Class<R> responseType;
+
+    private final Function<R, T> mapper;
+
+    private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+
+    // The refresh in progress, concurrent callers share it instead of starting their own
+    private final AtomicReference<CompletableFuture<T>> refreshing = new AtomicReference<>();
+
+    private record Snapshot<T>(T value, String etag, String lastModified, long refreshedAtMillis) {
+    }
+
+    public UpstreamSnapshot(FakeStoreApiClient fakeStoreApiClient, String path, Class<R> responseType, Function<R, T> mapper) {
+        this.fakeStoreApiClient = fakeStoreApiClient;
+        this.path = path;
+        this.responseType = responseType;
+        this.mapper = mapper;
+    }
+
+    // Only the very first read waits for the upstream, later reads serve the last copy even during a refresh
+    public CompletableFuture<T> get() {
+        Snapshot<T> snapshot = current.get();
+        if(snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot.value());
+        }
+        return refresh();
+    }
+
+    // A failed refresh keeps the stale copy, it only fails when there is nothing to fall back to.
+    // Every caller gets its own copy of the shared refresh, a caller's orTimeout or cancel stays its own
+    public CompletableFuture<T> refresh() {
+        CompletableFuture<T> refresh = new CompletableFuture<>();
+        CompletableFuture<T> running = refreshing.compareAndExchange(null, refresh);
+        if(running != null) {
+            return running.copy();
+        }
+
+        Snapshot<T> stale = current.get();
+        try {
+            fakeStoreApiClient.getIfChanged(path, responseType,
+                            stale != null ? stale.etag() : null,
+                            stale != null ? stale.lastModified() : null)
+                    .whenComplete((response, exception) -> settle(refresh, stale, response, exception));
+        } catch (RuntimeException exception) {
+            settle(refresh, stale, null, exception);
+        }
+        return refresh.copy();
+    }
+
+    // Millis since the copy was last confirmed with the upstream, -1 before the first load
+    public long getAgeMillis() {
+        Snapshot<T> snapshot = current.get();
+        return snapshot != null ? System.currentTimeMillis() - snapshot.refreshedAtMillis() : -1;
+    }
+
+    // The new copy is published before the refresh is marked done, so a follow-up refresh sends its validators
+    private void settle(CompletableFuture<T> refresh, Snapshot<T> stale,
+                        FakeStoreApiClient.ConditionalResponse<R> response, Throwable exception) {
+        T value = null;
+        Throwable failure = exception;
+        if(failure == null) {
+            try {
+                value = response.notModified() && stale != null ? stale.value() : mapper.apply(response.body());
+                current.set(new Snapshot<>(value, response.etag(), response.lastModified(), System.currentTimeMillis()));
+            } catch (RuntimeException mappingException) {
+                failure = mappingException;
+            }
+        }
+        refreshing.set(null);
+
+        if(failure == null) {
+            refresh.complete(value);
+        } else if(stale == null) {
+            refresh.completeExceptionally(failure);
+        } else {
+            logger.warn("Refresh of {} failed, serving the copy from {} ms ago", path,
+                    System.currentTimeMillis() - stale.refreshedAtMillis(), failure);
+            refresh.complete(stale.value());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.productcatalogservice.config;
+
+import com.example.productcatalogservice.services.IProductService;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Makes the IProductService bean named by products.service the primary one,
+ * so switching between storage, FakeStore and the composite is a config change.
+ */
+@Component
+public class ProductServiceSelector implements BeanFactoryPostProcessor, EnvironmentAware, PriorityOrdered {
+    static final String PROPERTY = "products.service";
+
+    static final String DEFAULT_SERVICE = "storage-product-service";
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        String selected = environment.getProperty(PROPERTY, DEFAULT_SERVICE);
+        String[] names = beanFactory.getBeanNamesForType(IProductService.class, true, false);
+        if(!Arrays.asList(names).contains(selected)) {
+            throw new IllegalStateException(PROPERTY + "=" + selected + " is not an IProductService bean, pick one of "
+                    + Arrays.toString(names));
+        }
+        for(String name : names) {
+            beanFactory.getBeanDefinition(name).setPrimary(name.equals(selected));
+        }
+    }
+
+    // Before the other post processors, @MockBean in tests then replaces the selected bean
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -1,15 +1,44 @@
 package com.example.productcatalogservice.config;
 
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.cache.ProductRedisSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+@Configuration
 public class RedisConfig {
 
+    // jdk keeps Spring's default JdkSerializationRedisSerializer
+    @Value("${products.cache.serializer:binary}")
+    private String serializer;
+
     @Bean
     RedisTemplate<String,Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
         RedisTemplate<String,Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(redisConnectionFactory);
+        if(!"jdk".equalsIgnoreCase(serializer)) {
+            ProductRedisSerializer productRedisSerializer = new ProductRedisSerializer(
+                    ProductRedisSerializer.Encoding.valueOf(serializer.toUpperCase()));
+            redisTemplate.setKeySerializer(RedisSerializer.string());
+            redisTemplate.setValueSerializer(productRedisSerializer);
+            redisTemplate.setHashKeySerializer(productRedisSerializer);
+            redisTemplate.setHashValueSerializer(productRedisSerializer);
+        }
         return redisTemplate;
     }
+
+    @Bean
+    RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                ProductCache productCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(productCache, new ChannelTopic(productCache.getInvalidationChannel()));
+        return container;
+    }
 }
@@ -0,0 +1,88 @@
+package com.example.productcatalogservice.config;
+
+import com.example.productcatalogservice.datasource.ReplicaPoolDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read only transactions go to the MySQL replicas in products.datasource.replica-urls,
+ * everything else to spring.datasource. Without replica urls Spring Boot's own
+ * DataSource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(name = "products.datasource.replica-urls")
+public class ReplicaRoutingConfig {
+
+    @Value("${products.datasource.replica-urls}")
+    private List<String> replicaUrls;
+
+    @Value("${products.datasource.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${products.datasource.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${products.datasource.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${products.datasource.replica-selection:ROUND_ROBIN}")
+    private ReplicaPoolDataSource.Selection selection;
+
+    @Value("${products.datasource.replica-max-lag-ms:5000}")
+    private long maxLagMs;
+
+    @Value("${products.datasource.replica-lag-query:}")
+    private String lagQuery;
+
+    // Bound like Spring Boot's own pool, so spring.datasource.hikari.* still applies to the primary
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    ReplicaPoolDataSource replicaPoolDataSource(HikariDataSource primaryDataSource) {
+        List<ReplicaPoolDataSource.Replica> replicas = new ArrayList<>();
+        for(String replicaUrl : replicaUrls) {
+            if(replicaUrl.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(replicaUrl.trim());
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // A replica that is down should not stop the service from starting
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(new ReplicaPoolDataSource.Replica(replica.getPoolName(), replica));
+        }
+        return new ReplicaPoolDataSource(primaryDataSource, replicas, selection, maxLagMs, lagQuery);
+    }
+
+    // The physical connection is only taken on first use, once the transaction has marked it read only
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaPoolDataSource replicaPoolDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaPoolDataSource.getPrimary());
+        dataSource.setReadOnlyDataSource(replicaPoolDataSource);
+        return dataSource;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.productcatalogservice.controllers;
 
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,4 +13,10 @@ public class ControllerAdvisor {
     public ResponseEntity<String> handleExceptions(Exception exception) {
         return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
     }
+
+    // The product changed since the client read it
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    public ResponseEntity<String> handleConflicts(Exception exception) {
+        return new ResponseEntity<>("Product was changed by someone else, please read it again", HttpStatus.CONFLICT);
+    }
 }
@@ -1,48 +1,145 @@
 package com.example.productcatalogservice.controllers;
 
-import com.example.productcatalogservice.dtos.CategoryDto;
+import com.example.productcatalogservice.dtos.BulkItemResultDto;
 import com.example.productcatalogservice.dtos.ProductDto;
-import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.mappers.ProductMapper;
 import com.example.productcatalogservice.modals.Product;
 import com.example.productcatalogservice.services.IProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
+    // Picked with products.service, see ProductServiceSelector
     @Autowired
-    @Qualifier("storage-product-service")
     private IProductService productService;
 
-    // Get all products
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Value("${products.multi-get.max-ids:200}")
+    private int multiGetMaxIds;
+
+    @Value("${products.http.cache.max-age-seconds:30}")
+    private long maxAgeSeconds;
+
+    @Value("${products.http.cache.s-max-age-seconds:60}")
+    private long sharedMaxAgeSeconds;
+
+    // Get all products, 304 when the catalog version still matches If-None-Match
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public void getAllProducts(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                               HttpServletResponse response) throws IOException {
+        String catalogVersion = productService.getCatalogVersion();
+        if(catalogVersion != null && matches(ifNoneMatch, ETag.quoteETagIfNecessary(catalogVersion))) {
+            setCatalogHeaders(response, catalogVersion);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        // The ETag is taken from the version read with the rows, the one above may come from another replica
+        IProductService.Catalog catalog = productService.getCatalog();
+        if(catalog.version() != null) {
+            setCatalogHeaders(response, catalog.version());
+        }
+        writeProducts(response, catalog.products());
+    }
+
+    private void setCatalogHeaders(HttpServletResponse response, String catalogVersion) {
+        response.setHeader(HttpHeaders.ETAG, ETag.quoteETagIfNecessary(catalogVersion));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl().getHeaderValue());
     }
 
-    //    Get product
+    // Get many products in one call, in the order of the ids
+    @GetMapping(params = "ids")
+    public void getProductsByIds(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        if(ids.isEmpty()) {
+            throw new IllegalArgumentException("Please pass at least one productId");
+        }
+        if(ids.size() > multiGetMaxIds) {
+            throw new IllegalArgumentException("Please pass at most " + multiGetMaxIds + " productIds");
+        }
+        for(Long id : ids) {
+            if(id == null || id <= 0) {
+                throw new IllegalArgumentException("Please pass productIds greater than 0");
+            }
+        }
+        writeProducts(response, productService.getProductsByIds(ids));
+    }
+
+    // Stream all products as newline delimited JSON, written while the rows are read
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        // The generator flushes when its buffer fills, not once per product
+        StreamingResponseBody body = outputStream -> {
+            try(JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                productService.forEachProduct(product -> {
+                    try {
+                        productMapper.writeJson(generator, product);
+                        generator.writeRaw('\n');
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    //    Get product, a matching If-None-Match is answered from the version alone without loading the product
     @GetMapping("/{id}")
-    public ProductDto getProductDetails(@PathVariable Long id) {
+    public ResponseEntity<ProductDto> getProductDetails(@PathVariable Long id,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         if(id < 0) {
             throw new IllegalArgumentException("Please pass productId greater than 0");
         } else if(id == 0) {
             throw new IllegalArgumentException("Please pass positive productId");
         }
+        if(ifNoneMatch != null) {
+            String version = productService.getProductVersion(id);
+            if(version != null && matches(ifNoneMatch, eTag(id, version))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag(id, version))
+                        .cacheControl(cacheControl())
+                        .build();
+            }
+        }
         Product product = productService.getProductById(id);
-        if(product == null) return null;
-        return from(product);
+        if(product == null) return ResponseEntity.ok(null);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl());
+        String version = productMapper.versionOf(product);
+        if(version != null) {
+            response.eTag(eTag(id, version));
+        }
+        return response.body(productMapper.toDto(product));
     }
 
     //    Create product
     @PostMapping
     public ProductDto createProduct(@RequestBody ProductDto productDto) {
-        Product product = from(productDto);
+        Product product = productMapper.fromDto(productDto);
         Product response = productService.createProduct(product);
-        return from(response);
+        return productMapper.toDto(response);
     }
 
     // Update a product completely
@@ -54,42 +151,81 @@ public class ProductController {
         return productService.updateProduct(id, product);
     }
 
+    // Change some fields only if the product is still at the version the client read, 409 otherwise.
+    // Null fields are left as they are and the new version is in the ETag of the 204
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchProduct(@PathVariable Long id, @RequestBody ProductDto productDto) {
+        if(id <= 0) {
+            throw new IllegalArgumentException("Please pass productId greater than 0");
+        }
+        if(productDto.getVersion() == null) {
+            throw new IllegalArgumentException("Please pass the version of the product that was read");
+        }
+        if(productDto.getCategory() != null) {
+            throw new IllegalArgumentException("Category can't be patched, please use PUT");
+        }
+        String version = productService.patchProduct(id, productDto.getVersion(), productMapper.fromDto(productDto));
+        if(version == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().eTag(eTag(id, version)).build();
+    }
+
     @DeleteMapping("/{id}")
     public Boolean deleteProduct(@PathVariable Long id) {
         return null;
     }
 
-    private ProductDto from (Product product) {
-        ProductDto productDto = new ProductDto();
-        productDto.setId(product.getId());
-        productDto.setName(product.getName());
-        productDto.setDescription(product.getDescription());
-        productDto.setPrice(product.getPrice());
-        productDto.setImageUrl(product.getImageUrl());
-        if(product.getCategory() != null) {
-            CategoryDto categoryDto = new CategoryDto();
-            categoryDto.setName(product.getCategory().getName());
-            categoryDto.setId(product.getCategory().getId());
-            categoryDto.setDescription(product.getCategory().getDescription());
-            productDto.setCategory(categoryDto);
-        }
-        return productDto;
-    }
-
-    private Product from(ProductDto productDto) {
-        Product product = new Product();
-        product.setName(productDto.getName());
-        product.setId(productDto.getId());
-        product.setDescription(productDto.getDescription());
-        product.setImageUrl(productDto.getImageUrl());
-        product.setPrice(productDto.getPrice());
-        if(productDto.getCategory() != null) {
-            Category category = new Category();
-            category.setName(productDto.getCategory().getName());
-            category.setId(productDto.getCategory().getId());
-            category.setDescription(productDto.getCategory().getDescription());
-            product.setCategory(category);
+    // Create many products at once, one result per product in request order
+    @PostMapping("/bulk")
+    public List<BulkItemResultDto> createProducts(@RequestBody List<ProductDto> productDtos) {
+        List<Product> products = productDtos.stream()
+                .map(productDto -> productDto != null ? productMapper.fromDto(productDto) : null)
+                .toList();
+        return productService.createProducts(products);
+    }
+
+    // Update many products completely
+    @PutMapping("/bulk")
+    public List<BulkItemResultDto> updateProducts(@RequestBody List<Product> products) {
+        return productService.updateProducts(products);
+    }
+
+    @DeleteMapping("/bulk")
+    public List<BulkItemResultDto> deleteProducts(@RequestBody List<Long> ids) {
+        return productService.deleteProducts(ids);
+    }
+
+    private static String eTag(Long id, String version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    // If-None-Match uses the weak comparison
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if(ifNoneMatch == null) {
+            return false;
+        }
+        ETag current = ETag.create(eTag);
+        for(ETag candidate : ETag.parse(ifNoneMatch)) {
+            if(candidate.isWildcard() || candidate.compare(current, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Shared caches may keep a product for s-maxage and then revalidate it with the ETag
+    private CacheControl cacheControl() {
+        return CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS)
+                .sMaxAge(sharedMaxAgeSeconds, TimeUnit.SECONDS)
+                .cachePublic();
+    }
+
+    // Products are written straight to the response in their entity form, the list endpoints' existing contract
+    private void writeProducts(HttpServletResponse response, List<Product> products) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            productMapper.writeEntityJsonArray(generator, products);
         }
-        return  product;
     }
 }
@@ -1,8 +1,12 @@
 package com.example.productcatalogservice.controllers;
 
+import com.example.productcatalogservice.dtos.CursorPageDto;
+import com.example.productcatalogservice.dtos.PriceSearchRequestDto;
+import com.example.productcatalogservice.dtos.SearchFacetsDto;
 import com.example.productcatalogservice.dtos.SearchRequestDto;
 import com.example.productcatalogservice.modals.Product;
 import com.example.productcatalogservice.services.ISearchService;
+import com.example.productcatalogservice.services.ProductPriceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,10 +21,34 @@ public class SearchController {
     @Autowired
     private ISearchService searchService;
 
+    @Autowired
+    private ProductPriceService productPriceService;
+
     @PostMapping("/search")
     public Page<Product> searchProducts(@RequestBody SearchRequestDto searchRequestDto) {
         return searchService.searchProducts(searchRequestDto.getQuery(),
                 searchRequestDto.getPageNumber(),
                 searchRequestDto.getPageSize(),searchRequestDto.getSortParams());
     }
+
+    @PostMapping("/search/cursor")
+    public CursorPageDto<Product> scrollProducts(@RequestBody SearchRequestDto searchRequestDto) {
+        return searchService.scrollProducts(searchRequestDto.getQuery(),
+                searchRequestDto.getCursor(),
+                searchRequestDto.getPageSize(),searchRequestDto.getSortParams());
+    }
+
+    // Counts for the sidebar filters, only the query of the request is used
+    @PostMapping("/search/facets")
+    public SearchFacetsDto getFacets(@RequestBody SearchRequestDto searchRequestDto) {
+        return searchService.getFacets(searchRequestDto.getQuery());
+    }
+
+    // Products ordered by price and then id, at most limit of them
+    @PostMapping("/search/price")
+    public List<Product> searchByPrice(@RequestBody PriceSearchRequestDto priceSearchRequestDto) {
+        return productPriceService.findByPrice(priceSearchRequestDto.getMinPrice(),
+                priceSearchRequestDto.getMaxPrice(), priceSearchRequestDto.getCategory(),
+                priceSearchRequestDto.getLimit(), priceSearchRequestDto.getSortType());
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.productcatalogservice.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Lets a read that has to see the latest write skip the replicas. Only has an
+ * effect when replicas are configured, see ReplicaPoolDataSource.
+ */
+public final class DataSourceRouting {
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> reader) {
+        if(isPrimaryRequired()) {
+            return reader.get();
+        }
+        primaryRequired.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            primaryRequired.remove();
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return primaryRequired.get() != null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.productcatalogservice.datasource;
+
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Sends reads of recently written products to the primary, for as long as the
+ * replicas may not have applied the write yet: the largest lag seen by the
+ * replica checks, and at least minWindowMs. Writes are tracked per instance.
+ */
+@Component
+public class ReadYourWrites {
+    @Autowired(required = false)
+    private ReplicaPoolDataSource replicaPoolDataSource;
+
+    @Value("${products.datasource.read-your-writes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${products.datasource.read-your-writes.min-window-ms:1000}")
+    private long minWindowMs;
+
+    // Writes are remembered this long at most, a replica lagging more is out of rotation anyway
+    @Value("${products.datasource.replica-max-lag-ms:5000}")
+    private long maxWindowMs;
+
+    @Value("${products.datasource.read-your-writes.maximum-size:100000}")
+    private long maximumSize;
+
+    // Product id to the time it was last written
+    private Cache<Long, Long> recentWrites;
+
+    @PostConstruct
+    void init() {
+        recentWrites = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(Math.max(minWindowMs, maxWindowMs)))
+                .build();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if(isActive()) {
+            recentWrites.put(event.getProductId(), System.currentTimeMillis());
+        }
+    }
+
+    public <T> T read(Long id, Supplier<T> reader) {
+        return isActive() && wroteRecently(id) ? DataSourceRouting.onPrimary(reader) : reader.get();
+    }
+
+    public <T> T read(Collection<Long> ids, Supplier<T> reader) {
+        if(isActive()) {
+            for(Long id : ids) {
+                if(wroteRecently(id)) {
+                    return DataSourceRouting.onPrimary(reader);
+                }
+            }
+        }
+        return reader.get();
+    }
+
+    // For writes not tracked per product here, such as the shared catalog version
+    public <T> T readWrittenAt(long writtenAt, Supplier<T> reader) {
+        return isActive() && isRecent(writtenAt) ? DataSourceRouting.onPrimary(reader) : reader.get();
+    }
+
+    boolean wroteRecently(Long id) {
+        Long writtenAt = recentWrites.getIfPresent(id);
+        return writtenAt != null && isRecent(writtenAt);
+    }
+
+    private boolean isRecent(long writtenAt) {
+        long window = Math.max(minWindowMs, replicaPoolDataSource.getMaxReplicaLagMs());
+        return System.currentTimeMillis() - writtenAt <= window;
+    }
+
+    private boolean isActive() {
+        return enabled && replicaPoolDataSource != null;
+    }
+}
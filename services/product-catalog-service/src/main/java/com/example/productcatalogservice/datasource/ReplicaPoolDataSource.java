@@ -0,0 +1,206 @@
+package com.example.productcatalogservice.datasource;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out replica connections for read only transactions. Replicas that
+ * fail their check, or lag the primary by more than maxLagMs, are skipped
+ * until a later check passes, and the primary serves reads when none is left.
+ */
+public class ReplicaPoolDataSource extends AbstractDataSource implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaPoolDataSource.class);
+
+    // Weight of the latest check in the smoothed latency
+    private static final double LATENCY_ALPHA = 0.3;
+
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_LATENCY
+    }
+
+    @Getter
+    public static class Replica {
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        private volatile long lagMs;
+
+        private volatile double latencyMicros;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    @Getter
+    private final DataSource primary;
+
+    @Getter
+    private final List<Replica> replicas;
+
+    private final Selection selection;
+
+    private final long maxLagMs;
+
+    // Returns the lag in seconds, or the SHOW REPLICA STATUS row. Blank only checks the connection
+    private final String lagQuery;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaPoolDataSource(DataSource primary, List<Replica> replicas, Selection selection,
+                                 long maxLagMs, String lagQuery) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.maxLagMs = maxLagMs;
+        this.lagQuery = lagQuery;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if(!DataSourceRouting.isPrimaryRequired()) {
+            for(Replica replica : candidates()) {
+                try {
+                    return username != null
+                            ? replica.dataSource.getConnection(username, password)
+                            : replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    logger.warn("Replica {} refused a connection, skipping it until the next check", replica.name, e);
+                    replica.healthy = false;
+                }
+            }
+        }
+        return username != null ? primary.getConnection(username, password) : primary.getConnection();
+    }
+
+    // Lag the healthy replicas may have, read your writes stays on the primary at least this long
+    public long getMaxReplicaLagMs() {
+        long lagMs = 0;
+        for(Replica replica : replicas) {
+            if(replica.healthy) {
+                lagMs = Math.max(lagMs, replica.lagMs);
+            }
+        }
+        return lagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${products.datasource.replica-check-interval-ms:5000}")
+    public void checkReplicas() {
+        replicas.forEach(this::check);
+    }
+
+    void check(Replica replica) {
+        long start = System.nanoTime();
+        try(Connection connection = replica.dataSource.getConnection()) {
+            long lagMs = 0;
+            if(lagQuery == null || lagQuery.isBlank()) {
+                if(!connection.isValid(CHECK_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Connection is not valid");
+                }
+            } else {
+                lagMs = readLagMs(connection);
+            }
+            double latencyMicros = (System.nanoTime() - start) / 1000.0;
+            replica.latencyMicros = replica.latencyMicros == 0
+                    ? latencyMicros
+                    : LATENCY_ALPHA * latencyMicros + (1 - LATENCY_ALPHA) * replica.latencyMicros;
+            replica.lagMs = lagMs;
+            boolean healthy = lagMs <= maxLagMs;
+            if(healthy != replica.healthy) {
+                logger.info("Replica {} is {} (lag {} ms)", replica.name, healthy ? "back in rotation" : "lagging", lagMs);
+            }
+            replica.healthy = healthy;
+        } catch (SQLException e) {
+            if(replica.healthy) {
+                logger.warn("Replica {} failed its check", replica.name, e);
+            }
+            replica.healthy = false;
+        }
+    }
+
+    private long readLagMs(Connection connection) throws SQLException {
+        try(Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+            try(ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if(!resultSet.next()) {
+                    // Not replicating from anything, nothing to lag behind
+                    return 0;
+                }
+                int column = lagColumn(resultSet.getMetaData());
+                double lagSeconds = resultSet.getDouble(column);
+                if(resultSet.wasNull()) {
+                    throw new SQLException("Replication is not running");
+                }
+                return (long) (lagSeconds * 1000);
+            }
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for(int i = 1; i <= metaData.getColumnCount(); i++) {
+            String label = metaData.getColumnLabel(i);
+            if("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return 1;
+    }
+
+    List<Replica> candidates() {
+        List<Replica> healthyReplicas = new ArrayList<>(replicas.size());
+        for(Replica replica : replicas) {
+            if(replica.healthy) {
+                healthyReplicas.add(replica);
+            }
+        }
+        if(healthyReplicas.size() < 2) {
+            return healthyReplicas;
+        }
+        if(selection == Selection.LEAST_LATENCY) {
+            healthyReplicas.sort(Comparator.comparingDouble(Replica::getLatencyMicros));
+            return healthyReplicas;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), healthyReplicas.size());
+        List<Replica> ordered = new ArrayList<>(healthyReplicas.size());
+        ordered.addAll(healthyReplicas.subList(start, healthyReplicas.size()));
+        ordered.addAll(healthyReplicas.subList(0, start));
+        return ordered;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for(Replica replica : replicas) {
+            if(replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if(primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.productcatalogservice.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+// Outcome of one item of a bulk request, results are in the order of the request
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResultDto {
+    private Long id;
+
+    private BulkItemStatus status;
+
+    // Only set for FAILED
+    private String message;
+
+    public static BulkItemResultDto of(Long id, BulkItemStatus status) {
+        BulkItemResultDto result = new BulkItemResultDto();
+        result.setId(id);
+        result.setStatus(status);
+        return result;
+    }
+
+    public static BulkItemResultDto failed(Long id, String message) {
+        BulkItemResultDto result = of(id, BulkItemStatus.FAILED);
+        result.setMessage(message);
+        return result;
+    }
+}
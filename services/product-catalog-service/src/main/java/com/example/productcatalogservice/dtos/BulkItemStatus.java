@@ -0,0 +1,5 @@
+package com.example.productcatalogservice.dtos;
+
+public enum BulkItemStatus {
+    CREATED, UPDATED, DELETED, ALREADY_EXISTS, NOT_FOUND, FAILED
+}
@@ -1,12 +1,22 @@
 package com.example.productcatalogservice.dtos;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
-import lombok.Setter;
 
-@Setter
+// Immutable, ProductMapper hands the same instance to every product of a category
 @Getter
 public class CategoryDto {
-    Long id;
-    String name;
-    String description;
-}
\ No newline at end of file
+    final Long id;
+    final String name;
+    final String description;
+
+    @JsonCreator
+    public CategoryDto(@JsonProperty("id") Long id,
+                       @JsonProperty("name") String name,
+                       @JsonProperty("description") String description) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.productcatalogservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CategoryFacetDto {
+    private Long id;
+
+    private String name;
+
+    private long count;
+
+    public static CategoryFacetDto of(Long id, String name, long count) {
+        CategoryFacetDto categoryFacet = new CategoryFacetDto();
+        categoryFacet.setId(id);
+        categoryFacet.setName(name);
+        categoryFacet.setCount(count);
+        return categoryFacet;
+    }
+}
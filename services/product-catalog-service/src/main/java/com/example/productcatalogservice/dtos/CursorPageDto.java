@@ -0,0 +1,20 @@
+package com.example.productcatalogservice.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPageDto<T> {
+    private List<T> content = new ArrayList<>();
+
+    // Pass back as SearchRequestDto.cursor to get the next page, null on the last page
+    private String nextCursor;
+
+    private boolean hasNext;
+}
@@ -0,0 +1,25 @@
+package com.example.productcatalogservice.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+// Prices from inclusive to exclusive, the last range has no upper bound
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PriceRangeFacetDto {
+    private Double from;
+
+    private Double to;
+
+    private long count;
+
+    public static PriceRangeFacetDto of(Double from, Double to, long count) {
+        PriceRangeFacetDto priceRangeFacet = new PriceRangeFacetDto();
+        priceRangeFacet.setFrom(from);
+        priceRangeFacet.setTo(to);
+        priceRangeFacet.setCount(count);
+        return priceRangeFacet;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.productcatalogservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Both bounds are inclusive and optional, without them the request is a top-K by price
+@Setter
+@Getter
+public class PriceSearchRequestDto {
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    // Category name, e.g. the cheapest products of a category
+    private String category;
+
+    private Integer limit;
+
+    private SortType sortType = SortType.ASC;
+}
@@ -14,4 +14,6 @@ public class ProductDto {
     String imageUrl;
     Double price;
     CategoryDto category;
+    // Sent back with PATCH, which fails with 409 once the product has changed
+    Long version;
 }
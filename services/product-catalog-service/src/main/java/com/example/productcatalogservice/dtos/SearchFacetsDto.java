@@ -0,0 +1,22 @@
+package com.example.productcatalogservice.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Filters for a search sidebar, counted over every product the query matches
+@Getter
+@Setter
+public class SearchFacetsDto {
+    private String query;
+
+    private long total;
+
+    // Most products first
+    private List<CategoryFacetDto> categories = new ArrayList<>();
+
+    // In price order, empty ranges included
+    private List<PriceRangeFacetDto> priceRanges = new ArrayList<>();
+}
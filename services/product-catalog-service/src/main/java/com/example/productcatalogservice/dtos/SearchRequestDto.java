@@ -15,5 +15,8 @@ public class SearchRequestDto {
 
     private Integer pageNumber;
 
+    // Continuation token for POST /search/cursor, empty for the first page
+    private String cursor;
+
     private List<SortParam> sortParams = new ArrayList<>();
 }
@@ -0,0 +1,44 @@
+package com.example.productcatalogservice.events;
+
+import com.example.productcatalogservice.modals.Product;
+import lombok.Getter;
+
+/**
+ * Published by StorageProductService after a product is written, so in
+ * memory views of the catalog can follow along without polling MySQL.
+ */
+@Getter
+public class ProductChangedEvent {
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+
+    private final Long productId;
+
+    // null for DELETED and for partial updates, listeners load it when they need it
+    private final Product product;
+
+    public ProductChangedEvent(Type type, Long productId, Product product) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(Type.CREATED, product.getId(), product);
+    }
+
+    public static ProductChangedEvent updated(Product product) {
+        return new ProductChangedEvent(Type.UPDATED, product.getId(), product);
+    }
+
+    public static ProductChangedEvent patched(Long productId) {
+        return new ProductChangedEvent(Type.UPDATED, productId, null);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null);
+    }
+}
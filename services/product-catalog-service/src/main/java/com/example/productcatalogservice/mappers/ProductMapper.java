@@ -0,0 +1,178 @@
+package com.example.productcatalogservice.mappers;
+
+import com.example.productcatalogservice.dtos.CategoryDto;
+import com.example.productcatalogservice.dtos.ProductDto;
+import com.example.productcatalogservice.modals.BaseModal;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps products to and from their API form. The write methods put a product
+ * on the generator directly instead of building an object per product:
+ * writeJson produces the same JSON as ProductDto, writeEntityJson the same
+ * JSON as the Product entity, which GET /products has always returned.
+ */
+@Component
+public class ProductMapper {
+    // Categories are few, the bound only protects against unexpected id ranges
+    private static final int MAX_SHARED_CATEGORIES = 1024;
+
+    private final Map<Long, CategoryDto> categoryDtos = new ConcurrentHashMap<>();
+
+    public ProductDto toDto(Product product) {
+        ProductDto productDto = new ProductDto();
+        productDto.setId(product.getId());
+        productDto.setName(product.getName());
+        productDto.setDescription(product.getDescription());
+        productDto.setPrice(product.getPrice());
+        productDto.setImageUrl(product.getImageUrl());
+        productDto.setCategory(toDto(product.getCategory()));
+        productDto.setVersion(product.getVersion());
+        return productDto;
+    }
+
+    // One shared instance per category id, replaced when the category has changed
+    public CategoryDto toDto(Category category) {
+        if(category == null) {
+            return null;
+        }
+        Long id = category.getId();
+        if(id == null) {
+            return new CategoryDto(null, category.getName(), category.getDescription());
+        }
+        CategoryDto categoryDto = categoryDtos.get(id);
+        if(categoryDto != null && Objects.equals(categoryDto.getName(), category.getName())
+                && Objects.equals(categoryDto.getDescription(), category.getDescription())) {
+            return categoryDto;
+        }
+        categoryDto = new CategoryDto(id, category.getName(), category.getDescription());
+        if(categoryDtos.size() < MAX_SHARED_CATEGORIES || categoryDtos.containsKey(id)) {
+            categoryDtos.put(id, categoryDto);
+        }
+        return categoryDto;
+    }
+
+    // Same value as IProductService.getProductVersion
+    public String versionOf(Product product) {
+        return BaseModal.versionTag(product.getVersion(), product.getUpdatedAt());
+    }
+
+    // The version is left out, new products start at 0 and PATCH reads it from the DTO
+    public Product fromDto(ProductDto productDto) {
+        Product product = new Product();
+        product.setName(productDto.getName());
+        product.setId(productDto.getId());
+        product.setDescription(productDto.getDescription());
+        product.setImageUrl(productDto.getImageUrl());
+        product.setPrice(productDto.getPrice());
+        if(productDto.getCategory() != null) {
+            Category category = new Category();
+            category.setName(productDto.getCategory().getName());
+            category.setId(productDto.getCategory().getId());
+            category.setDescription(productDto.getCategory().getDescription());
+            product.setCategory(category);
+        }
+        return product;
+    }
+
+    // Same fields and order as ProductDto: nulls are left out of the product but not of its category
+    public void writeJson(JsonGenerator generator, Product product) throws IOException {
+        generator.writeStartObject();
+        if(product.getId() != null) {
+            generator.writeNumberField("id", product.getId());
+        }
+        writeStringField(generator, "name", product.getName());
+        writeStringField(generator, "description", product.getDescription());
+        writeStringField(generator, "imageUrl", product.getImageUrl());
+        if(product.getPrice() != null) {
+            generator.writeNumberField("price", product.getPrice());
+        }
+        Category category = product.getCategory();
+        if(category != null) {
+            generator.writeObjectFieldStart("category");
+            if(category.getId() != null) {
+                generator.writeNumberField("id", category.getId());
+            } else {
+                generator.writeNullField("id");
+            }
+            generator.writeStringField("name", category.getName());
+            generator.writeStringField("description", category.getDescription());
+            generator.writeEndObject();
+        }
+        if(product.getVersion() != null) {
+            generator.writeNumberField("version", product.getVersion());
+        }
+        generator.writeEndObject();
+    }
+
+    public void writeJsonArray(JsonGenerator generator, Iterable<Product> products) throws IOException {
+        generator.writeStartArray();
+        for(Product product : products) {
+            writeJson(generator, product);
+        }
+        generator.writeEndArray();
+    }
+
+    // Same fields and order as the Product entity, BaseModal fields first. Dates and the state go through
+    // the generator's ObjectMapper so they keep its configured format
+    public void writeEntityJson(JsonGenerator generator, Product product) throws IOException {
+        generator.writeStartObject();
+        writeBaseFields(generator, product, false);
+        writeStringField(generator, "name", product.getName());
+        writeStringField(generator, "description", product.getDescription());
+        writeStringField(generator, "imageUrl", product.getImageUrl());
+        if(product.getPrice() != null) {
+            generator.writeNumberField("price", product.getPrice());
+        }
+        Category category = product.getCategory();
+        if(category != null) {
+            generator.writeObjectFieldStart("category");
+            writeBaseFields(generator, category, true);
+            generator.writeStringField("name", category.getName());
+            generator.writeStringField("description", category.getDescription());
+            generator.writeEndObject();
+        }
+        if(product.getIsPrime() != null) {
+            generator.writeBooleanField("isPrime", product.getIsPrime());
+        }
+        generator.writeEndObject();
+    }
+
+    public void writeEntityJsonArray(JsonGenerator generator, Iterable<Product> products) throws IOException {
+        generator.writeStartArray();
+        for(Product product : products) {
+            writeEntityJson(generator, product);
+        }
+        generator.writeEndArray();
+    }
+
+    // Product leaves nulls out, Category writes them
+    private static void writeBaseFields(JsonGenerator generator, BaseModal modal, boolean writeNulls) throws IOException {
+        writeObjectField(generator, "id", modal.getId(), writeNulls);
+        writeObjectField(generator, "createdAt", modal.getCreatedAt(), writeNulls);
+        writeObjectField(generator, "updatedAt", modal.getUpdatedAt(), writeNulls);
+        writeObjectField(generator, "state", modal.getState(), writeNulls);
+        writeObjectField(generator, "version", modal.getVersion(), writeNulls);
+    }
+
+    private static void writeObjectField(JsonGenerator generator, String name, Object value, boolean writeNulls) throws IOException {
+        if(value != null) {
+            generator.writeObjectField(name, value);
+        } else if(writeNulls) {
+            generator.writeNullField(name);
+        }
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, String value) throws IOException {
+        if(value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
@@ -15,4 +15,25 @@ public abstract class BaseModal {
     private Date createdAt;
     private Date updatedAt;
     private State state;
+    // Existing rows start at 0 when the column is added
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Identifies one state of a row: version counts its writes, updatedAt tells a re-created row apart
+    public static String versionTag(Long version, Date updatedAt) {
+        if(updatedAt == null) {
+            return null;
+        }
+        return (version != null ? version : 0) + "-" + updatedAt.getTime();
+    }
+
+    // Moves updatedAt past the previous value even within the same millisecond, ETags are derived from it
+    public void touch(Date previousUpdatedAt) {
+        long now = System.currentTimeMillis();
+        if(previousUpdatedAt != null && previousUpdatedAt.getTime() >= now) {
+            now = previousUpdatedAt.getTime() + 1;
+        }
+        updatedAt = new Date(now);
+    }
 }
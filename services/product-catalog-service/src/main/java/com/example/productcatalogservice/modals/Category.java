@@ -19,7 +19,7 @@ public class Category extends BaseModal implements Serializable {
     private String description;
     @OneToMany(mappedBy = "category", fetch = FetchType.LAZY)
 //    @Fetch(FetchMode.JOIN)
-//    @BatchSize(size = 2)
+    @BatchSize(size = 50)
     @JsonBackReference
     private List<Product> products;
 }
@@ -4,7 +4,11 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -14,8 +18,16 @@ import java.util.Date;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_price", columnList = "price, id"),
+        @Index(name = "idx_product_category_price", columnList = "category_id, price, id")
+})
+@NamedEntityGraph(name = Product.WITH_CATEGORY, attributeNodes = @NamedAttributeNode("category"))
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Product extends BaseModal implements Serializable {
+    // Loads the category in the same select, list queries otherwise run one extra select per category
+    public static final String WITH_CATEGORY = "Product.withCategory";
+
     private String name;
     private String description;
     private String imageUrl;
@@ -5,9 +5,14 @@ import com.example.productcatalogservice.modals.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepo extends JpaRepository<Category, Long> {
     Optional<Category> findById(Long id);
+
+    Optional<Category> findFirstByName(String name);
+
+    List<Category> findAllByName(String name);
 }
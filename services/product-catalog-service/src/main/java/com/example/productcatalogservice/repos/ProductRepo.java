@@ -1,26 +1,100 @@
 package com.example.productcatalogservice.repos;
 
 import com.example.productcatalogservice.modals.Product;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface ProductRepo extends JpaRepository<Product, Long> {
     Product save(Product product);
 
     Optional<Product> findById(Long id);
 
+    @EntityGraph(Product.WITH_CATEGORY)
     List<Product> findAll();
 
+    @EntityGraph(Product.WITH_CATEGORY)
+    List<Product> findAllById(Iterable<Long> ids);
+
     void deleteById(Long id);
 
+    @EntityGraph(Product.WITH_CATEGORY)
     List<Product> findProductByOrderByPriceDesc();
 
-    List<Product> findByNameEquals(String name, Pageable pageable);
+    @EntityGraph(Product.WITH_CATEGORY)
+    Page<Product> findByNameEquals(String name, Pageable pageable);
+
+    @EntityGraph(Product.WITH_CATEGORY)
+    Window<Product> findByNameEquals(String name, ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(Product.WITH_CATEGORY)
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // Price ordered reads that stop after limit rows, sorted by price and id they walk idx_product_price
+    @EntityGraph(Product.WITH_CATEGORY)
+    List<Product> findByPriceBetween(Double minPrice, Double maxPrice, Sort sort, Limit limit);
+
+    @EntityGraph(Product.WITH_CATEGORY)
+    List<Product> findByCategory_NameAndPriceBetween(String categoryName, Double minPrice, Double maxPrice, Sort sort, Limit limit);
+
+    // Rows come from a server side cursor 500 at a time, needs useCursorFetch=true on MySQL
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Product p left join fetch p.category order by p.id")
+    Stream<Product> streamAllBy();
+
+    @Query("select p.id from Product p where p.id in :ids")
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    // Version only lookups for conditional GETs, the product itself is not loaded
+    @Query("select p.version as version, p.updatedAt as updatedAt from Product p where p.id = :id")
+    Optional<ProductVersion> findVersionById(Long id);
+
+    @Query("select count(p) as count, max(p.updatedAt) as lastUpdatedAt, coalesce(sum(p.id), 0) as idSum, "
+            + "coalesce(sum(p.version), 0) as versionSum from Product p")
+    CatalogVersion findCatalogVersion();
+
+    // Partial update without reading the row first, null arguments keep the current value.
+    // Returns 0 when the id is unknown or the row is no longer at the given version
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Product p set p.name = coalesce(:name, p.name), p.description = coalesce(:description, p.description), "
+            + "p.imageUrl = coalesce(:imageUrl, p.imageUrl), p.price = coalesce(:price, p.price), "
+            + "p.updatedAt = :updatedAt, p.version = p.version + 1 where p.id = :id and p.version = :version")
+    int patch(Long id, Long version, String name, String description, String imageUrl, Double price, Date updatedAt);
+
+    interface ProductVersion {
+        Long getVersion();
+        Date getUpdatedAt();
+    }
+
+    // Changes whenever a product is created, updated or deleted
+    interface CatalogVersion {
+        long getCount();
+        Date getLastUpdatedAt();
+        long getIdSum();
+        long getVersionSum();
+    }
 
     @Query("select p.name from Product p where p.id=?1")
     String findProductNameById(Long id);
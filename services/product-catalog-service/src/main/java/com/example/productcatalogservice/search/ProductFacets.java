@@ -0,0 +1,204 @@
+package com.example.productcatalogservice.search;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Category and price range counts for the whole catalog and per product name,
+ * updated product by product so a facet request never has to scan the catalog.
+ * Categories are counted by id, their names are looked up when the counts are
+ * read, so renaming a category does not need its products indexed again.
+ */
+public class ProductFacets {
+    // Ascending lower bounds, bucket i holds prices in [bounds[i], bounds[i + 1])
+    private final double[] priceBounds;
+
+    private final Counts catalog;
+
+    // Lower cased name -> counts of the products with that name, what an exact name search matches
+    private final Map<String, Counts> byName = new HashMap<>();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Category id -> the name it had on the product indexed last, for categories not found when reading
+    private final Map<Long, String> categoryNames = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Category id -> number of products
+    public record FacetCounts(long total, Map<Long, Long> categories, long[] priceBuckets) {
+    }
+
+    // What a product contributed, so it can be taken out again without the old product
+    private record Entry(String nameKey, Long categoryId, int priceBucket) {
+    }
+
+    private final class Counts {
+        private long total;
+
+        private final Map<Long, Long> categories = new HashMap<>();
+
+        private final long[] priceBuckets = new long[priceBounds.length];
+
+        private void add(Entry entry, int delta) {
+            total += delta;
+            if(entry.categoryId() != null) {
+                categories.merge(entry.categoryId(), (long) delta, (count, change) -> count + change == 0 ? null : count + change);
+            }
+            if(entry.priceBucket() >= 0) {
+                priceBuckets[entry.priceBucket()] += delta;
+            }
+        }
+
+        private FacetCounts snapshot() {
+            return new FacetCounts(total, Map.copyOf(categories), priceBuckets.clone());
+        }
+    }
+
+    public ProductFacets(List<Double> priceBounds) {
+        if(priceBounds.isEmpty()) {
+            throw new IllegalArgumentException("At least one price bound is needed");
+        }
+        this.priceBounds = priceBounds.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        this.catalog = new Counts();
+    }
+
+    public double[] getPriceBounds() {
+        return priceBounds.clone();
+    }
+
+    // Replaces whatever was counted for the same id
+    public void index(Product product) {
+        if(product == null || product.getId() == null) {
+            return;
+        }
+        Category category = product.getCategory();
+        Long categoryId = category != null ? category.getId() : null;
+        Entry entry = new Entry(nameKey(product.getName()), categoryId, priceBucket(product.getPrice()));
+
+        lock.writeLock().lock();
+        try {
+            if(categoryId != null && category.getName() != null) {
+                categoryNames.put(categoryId, category.getName());
+            }
+            removeLocked(product.getId());
+            entries.put(product.getId(), entry);
+            catalog.add(entry, 1);
+            if(entry.nameKey() != null) {
+                byName.computeIfAbsent(entry.nameKey(), key -> new Counts()).add(entry, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            byName.clear();
+            categoryNames.clear();
+            catalog.total = 0;
+            catalog.categories.clear();
+            Arrays.fill(catalog.priceBuckets, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public String categoryName(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            return categoryNames.get(categoryId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public FacetCounts forCatalog() {
+        lock.readLock().lock();
+        try {
+            return catalog.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public FacetCounts forName(String name) {
+        String nameKey = nameKey(name);
+        lock.readLock().lock();
+        try {
+            Counts counts = nameKey != null ? byName.get(nameKey) : null;
+            return counts != null ? counts.snapshot() : new Counts().snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Counts over any set of products, e.g. the matches of a full text query
+    public FacetCounts forProducts(Collection<Long> productIds) {
+        Counts counts = new Counts();
+        lock.readLock().lock();
+        try {
+            for(Long productId : productIds) {
+                Entry entry = entries.get(productId);
+                if(entry != null) {
+                    counts.add(entry, 1);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts.snapshot();
+    }
+
+    private void removeLocked(Long productId) {
+        Entry entry = entries.remove(productId);
+        if(entry == null) {
+            return;
+        }
+        catalog.add(entry, -1);
+        if(entry.nameKey() != null) {
+            Counts counts = byName.get(entry.nameKey());
+            counts.add(entry, -1);
+            if(counts.total == 0) {
+                byName.remove(entry.nameKey());
+            }
+        }
+    }
+
+    // -1 for no price or a price below the first bound
+    private int priceBucket(Double price) {
+        if(price == null) {
+            return -1;
+        }
+        int bucket = -1;
+        for(int i = 0; i < priceBounds.length && price >= priceBounds[i]; i++) {
+            bucket = i;
+        }
+        return bucket;
+    }
+
+    // MySQL compares names case insensitively and ignores trailing spaces
+    private static String nameKey(String name) {
+        return name != null ? name.stripTrailing().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.productcatalogservice.search;
+
+import com.example.productcatalogservice.modals.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Product ids ordered by price then id, for the whole catalog and per category
+ * id, so a renamed category keeps its products. Queries walk skip list views
+ * and stop after limit ids, nothing else is copied. Writes to the same id are serialized, readers never block and may
+ * briefly miss a product that is being moved to its new price.
+ */
+public class ProductPriceIndex {
+    private final NavigableSet<PriceKey> catalog = new ConcurrentSkipListSet<>();
+
+    private final Map<Long, NavigableSet<PriceKey>> byCategory = new ConcurrentHashMap<>();
+
+    // Where each product sits, so a new price can replace the old key
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public record PriceKey(double price, long productId) implements Comparable<PriceKey> {
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(productId, other.productId);
+        }
+    }
+
+    private record Entry(PriceKey key, Long categoryId) {
+    }
+
+    // Products without a price are not indexed
+    public void index(Product product) {
+        if(product == null || product.getId() == null) {
+            return;
+        }
+        if(product.getPrice() == null) {
+            remove(product.getId());
+            return;
+        }
+        PriceKey key = new PriceKey(product.getPrice(), product.getId());
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        entries.compute(product.getId(), (productId, entry) -> {
+            if(entry != null) {
+                unlink(entry);
+            }
+            catalog.add(key);
+            if(categoryId != null) {
+                // Added under the same lock unlink drops empty sets with
+                byCategory.compute(categoryId, (id, keys) -> {
+                    NavigableSet<PriceKey> categoryKeys = keys != null ? keys : new ConcurrentSkipListSet<>();
+                    categoryKeys.add(key);
+                    return categoryKeys;
+                });
+            }
+            return new Entry(key, categoryId);
+        });
+    }
+
+    public void remove(Long productId) {
+        entries.computeIfPresent(productId, (id, entry) -> {
+            unlink(entry);
+            return null;
+        });
+    }
+
+    public void clear() {
+        entries.clear();
+        catalog.clear();
+        byCategory.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Prices between min and max, both inclusive and either may be null for no bound. Null categoryIds
+    // searches the catalog. Without bounds this is the top k, with a category and ascending the cheapest in it
+    public List<Long> range(Double min, Double max, Collection<Long> categoryIds, int limit, boolean descending) {
+        if(min != null && max != null && min > max) {
+            return List.of();
+        }
+        if(categoryIds == null) {
+            return ids(firstKeys(catalog, min, max, limit, descending));
+        }
+        // Categories sharing a name: the first limit keys of each, merged
+        List<PriceKey> keys = new ArrayList<>();
+        for(Long categoryId : categoryIds) {
+            NavigableSet<PriceKey> categoryKeys = byCategory.get(categoryId);
+            if(categoryKeys != null) {
+                keys.addAll(firstKeys(categoryKeys, min, max, limit, descending));
+            }
+        }
+        if(categoryIds.size() > 1) {
+            keys.sort(descending ? Comparator.<PriceKey>reverseOrder() : Comparator.<PriceKey>naturalOrder());
+        }
+        return ids(keys.size() > limit ? keys.subList(0, limit) : keys);
+    }
+
+    private void unlink(Entry entry) {
+        catalog.remove(entry.key());
+        if(entry.categoryId() != null) {
+            byCategory.computeIfPresent(entry.categoryId(), (id, keys) -> {
+                keys.remove(entry.key());
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static List<PriceKey> firstKeys(NavigableSet<PriceKey> keys, Double min, Double max, int limit, boolean descending) {
+        if(min != null) {
+            keys = keys.tailSet(new PriceKey(min, Long.MIN_VALUE), true);
+        }
+        if(max != null) {
+            keys = keys.headSet(new PriceKey(max, Long.MAX_VALUE), true);
+        }
+        List<PriceKey> firstKeys = new ArrayList<>(Math.min(limit, 64));
+        for(PriceKey key : descending ? keys.descendingSet() : keys) {
+            if(firstKeys.size() >= limit) {
+                break;
+            }
+            firstKeys.add(key);
+        }
+        return firstKeys;
+    }
+
+    private static List<Long> ids(List<PriceKey> keys) {
+        List<Long> productIds = new ArrayList<>(keys.size());
+        for(PriceKey key : keys) {
+            productIds.add(key.productId());
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.productcatalogservice.search;
+
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.modals.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over product name, category name and description, ranked
+ * with BM25. A query term matches its exact posting list, any indexed term it
+ * is a prefix of and, when neither exists, terms within a small edit distance.
+ */
+public class ProductTextIndex {
+    // BM25 saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A name hit counts three times a description hit
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    // Looser matches rank below exact ones
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final double FUZZY_FACTOR = 0.5;
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_EXPANSIONS = 64;
+
+    // term -> product id -> field weighted term frequency
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+
+    // Sorted view of the posting keys for prefix and fuzzy lookups
+    private final NavigableSet<String> terms = new TreeSet<>();
+
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+
+    private double totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public record ScoredProduct(Product product, double score) {
+    }
+
+    private record IndexedProduct(Product product, Map<String, Float> termFrequencies, float length) {
+    }
+
+    // Replaces whatever was indexed for the same id, deleted products are only removed
+    public void index(Product product) {
+        if(product == null || product.getId() == null) {
+            return;
+        }
+        if(product.getState() == State.DELETED) {
+            remove(product.getId());
+            return;
+        }
+
+        Map<String, Float> termFrequencies = new HashMap<>();
+        float length = addTerms(termFrequencies, product.getName(), NAME_WEIGHT)
+                + addTerms(termFrequencies, product.getCategory() != null ? product.getCategory().getName() : null, CATEGORY_WEIGHT)
+                + addTerms(termFrequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            for(Map.Entry<String, Float> term : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> {
+                    terms.add(key);
+                    return new HashMap<>();
+                }).put(product.getId(), term.getValue());
+            }
+            products.put(product.getId(), new IndexedProduct(product, termFrequencies, length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            terms.clear();
+            products.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every product matching at least one query term, best score first and ties by id
+    public List<ScoredProduct> search(String query) {
+        List<String> queryTerms = Tokenizer.tokenize(query);
+        List<ScoredProduct> results = new ArrayList<>();
+        if(queryTerms.isEmpty()) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            if(products.isEmpty()) {
+                return results;
+            }
+            double averageLength = totalLength / products.size();
+            Map<Long, Double> scores = new HashMap<>();
+            for(String queryTerm : queryTerms) {
+                // A product gets the best of the expansions of a query term, not their sum
+                Map<Long, Double> termScores = new HashMap<>();
+                for(Map.Entry<String, Double> expansion : expand(queryTerm).entrySet()) {
+                    Map<Long, Float> postingList = postings.get(expansion.getKey());
+                    double idf = idf(postingList.size());
+                    for(Map.Entry<Long, Float> posting : postingList.entrySet()) {
+                        double score = expansion.getValue() * idf
+                                * bm25(posting.getValue(), products.get(posting.getKey()).length(), averageLength);
+                        termScores.merge(posting.getKey(), score, Math::max);
+                    }
+                }
+                termScores.forEach((productId, score) -> scores.merge(productId, score, Double::sum));
+            }
+            for(Map.Entry<Long, Double> score : scores.entrySet()) {
+                results.add(new ScoredProduct(products.get(score.getKey()).product(), score.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        results.sort((first, second) -> {
+            int byScore = Double.compare(second.score(), first.score());
+            return byScore != 0 ? byScore : first.product().getId().compareTo(second.product().getId());
+        });
+        return results;
+    }
+
+    // Indexed terms the query term stands for, each with the factor its score is scaled by
+    private Map<String, Double> expand(String queryTerm) {
+        Map<String, Double> expansions = new HashMap<>();
+        if(terms.contains(queryTerm)) {
+            expansions.put(queryTerm, 1.0);
+        }
+
+        if(queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            for(String term : terms.subSet(queryTerm, false, queryTerm + Character.MAX_VALUE, false)) {
+                if(expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                expansions.put(term, PREFIX_FACTOR);
+            }
+        }
+
+        // Typos are only looked for when nothing matched, and only among terms sharing the first letter
+        if(expansions.isEmpty() && queryTerm.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = queryTerm.length() >= 8 ? 2 : 1;
+            String first = queryTerm.substring(0, 1);
+            for(String term : terms.subSet(first, true, first + Character.MAX_VALUE, false)) {
+                if(expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                if(Math.abs(term.length() - queryTerm.length()) <= maxEdits
+                        && editDistance(queryTerm, term, maxEdits) <= maxEdits) {
+                    expansions.put(term, FUZZY_FACTOR);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    private void removeLocked(Long productId) {
+        IndexedProduct indexedProduct = products.remove(productId);
+        if(indexedProduct == null) {
+            return;
+        }
+        for(String term : indexedProduct.termFrequencies().keySet()) {
+            Map<Long, Float> postingList = postings.get(term);
+            postingList.remove(productId);
+            if(postingList.isEmpty()) {
+                postings.remove(term);
+                terms.remove(term);
+            }
+        }
+        totalLength -= indexedProduct.length();
+    }
+
+    private static float addTerms(Map<String, Float> termFrequencies, String text, float weight) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        for(String token : tokens) {
+            termFrequencies.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (products.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double bm25(float termFrequency, float length, double averageLength) {
+        return termFrequency * (K1 + 1) / (termFrequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // Levenshtein distance, giving up with maxEdits + 1 as soon as a row exceeds maxEdits
+    static int editDistance(String first, String second, int maxEdits) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for(int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for(int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for(int j = 1; j <= second.length(); j++) {
+                int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+}
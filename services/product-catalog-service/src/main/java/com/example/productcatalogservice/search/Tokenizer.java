@@ -0,0 +1,51 @@
+package com.example.productcatalogservice.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower case, accent free terms. Plurals are folded to the
+ * singular so "phones" and "phone" end up on the same posting list.
+ */
+public final class Tokenizer {
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "by", "for", "from", "in",
+            "is", "it", "of", "on", "or", "the", "to", "with");
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if(text == null || text.isBlank()) {
+            return terms;
+        }
+
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for(String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if(!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String token) {
+        int length = token.length();
+        if(length > 4 && token.endsWith("ies")) {
+            return token.substring(0, length - 3) + "y";
+        }
+        if(length > 3 && token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us")) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+}
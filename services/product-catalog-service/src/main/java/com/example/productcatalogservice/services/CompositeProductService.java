@@ -0,0 +1,296 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.dtos.BulkItemResultDto;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Reads from MySQL/Redis first and from FakeStore when the product is not
+ * found locally, lists are merged from both with local products winning.
+ * Every source has its own deadline, and products found only in FakeStore
+ * are copied into the local store in the background. Writes only go to the
+ * local store.
+ */
+@Service("composite-product-service")
+public class CompositeProductService implements IProductService {
+    private static final Logger logger = LoggerFactory.getLogger(CompositeProductService.class);
+
+    @Autowired
+    @Qualifier("storage-product-service")
+    private IProductService localProductService;
+
+    @Autowired
+    @Qualifier("fake-store-service")
+    private IAsyncProductService remoteProductService;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Value("${products.composite.local-timeout-ms:500}")
+    private long localTimeoutMs;
+
+    // The whole local catalog, read in one query, takes far longer than a lookup by id
+    @Value("${products.composite.local-list-timeout-ms:10000}")
+    private long localListTimeoutMs;
+
+    @Value("${products.composite.remote-timeout-ms:2000}")
+    private long remoteTimeoutMs;
+
+    @Value("${products.composite.threads:8}")
+    private int threads;
+
+    @Value("${products.composite.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Backfills are best effort, they are dropped when the queue is full and tried again on the next miss
+    private ThreadPoolExecutor backfillExecutor;
+
+    private final Set<Long> backfilling = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        // A full queue runs the lookup on the caller thread, which slows callers down instead of failing them
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("composite-lookup-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        backfillExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("composite-backfill-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        backfillExecutor.shutdown();
+    }
+
+    @Override
+    public Product getProductById(Long id) {
+        Product product = await(CompletableFuture
+                .supplyAsync(() -> localProductService.getProductById(id), executor)
+                .orTimeout(localTimeoutMs, TimeUnit.MILLISECONDS), "local lookup of product " + id);
+        if(product != null) {
+            return product;
+        }
+
+        product = await(remoteProductService.getProductByIdAsync(id)
+                .orTimeout(remoteTimeoutMs, TimeUnit.MILLISECONDS), "FakeStore lookup of product " + id);
+        if(product != null) {
+            backfill(product);
+        }
+        return product;
+    }
+
+    // One local multi-get, then FakeStore for just the ids that were not found locally
+    @Override
+    public List<Product> getProductsByIds(List<Long> ids) {
+        List<Product> localProducts = await(CompletableFuture
+                .supplyAsync(() -> localProductService.getProductsByIds(ids), executor)
+                .orTimeout(localTimeoutMs, TimeUnit.MILLISECONDS), "local lookup of " + ids.size() + " products");
+        Map<Long, Product> products = new HashMap<>();
+        if(localProducts != null) {
+            localProducts.forEach(product -> products.put(product.getId(), product));
+        }
+
+        List<Long> missingIds = ids.stream().distinct().filter(id -> !products.containsKey(id)).toList();
+        if(!missingIds.isEmpty()) {
+            List<CompletableFuture<Product>> remoteProducts = missingIds.stream()
+                    .map(id -> remoteProductService.getProductByIdAsync(id)
+                            .orTimeout(remoteTimeoutMs, TimeUnit.MILLISECONDS))
+                    .toList();
+            for(int i = 0; i < missingIds.size(); i++) {
+                Product product = await(remoteProducts.get(i), "FakeStore lookup of product " + missingIds.get(i));
+                if(product != null) {
+                    products.put(product.getId(), product);
+                    backfill(product);
+                }
+            }
+        }
+        return ids.stream().distinct().map(products::get).filter(Objects::nonNull).toList();
+    }
+
+    // Both sources are asked at once, a failed or late FakeStore answer leaves just the local products
+    @Override
+    public List<Product> getAllProducts() {
+        CompletableFuture<List<Product>> remoteProducts = remoteProductService.getAllProductsAsync()
+                .orTimeout(remoteTimeoutMs, TimeUnit.MILLISECONDS);
+        List<Product> localProducts = join(CompletableFuture
+                .supplyAsync(localProductService::getAllProducts, executor)
+                .orTimeout(localListTimeoutMs, TimeUnit.MILLISECONDS));
+
+        List<Product> products = new ArrayList<>(localProducts);
+        List<Product> otherProducts = await(remoteProducts, "FakeStore product list");
+        if(otherProducts != null) {
+            Set<Long> localIds = new HashSet<>();
+            localProducts.forEach(product -> localIds.add(product.getId()));
+            for(Product product : otherProducts) {
+                if(!localIds.contains(product.getId())) {
+                    products.add(product);
+                }
+            }
+        }
+        return products;
+    }
+
+    // Local products are versioned, FakeStore ones are not, so neither is a list that mixes both
+    @Override
+    public String getProductVersion(Long id) {
+        return localProductService.getProductVersion(id);
+    }
+
+    @Override
+    public String getCatalogVersion() {
+        return null;
+    }
+
+    // Only the ids of local products are kept in memory, not the products
+    @Override
+    public void forEachProduct(Consumer<Product> action) {
+        CompletableFuture<List<Product>> remoteProducts = remoteProductService.getAllProductsAsync()
+                .orTimeout(remoteTimeoutMs, TimeUnit.MILLISECONDS);
+        Set<Long> localIds = new HashSet<>();
+        localProductService.forEachProduct(product -> {
+            localIds.add(product.getId());
+            action.accept(product);
+        });
+
+        List<Product> otherProducts = await(remoteProducts, "FakeStore product list");
+        if(otherProducts != null) {
+            for(Product product : otherProducts) {
+                if(!localIds.contains(product.getId())) {
+                    action.accept(product);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Product updateProduct(Long id, Product product) {
+        return localProductService.updateProduct(id, product);
+    }
+
+    @Override
+    public String patchProduct(Long id, Long version, Product changes) {
+        return localProductService.patchProduct(id, version, changes);
+    }
+
+    @Override
+    public Boolean deleteProduct(Long id) {
+        return localProductService.deleteProduct(id);
+    }
+
+    @Override
+    public Product createProduct(Product product) {
+        return localProductService.createProduct(product);
+    }
+
+    @Override
+    public List<BulkItemResultDto> createProducts(List<Product> products) {
+        return localProductService.createProducts(products);
+    }
+
+    @Override
+    public List<BulkItemResultDto> updateProducts(List<Product> products) {
+        return localProductService.updateProducts(products);
+    }
+
+    @Override
+    public List<BulkItemResultDto> deleteProducts(List<Long> ids) {
+        return localProductService.deleteProducts(ids);
+    }
+
+    // Copies a FakeStore product into MySQL and Redis, the category is matched by name as FakeStore has no category ids
+    private void backfill(Product remoteProduct) {
+        if(!backfilling.add(remoteProduct.getId())) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                Product product = new Product();
+                product.setId(remoteProduct.getId());
+                product.setName(remoteProduct.getName());
+                product.setDescription(remoteProduct.getDescription());
+                product.setImageUrl(remoteProduct.getImageUrl());
+                product.setPrice(remoteProduct.getPrice());
+                product.setIsPrime(remoteProduct.getIsPrime());
+                Category category = remoteProduct.getCategory();
+                if(category != null && category.getName() != null) {
+                    product.setCategory(categoryRepo.findFirstByName(category.getName()).orElse(null));
+                }
+                productCache.put(localProductService.createProduct(product));
+            } catch (RuntimeException exception) {
+                logger.warn("Backfill of FakeStore product {} failed", remoteProduct.getId(), exception);
+            } finally {
+                backfilling.remove(remoteProduct.getId());
+            }
+        };
+        try {
+            backfillExecutor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            backfilling.remove(remoteProduct.getId());
+        }
+    }
+
+    // A source that fails or misses its deadline counts as not having the product
+    private static <T> T await(CompletableFuture<T> future, String description) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            logger.warn("{} failed: {}", description, exception.getCause().toString());
+            return null;
+        }
+    }
+
+    // The local store is the system of record, its failures are the caller's failures
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
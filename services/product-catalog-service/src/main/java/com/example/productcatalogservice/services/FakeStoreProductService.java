@@ -1,85 +1,98 @@
 package com.example.productcatalogservice.services;
 
+import com.example.productcatalogservice.clients.FakeStoreApiClient;
+import com.example.productcatalogservice.clients.UpstreamSnapshot;
+import com.example.productcatalogservice.dtos.BulkItemResultDto;
+import com.example.productcatalogservice.dtos.BulkItemStatus;
 import com.example.productcatalogservice.dtos.FakeStoreProductDto;
 import com.example.productcatalogservice.modals.Category;
 import com.example.productcatalogservice.modals.Product;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.*;
-import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RequestCallback;
-import org.springframework.web.client.ResponseExtractor;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service("fake-store-service")
 //@Primary
-public class FakeStoreProductService implements IProductService {
+public class FakeStoreProductService implements IProductService, IAsyncProductService {
 
     @Autowired
-    private RestTemplateBuilder restTemplateBuilder;
+    private FakeStoreApiClient fakeStoreApiClient;
+
+    // The whole upstream catalog, refreshed in the background instead of downloaded per call
+    private UpstreamSnapshot<FakeStoreProductDto[], List<Product>> catalogSnapshot;
+
+    @PostConstruct
+    void init() {
+        catalogSnapshot = new UpstreamSnapshot<>(fakeStoreApiClient, "/products", FakeStoreProductDto[].class, this::from);
+    }
+
+    // Doesn't block the scheduler thread, a refresh still running is not started twice
+    @Scheduled(fixedDelayString = "${fakestore.snapshot.refresh-interval-ms:300000}")
+    public void refreshCatalogSnapshot() {
+        catalogSnapshot.refresh();
+    }
 
     @Override
     public Product getProductById(Long id){
-        RestTemplate restTemplate = restTemplateBuilder.build();
-        String url = "https://fakestoreapi.com/products/" + id;
-      ResponseEntity<FakeStoreProductDto> fakeStoreProductDto = restTemplate.getForEntity(url, FakeStoreProductDto.class, id);
-      if(fakeStoreProductDto.getBody() != null && fakeStoreProductDto.getStatusCode().equals(HttpStatusCode.valueOf(200))) {
-          return from(fakeStoreProductDto.getBody());
-      }
-       return null;
+        return await(getProductByIdAsync(id));
+    }
+
+    // FakeStore has no multi-get, the ids are fetched concurrently
+    @Override
+    public List<Product> getProductsByIds(List<Long> ids) {
+        List<CompletableFuture<Product>> products = ids.stream().distinct().map(this::getProductByIdAsync).toList();
+        return await(CompletableFuture.allOf(products.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> products.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList()));
     }
 
     @Override
     public List<Product> getAllProducts() {
-        RestTemplate restTemplate = restTemplateBuilder.build();
-        String url = "http://fakestoreapi.com/products/";
-        ResponseEntity<FakeStoreProductDto[]> response = restTemplate.getForEntity(url, FakeStoreProductDto[].class);
-        if(response.getBody() != null && response.getStatusCode() == HttpStatus.OK) {
-            FakeStoreProductDto[] fakeStoreProducts = response.getBody();
-            List<Product> products = new ArrayList<>();
-            for(FakeStoreProductDto fakeStoreProductDto : fakeStoreProducts) {
-                Product product = from(fakeStoreProductDto);
-                products.add(product);
-            }
-            return products;
+        return await(getAllProductsAsync());
+    }
+
+    @Override
+    public void forEachProduct(Consumer<Product> action) {
+        List<Product> products = getAllProducts();
+        if(products != null) {
+            products.forEach(action);
         }
+    }
+
+    // FakeStore has no timestamps or versions, its products are never answered with 304
+    @Override
+    public String getProductVersion(Long id) {
         return null;
     }
 
     @Override
-    public Product updateProduct(Long id, Product product) {
-        RestTemplate restTemplate = restTemplateBuilder.build();
-        String url = "http://fakestoreapi.com/products/" + id;
+    public String getCatalogVersion() {
+        return null;
+    }
 
-        // make sure the product carries the right ID
-        product.setId(id);
+    @Override
+    public Product updateProduct(Long id, Product product) {
+        return await(updateProductAsync(id, product));
+    }
 
-        // map domain → DTO
-        FakeStoreProductDto dtoRequest = toDto(product);
-        // perform the PUT
-        ResponseEntity<FakeStoreProductDto> response = requestForEntity(
-                url,
-                HttpMethod.PUT,
-                dtoRequest,
-                FakeStoreProductDto.class,
-                id
-        );
-
-        // on success, map DTO → domain
-         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-             FakeStoreProductDto output = response.getBody();
-                return from(output);
-         }
-        // handle failure as you prefer
+    @Override
+    public Product createProduct(Product product) {
         return null;
     }
 
+    // Without versions there is nothing to patch conditionally
     @Override
-    public Product createProduct(Product product) {
+    public String patchProduct(Long id, Long version, Product changes) {
         return null;
     }
 
@@ -88,24 +101,100 @@ public class FakeStoreProductService implements IProductService {
         return null;
     }
 
-    public <T> ResponseEntity<T> requestForEntity(String url, HttpMethod httpMethod, @Nullable Object request, Class<T> responseType, Object... uriVariables) throws RestClientException {
-        RestTemplate restTemplate =  restTemplateBuilder.build();
-        RequestCallback requestCallback = restTemplate.httpEntityCallback(request, responseType);
-        ResponseExtractor<ResponseEntity<T>> responseExtractor = restTemplate.responseEntityExtractor(responseType);
-        return restTemplate.execute(url, httpMethod, requestCallback, responseExtractor, uriVariables);
+    @Override
+    public CompletableFuture<Product> getProductByIdAsync(Long id) {
+        return fakeStoreApiClient.get("/products/" + id, FakeStoreProductDto.class)
+                .thenApply(fakeStoreProductDto -> fakeStoreProductDto != null ? from(fakeStoreProductDto) : null);
     }
 
+    @Override
+    public CompletableFuture<List<Product>> getAllProductsAsync() {
+        return catalogSnapshot.get();
+    }
+
+    @Override
+    public CompletableFuture<Product> updateProductAsync(Long id, Product product) {
+        // make sure the product carries the right ID
+        product.setId(id);
+        return fakeStoreApiClient.put("/products/" + id, toDto(product), FakeStoreProductDto.class)
+                .thenApply(fakeStoreProductDto -> fakeStoreProductDto != null ? from(fakeStoreProductDto) : null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteProductAsync(Long id) {
+        return CompletableFuture.completedFuture(deleteProduct(id));
+    }
+
+    @Override
+    public CompletableFuture<Product> createProductAsync(Product product) {
+        return CompletableFuture.completedFuture(createProduct(product));
+    }
+
+    // FakeStore has no bulk API, items are sent one by one
+    @Override
+    public List<BulkItemResultDto> createProducts(List<Product> products) {
+        List<BulkItemResultDto> results = new ArrayList<>();
+        for(Product product : products) {
+            results.add(createProduct(product) != null
+                    ? BulkItemResultDto.of(product.getId(), BulkItemStatus.CREATED)
+                    : BulkItemResultDto.failed(product.getId(), "create is not supported"));
+        }
+        return results;
+    }
+
+    @Override
+    public List<BulkItemResultDto> updateProducts(List<Product> products) {
+        List<BulkItemResultDto> results = new ArrayList<>();
+        for(Product product : products) {
+            results.add(BulkItemResultDto.of(product.getId(), updateProduct(product.getId(), product) != null
+                    ? BulkItemStatus.UPDATED : BulkItemStatus.NOT_FOUND));
+        }
+        return results;
+    }
+
+    @Override
+    public List<BulkItemResultDto> deleteProducts(List<Long> ids) {
+        List<BulkItemResultDto> results = new ArrayList<>();
+        for(Long id : ids) {
+            results.add(Boolean.TRUE.equals(deleteProduct(id))
+                    ? BulkItemResultDto.of(id, BulkItemStatus.DELETED)
+                    : BulkItemResultDto.failed(id, "delete is not supported"));
+        }
+        return results;
+    }
+
+    private List<Product> from(FakeStoreProductDto[] fakeStoreProducts) {
+        if(fakeStoreProducts == null) {
+            return null;
+        }
+        // FakeStore has a handful of categories, products of one category share its Category
+        Map<String, Category> categories = new HashMap<>();
+        List<Product> products = new ArrayList<>(fakeStoreProducts.length);
+        for(FakeStoreProductDto fakeStoreProductDto : fakeStoreProducts) {
+            Product product = from(fakeStoreProductDto, categories);
+            products.add(product);
+        }
+        return Collections.unmodifiableList(products);
+    }
 
     private Product from(FakeStoreProductDto fakeStoreProductDto) {
+        return from(fakeStoreProductDto, new HashMap<>(1));
+    }
+
+    private Product from(FakeStoreProductDto fakeStoreProductDto, Map<String, Category> categories) {
         Product product = new Product();
         product.setId(fakeStoreProductDto.getId());
         product.setName(fakeStoreProductDto.getTitle());
         product.setDescription(fakeStoreProductDto.getDescription());
         product.setPrice(fakeStoreProductDto.getPrice());
         product.setImageUrl(fakeStoreProductDto.getImage());
-        Category category = new Category();
-        category.setName(fakeStoreProductDto.getCategory());
-        product.setCategory(category);
+        product.setCreatedAt(null);
+        product.setUpdatedAt(null);
+        product.setCategory(categories.computeIfAbsent(fakeStoreProductDto.getCategory(), name -> {
+            Category category = new Category();
+            category.setName(name);
+            return category;
+        }));
         return product;
     }
 
@@ -124,4 +213,16 @@ public class FakeStoreProductService implements IProductService {
         dto.setImage(product.getImageUrl());
         return dto;
     }
+
+    // Blocking callers get the upstream failure itself rather than a CompletionException
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
 }
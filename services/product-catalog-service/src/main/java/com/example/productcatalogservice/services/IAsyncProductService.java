@@ -0,0 +1,15 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.Product;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking variants of IProductService for sources behind a network call
+public interface IAsyncProductService {
+    CompletableFuture<Product> getProductByIdAsync(Long id);
+    CompletableFuture<List<Product>> getAllProductsAsync();
+    CompletableFuture<Product> updateProductAsync(Long id, Product product);
+    CompletableFuture<Boolean> deleteProductAsync(Long id);
+    CompletableFuture<Product> createProductAsync(Product product);
+}
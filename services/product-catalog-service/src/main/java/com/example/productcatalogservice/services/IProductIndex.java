@@ -0,0 +1,33 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.Product;
+
+import java.util.function.Consumer;
+
+// An in-memory view of the catalog kept up to date by ProductIndexMaintainer
+public interface IProductIndex {
+    void index(Product product);
+    void remove(Long productId);
+
+    // Starts an empty copy for a full rebuild, queries keep reading the current one until it is swapped in
+    Rebuild rebuild();
+
+    interface Rebuild {
+        void index(Product product);
+        void swap();
+
+        static Rebuild of(Consumer<Product> indexer, Runnable swapper) {
+            return new Rebuild() {
+                @Override
+                public void index(Product product) {
+                    indexer.accept(product);
+                }
+
+                @Override
+                public void swap() {
+                    swapper.run();
+                }
+            };
+        }
+    }
+}
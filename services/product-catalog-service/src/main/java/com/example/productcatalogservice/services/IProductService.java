@@ -1,13 +1,33 @@
 package com.example.productcatalogservice.services;
 
+import com.example.productcatalogservice.dtos.BulkItemResultDto;
 import com.example.productcatalogservice.modals.Product;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IProductService {
     Product getProductById(Long id);
+    // Products that exist, in the order of their first id in ids
+    List<Product> getProductsByIds(List<Long> ids);
     List<Product> getAllProducts();
+    // Changes whenever the product or the catalog changes, null when the source has no versions
+    String getProductVersion(Long id);
+    String getCatalogVersion();
+    // The whole catalog with the version it was read at, the version is null when getCatalogVersion is
+    default Catalog getCatalog() {
+        return new Catalog(getCatalogVersion(), getAllProducts());
+    }
+    void forEachProduct(Consumer<Product> action);
     Product updateProduct(Long id, Product product);
+    // Only if the product is still at version, returns the new version or null for an unknown id
+    String patchProduct(Long id, Long version, Product changes);
     Boolean deleteProduct(Long id);
     Product createProduct(Product product);
+    List<BulkItemResultDto> createProducts(List<Product> products);
+    List<BulkItemResultDto> updateProducts(List<Product> products);
+    List<BulkItemResultDto> deleteProducts(List<Long> ids);
+
+    record Catalog(String version, List<Product> products) {
+    }
 }
@@ -1,5 +1,7 @@
 package com.example.productcatalogservice.services;
 
+import com.example.productcatalogservice.dtos.CursorPageDto;
+import com.example.productcatalogservice.dtos.SearchFacetsDto;
 import com.example.productcatalogservice.dtos.SearchRequestDto;
 import com.example.productcatalogservice.dtos.SortParam;
 import com.example.productcatalogservice.modals.Product;
@@ -10,4 +12,9 @@ import java.util.List;
 
 public interface ISearchService {
     Page<Product> searchProducts(String query, Integer pageNumber, Integer pageSize, List<SortParam> sortParams);
+
+    CursorPageDto<Product> scrollProducts(String query, String cursor, Integer pageSize, List<SortParam> sortParams);
+
+    // Category and price range counts over everything the query matches
+    SearchFacetsDto getFacets(String query);
 }
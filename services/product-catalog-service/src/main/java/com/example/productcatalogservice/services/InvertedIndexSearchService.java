@@ -0,0 +1,149 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.dtos.CursorPageDto;
+import com.example.productcatalogservice.dtos.SearchFacetsDto;
+import com.example.productcatalogservice.dtos.SortParam;
+import com.example.productcatalogservice.dtos.SortType;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.search.ProductTextIndex;
+import com.example.productcatalogservice.search.ProductTextIndex.ScoredProduct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Full text search answered from the in-memory ProductTextIndex, results are
+ * ranked by relevance unless sortParams ask for something else.
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "index")
+public class InvertedIndexSearchService implements ISearchService, IProductIndex {
+    private volatile ProductTextIndex productTextIndex = new ProductTextIndex();
+
+    @Autowired(required = false)
+    private ProductFacetService productFacetService;
+
+    @Override
+    public Page<Product> searchProducts(String query, Integer pageNumber, Integer pageSize, List<SortParam> sortParams) {
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+        List<Product> products = search(query, sortParams);
+
+        int from = (int) Math.min(pageRequest.getOffset(), products.size());
+        int to = Math.min(from + pageSize, products.size());
+        return new PageImpl<>(products.subList(from, to), pageRequest, products.size());
+    }
+
+    // The cursor is the offset of the next result, the index is in memory so there is no OFFSET scan to avoid
+    @Override
+    public CursorPageDto<Product> scrollProducts(String query, String cursor, Integer pageSize, List<SortParam> sortParams) {
+        if(pageSize == null || pageSize <= 0) {
+            throw new IllegalArgumentException("Please pass pageSize greater than 0");
+        }
+
+        List<Product> products = search(query, sortParams);
+        int from = Math.min(decodeOffset(cursor), products.size());
+        int to = Math.min(from + pageSize, products.size());
+
+        CursorPageDto<Product> page = new CursorPageDto<>();
+        page.setContent(products.subList(from, to));
+        page.setHasNext(to < products.size());
+        if(page.isHasNext()) {
+            page.setNextCursor(encodeOffset(to));
+        }
+        return page;
+    }
+
+    @Override
+    public SearchFacetsDto getFacets(String query) {
+        ProductFacetService facetService = ProductFacetService.require(productFacetService);
+        List<Long> productIds = productTextIndex.search(query).stream()
+                .map(scoredProduct -> scoredProduct.product().getId())
+                .toList();
+        return facetService.facetsForProducts(query, productIds);
+    }
+
+    @Override
+    public void index(Product product) {
+        productTextIndex.index(product);
+    }
+
+    @Override
+    public void remove(Long productId) {
+        productTextIndex.remove(productId);
+    }
+
+    @Override
+    public Rebuild rebuild() {
+        ProductTextIndex rebuilt = new ProductTextIndex();
+        return Rebuild.of(rebuilt::index, () -> productTextIndex = rebuilt);
+    }
+
+    private List<Product> search(String query, List<SortParam> sortParams) {
+        List<ScoredProduct> results = productTextIndex.search(query);
+        if(sortParams != null && !sortParams.isEmpty()) {
+            results.sort(toComparator(sortParams));
+        }
+        return results.stream().map(ScoredProduct::product).toList();
+    }
+
+    // Relevance and id break ties between equal sort keys so pages stay stable
+    private Comparator<ScoredProduct> toComparator(List<SortParam> sortParams) {
+        Comparator<ScoredProduct> comparator = null;
+        for(SortParam sortParam : sortParams) {
+            Comparator<ScoredProduct> next = comparatorFor(sortParam.getParamName());
+            if(sortParam.getSortType() == SortType.DESC) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator
+                .thenComparing(Comparator.comparingDouble(ScoredProduct::score).reversed())
+                .thenComparing(scoredProduct -> scoredProduct.product().getId());
+    }
+
+    private Comparator<ScoredProduct> comparatorFor(String paramName) {
+        return switch (paramName) {
+            case "score" -> Comparator.comparingDouble(ScoredProduct::score);
+            case "id" -> byProduct(Product::getId);
+            case "name" -> byProduct(Product::getName);
+            case "price" -> byProduct(Product::getPrice);
+            case "createdAt" -> byProduct(Product::getCreatedAt);
+            case "updatedAt" -> byProduct(Product::getUpdatedAt);
+            default -> throw new IllegalArgumentException("Sorting by " + paramName + " is not supported");
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<ScoredProduct> byProduct(Function<Product, T> key) {
+        return Comparator.comparing(scoredProduct -> key.apply(scoredProduct.product()),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Integer.toString(offset).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int decodeOffset(String cursor) {
+        if(cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            if(offset < 0) {
+                throw new IllegalArgumentException();
+            }
+            return offset;
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Please pass the cursor returned by the previous search");
+        }
+    }
+}
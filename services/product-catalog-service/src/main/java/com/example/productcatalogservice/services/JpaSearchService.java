@@ -1,45 +1,84 @@
 package com.example.productcatalogservice.services;
 
+import com.example.productcatalogservice.dtos.CursorPageDto;
+import com.example.productcatalogservice.dtos.SearchFacetsDto;
 import com.example.productcatalogservice.dtos.SortParam;
 import com.example.productcatalogservice.dtos.SortType;
 import com.example.productcatalogservice.modals.Product;
 import com.example.productcatalogservice.repos.ProductRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "jpa", matchIfMissing = true)
 public class JpaSearchService implements ISearchService{
     @Autowired
     private ProductRepo productRepo;
 
+    @Autowired(required = false)
+    private ProductFacetService productFacetService;
+
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Product> searchProducts(String query, Integer pageNumber, Integer pageSize, List<SortParam> sortParams) {
         //Sort sort = Sort.by("price").descending().and(Sort.by("id"));
 
-        Sort sort = null;
+        Page<Product> products = productRepo.findByNameEquals(query,
+                PageRequest.of(pageNumber,pageSize,toSort(sortParams)));
+        return products;
+    }
 
-        if(!sortParams.isEmpty()) {
-            if(sortParams.get(0).getSortType().equals(SortType.ASC))
-                sort = Sort.by(sortParams.get(0).getParamName());
-            else
-                sort = Sort.by(sortParams.get(0).getParamName()).descending();
+    // Counted in memory for the exact name the search matches, MySQL is not queried
+    @Override
+    public SearchFacetsDto getFacets(String query) {
+        return ProductFacetService.require(productFacetService).facetsForName(query);
+    }
+
+    // Seeks past the last row of the previous page instead of using OFFSET, and runs no count query
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<Product> scrollProducts(String query, String cursor, Integer pageSize, List<SortParam> sortParams) {
+        if(pageSize == null || pageSize <= 0) {
+            throw new IllegalArgumentException("Please pass pageSize greater than 0");
         }
 
-        for(int i=1;i<sortParams.size();i++) {
-            if(sortParams.get(i).getSortType().equals(SortType.ASC))
-                sort = sort.and(Sort.by(sortParams.get(i).getParamName()));
-            else
-                sort = sort.and(Sort.by(sortParams.get(i).getParamName()).descending());
+        // id keeps the sort key unique, otherwise rows with equal keys could be skipped
+        Sort sort = toSort(sortParams);
+        if(sort.getOrderFor("id") == null) {
+            sort = sort.and(Sort.by("id"));
         }
 
-        Page<Product> products = productRepo.findByNameEquals(query,
-                PageRequest.of(pageNumber,pageSize,sort));
-        return products;
+        ScrollPosition position = KeysetCursor.decode(cursor, sort);
+        Window<Product> window = productRepo.findByNameEquals(query, position, sort, Limit.of(pageSize));
+
+        CursorPageDto<Product> page = new CursorPageDto<>();
+        page.setContent(window.getContent());
+        page.setHasNext(window.hasNext());
+        if(window.hasNext() && !window.isEmpty()) {
+            page.setNextCursor(KeysetCursor.encode(window.positionAt(window.size() - 1)));
+        }
+        return page;
+    }
+
+    private Sort toSort(List<SortParam> sortParams) {
+        Sort sort = Sort.unsorted();
+        for(SortParam sortParam : sortParams) {
+            if(sortParam.getSortType().equals(SortType.ASC))
+                sort = sort.and(Sort.by(sortParam.getParamName()));
+            else
+                sort = sort.and(Sort.by(sortParam.getParamName()).descending());
+        }
+        return sort;
     }
 }
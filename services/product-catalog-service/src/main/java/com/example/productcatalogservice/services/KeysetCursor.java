@@ -0,0 +1,107 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.State;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opaque continuation token for keyset search: the sort key values of the
+ * last row of a page, each tagged with its type so the next query binds
+ * them with the same type as the entity attribute.
+ */
+final class KeysetCursor {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private KeysetCursor() {
+    }
+
+    static String encode(ScrollPosition position) {
+        if(!(position instanceof KeysetScrollPosition keysetPosition)) {
+            throw new IllegalStateException("Only keyset positions can be turned into a cursor");
+        }
+        Map<String, String> keys = new LinkedHashMap<>();
+        for(Map.Entry<String, Object> key : keysetPosition.getKeys().entrySet()) {
+            keys.put(key.getKey(), toTaggedValue(key.getValue()));
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(keys);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not write search cursor", exception);
+        }
+    }
+
+    // A missing cursor starts from the first row, a cursor built for another sort is rejected
+    static ScrollPosition decode(String cursor, Sort sort) {
+        if(cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, String> taggedKeys;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            taggedKeys = objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, String>>() {});
+        } catch (IllegalArgumentException | IOException exception) {
+            throw new IllegalArgumentException("Please pass the cursor returned by the previous search");
+        }
+
+        Set<String> sortProperties = new HashSet<>();
+        sort.forEach(order -> sortProperties.add(order.getProperty()));
+        if(!sortProperties.equals(taggedKeys.keySet())) {
+            throw new IllegalArgumentException("Cursor does not match the sort params of this search");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for(Map.Entry<String, String> taggedKey : taggedKeys.entrySet()) {
+            keys.put(taggedKey.getKey(), fromTaggedValue(taggedKey.getValue()));
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static String toTaggedValue(Object value) {
+        if(value == null) return "N:";
+        if(value instanceof Long) return "L:" + value;
+        if(value instanceof Integer) return "I:" + value;
+        if(value instanceof Double) return "D:" + value;
+        if(value instanceof Boolean) return "B:" + value;
+        if(value instanceof Date date) return "T:" + date.getTime();
+        if(value instanceof State state) return "E:" + state.name();
+        if(value instanceof String) return "S:" + value;
+        throw new IllegalArgumentException("Can't sort by a value of type " + value.getClass().getSimpleName());
+    }
+
+    private static Object fromTaggedValue(String taggedValue) {
+        if(taggedValue == null || taggedValue.length() < 2 || taggedValue.charAt(1) != ':') {
+            throw new IllegalArgumentException("Please pass the cursor returned by the previous search");
+        }
+        String value = taggedValue.substring(2);
+        try {
+            switch (taggedValue.charAt(0)) {
+                case 'N': return null;
+                case 'L': return Long.valueOf(value);
+                case 'I': return Integer.valueOf(value);
+                case 'D': return Double.valueOf(value);
+                case 'B': return Boolean.valueOf(value);
+                case 'T': return new Date(Long.parseLong(value));
+                case 'E': return State.valueOf(value);
+                case 'S': return value;
+                default: break;
+            }
+        } catch (IllegalArgumentException exception) {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException("Please pass the cursor returned by the previous search");
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import com.example.productcatalogservice.repos.ProductRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes one chunk of a bulk request in a single transaction. Existing rows are
+ * looked up with one IN query and the statements are sent as JDBC batches on
+ * flush, see hibernate.jdbc.batch_size.
+ */
+@Component
+public class ProductBatchWriter {
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Returns the products that were inserted, ids that already exist are skipped
+    @Transactional
+    public List<Product> insertNew(List<Product> products) {
+        Set<Long> existingIds = productRepo.findExistingIds(products.stream().map(Product::getId).toList());
+        List<Product> newProducts = products.stream()
+                .filter(product -> !existingIds.contains(product.getId()))
+                .toList();
+
+        resolveCategories(newProducts);
+        // persist instead of save, save would select every product again to decide between insert and update
+        newProducts.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        return newProducts;
+    }
+
+    // Copies the request onto the loaded rows and returns them, unknown ids are skipped.
+    // A product that carries a version must still be at it, otherwise the whole chunk fails
+    @Transactional
+    public List<Product> updateExisting(List<Product> products) {
+        Map<Long, Product> existingProducts = new HashMap<>();
+        for(Product product : productRepo.findAllById(products.stream().map(Product::getId).toList())) {
+            existingProducts.put(product.getId(), product);
+        }
+        List<Product> foundProducts = products.stream()
+                .filter(product -> existingProducts.containsKey(product.getId()))
+                .toList();
+
+        resolveCategories(foundProducts);
+        List<Product> updatedProducts = new ArrayList<>();
+        for(Product product : foundProducts) {
+            Product existingProduct = existingProducts.get(product.getId());
+            if(product.getVersion() != null && !product.getVersion().equals(existingProduct.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, product.getId());
+            }
+            existingProduct.setName(product.getName());
+            existingProduct.setDescription(product.getDescription());
+            existingProduct.setImageUrl(product.getImageUrl());
+            existingProduct.setPrice(product.getPrice());
+            existingProduct.setIsPrime(product.getIsPrime());
+            existingProduct.setCategory(product.getCategory());
+            existingProduct.touch(existingProduct.getUpdatedAt());
+            updatedProducts.add(existingProduct);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return updatedProducts;
+    }
+
+    // Write behind flushes, updates the products that exist and inserts the others
+    @Transactional
+    public List<Product> saveAll(List<Product> products) {
+        List<Product> writtenProducts = new ArrayList<>(updateExisting(products));
+        Set<Long> updatedIds = new HashSet<>();
+        writtenProducts.forEach(product -> updatedIds.add(product.getId()));
+        writtenProducts.addAll(insertNew(products.stream()
+                .filter(product -> !updatedIds.contains(product.getId()))
+                .toList()));
+        return writtenProducts;
+    }
+
+    // One DELETE ... WHERE id IN, returns the ids that existed
+    @Transactional
+    public List<Long> deleteExisting(List<Long> ids) {
+        List<Long> existingIds = new ArrayList<>(productRepo.findExistingIds(ids));
+        if(!existingIds.isEmpty()) {
+            productRepo.deleteAllByIdInBatch(existingIds);
+        }
+        return existingIds;
+    }
+
+    // Loads all referenced categories in one query, new categories are persisted once and shared
+    private void resolveCategories(Collection<Product> products) {
+        List<Long> categoryIds = products.stream()
+                .filter(product -> product.getCategory() != null)
+                .map(product -> product.getCategory().getId())
+                .distinct()
+                .toList();
+        if(categoryIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Category> categories = new HashMap<>();
+        for(Category category : categoryRepo.findAllById(categoryIds)) {
+            categories.put(category.getId(), category);
+        }
+        for(Product product : products) {
+            Category category = product.getCategory();
+            if(category != null) {
+                product.setCategory(categories.computeIfAbsent(category.getId(), id -> {
+                    entityManager.persist(category);
+                    return category;
+                }));
+            }
+        }
+    }
+}
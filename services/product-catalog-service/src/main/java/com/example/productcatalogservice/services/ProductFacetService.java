@@ -0,0 +1,123 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.dtos.CategoryFacetDto;
+import com.example.productcatalogservice.dtos.PriceRangeFacetDto;
+import com.example.productcatalogservice.dtos.SearchFacetsDto;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import com.example.productcatalogservice.search.ProductFacets;
+import com.example.productcatalogservice.search.ProductFacets.FacetCounts;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Category and price range facets from counts ProductIndexMaintainer keeps up
+ * to date, the search services pick the counts matching their own query semantics.
+ * Category names are read with one query per request, so renames show up at once.
+ */
+@Service
+@ConditionalOnProperty(name = "search.facets.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductFacetService implements IProductIndex {
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Value("${search.facets.price-bounds:0,10,25,50,100,250,500,1000}")
+    private List<Double> priceBounds;
+
+    private volatile ProductFacets productFacets;
+
+    @PostConstruct
+    void init() {
+        productFacets = new ProductFacets(priceBounds);
+    }
+
+    // Products named exactly like the query, what JpaSearchService matches. A blank query counts the catalog
+    public SearchFacetsDto facetsForName(String query) {
+        ProductFacets facets = productFacets;
+        return toDto(query, facets, isBlank(query) ? facets.forCatalog() : facets.forName(query));
+    }
+
+    public SearchFacetsDto facetsForProducts(String query, Collection<Long> productIds) {
+        ProductFacets facets = productFacets;
+        return toDto(query, facets, isBlank(query) ? facets.forCatalog() : facets.forProducts(productIds));
+    }
+
+    static ProductFacetService require(ProductFacetService productFacetService) {
+        if(productFacetService == null) {
+            throw new IllegalArgumentException("Facets are disabled, set search.facets.enabled=true");
+        }
+        return productFacetService;
+    }
+
+    @Override
+    public void index(Product product) {
+        productFacets.index(product);
+    }
+
+    @Override
+    public void remove(Long productId) {
+        productFacets.remove(productId);
+    }
+
+    @Override
+    public Rebuild rebuild() {
+        ProductFacets rebuilt = new ProductFacets(priceBounds);
+        return Rebuild.of(rebuilt::index, () -> productFacets = rebuilt);
+    }
+
+    private SearchFacetsDto toDto(String query, ProductFacets facets, FacetCounts facetCounts) {
+        SearchFacetsDto searchFacets = new SearchFacetsDto();
+        searchFacets.setQuery(query);
+        searchFacets.setTotal(facetCounts.total());
+        Map<Long, String> categoryNames = categoryNames(facets, facetCounts.categories().keySet());
+        searchFacets.setCategories(facetCounts.categories().entrySet().stream()
+                .map(category -> CategoryFacetDto.of(category.getKey(), categoryNames.get(category.getKey()), category.getValue()))
+                .sorted(Comparator.comparingLong(CategoryFacetDto::getCount).reversed()
+                        .thenComparing(CategoryFacetDto::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(CategoryFacetDto::getId))
+                .toList());
+
+        double[] bounds = facets.getPriceBounds();
+        long[] priceBuckets = facetCounts.priceBuckets();
+        List<PriceRangeFacetDto> priceRanges = new ArrayList<>(bounds.length);
+        for(int i = 0; i < bounds.length; i++) {
+            priceRanges.add(PriceRangeFacetDto.of(bounds[i], i + 1 < bounds.length ? bounds[i + 1] : null, priceBuckets[i]));
+        }
+        searchFacets.setPriceRanges(priceRanges);
+        return searchFacets;
+    }
+
+    // Current names from the category table, a category not stored yet keeps the name it was indexed with
+    private Map<Long, String> categoryNames(ProductFacets facets, Set<Long> categoryIds) {
+        Map<Long, String> categoryNames = new HashMap<>();
+        if(categoryIds.isEmpty()) {
+            return categoryNames;
+        }
+        for(Category category : categoryRepo.findAllById(categoryIds)) {
+            categoryNames.put(category.getId(), category.getName());
+        }
+        for(Long categoryId : categoryIds) {
+            if(!categoryNames.containsKey(categoryId)) {
+                categoryNames.put(categoryId, facets.categoryName(categoryId));
+            }
+        }
+        return categoryNames;
+    }
+
+    private static boolean isBlank(String query) {
+        return query == null || query.isBlank();
+    }
+}
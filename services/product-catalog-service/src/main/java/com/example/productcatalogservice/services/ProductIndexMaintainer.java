@@ -0,0 +1,139 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.datasource.DataSourceRouting;
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.ProductRepo;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.WindowIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fills every IProductIndex from MySQL once the application is up and keeps
+ * them in step: ProductChangedEvents cover writes made on this node, the
+ * ProductCache invalidation messages writes made on the others. A full rebuild
+ * runs every rebuild-interval for messages lost while Redis was unreachable.
+ * Rebuilds fill fresh copies, queries read the previous ones until the swap.
+ */
+@Component
+public class ProductIndexMaintainer {
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexMaintainer.class);
+
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private ProductCache productCache;
+
+    // Empty when no index is enabled, e.g. search.engine=jpa
+    @Autowired(required = false)
+    private List<IProductIndex> productIndexes = List.of();
+
+    // Ids changed while a rebuild scans, null when none runs
+    private volatile Set<Long> changedDuringRebuild;
+
+    @PostConstruct
+    void init() {
+        productCache.addRemoteChangeListener(this::onRemoteChange);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${search.index.rebuild-interval-ms:3600000}",
+            initialDelayString = "${search.index.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if(productIndexes.isEmpty()) {
+            return;
+        }
+        List<IProductIndex.Rebuild> rebuilds = productIndexes.stream().map(IProductIndex::rebuild).toList();
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+        WindowIterator<Product> products = WindowIterator
+                .of(position -> productRepo.findAllBy(position, Sort.by("id"), Limit.of(SCAN_BATCH_SIZE)))
+                .startingAt(ScrollPosition.keyset());
+        int count = 0;
+        try {
+            while(products.hasNext()) {
+                Product product = products.next();
+                rebuilds.forEach(rebuild -> rebuild.index(product));
+                count++;
+            }
+            rebuilds.forEach(IProductIndex.Rebuild::swap);
+        } finally {
+            Set<Long> changedIds = changedDuringRebuild;
+            changedDuringRebuild = null;
+            // The scan may have read these before they changed, changes after the swap went to the new copies
+            refresh(changedIds);
+        }
+        logger.info("Indexed {} products into {} product indexes", count, productIndexes.size());
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if(productIndexes.isEmpty()) {
+            return;
+        }
+        recordChange(List.of(event.getProductId()));
+        if(event.getType() == ProductChangedEvent.Type.DELETED) {
+            productIndexes.forEach(productIndex -> productIndex.remove(event.getProductId()));
+            return;
+        }
+        Product product = event.getProduct() != null
+                ? event.getProduct()
+                : DataSourceRouting.onPrimary(() -> productRepo.findById(event.getProductId())).orElse(null);
+        if(product != null) {
+            productIndexes.forEach(productIndex -> productIndex.index(product));
+        }
+    }
+
+    // Another node wrote or deleted these products
+    void onRemoteChange(List<Long> productIds) {
+        if(productIndexes.isEmpty()) {
+            return;
+        }
+        recordChange(productIds);
+        refresh(productIds);
+    }
+
+    // Re-reads the products, Redis first: a write behind product is there before MySQL has it
+    private void refresh(Collection<Long> productIds) {
+        if(productIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Product> products = productCache.getAll(productIds,
+                missingIds -> DataSourceRouting.onPrimary(() -> productRepo.findAllById(new ArrayList<>(missingIds))));
+        for(Long productId : productIds) {
+            Product product = products.get(productId);
+            if(product != null) {
+                productIndexes.forEach(productIndex -> productIndex.index(product));
+            } else {
+                productIndexes.forEach(productIndex -> productIndex.remove(productId));
+            }
+        }
+    }
+
+    private void recordChange(Collection<Long> productIds) {
+        Set<Long> changedIds = changedDuringRebuild;
+        if(changedIds != null) {
+            changedIds.addAll(productIds);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.search.ProductPriceIndex;
+import lombok.Getter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Keeps the ProductPriceIndex ProductPriceService answers from in step with the catalog
+@Component
+@ConditionalOnProperty(name = "search.price-index.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductPriceIndexer implements IProductIndex {
+    @Getter
+    private volatile ProductPriceIndex productPriceIndex = new ProductPriceIndex();
+
+    @Override
+    public void index(Product product) {
+        productPriceIndex.index(product);
+    }
+
+    @Override
+    public void remove(Long productId) {
+        productPriceIndex.remove(productId);
+    }
+
+    @Override
+    public Rebuild rebuild() {
+        ProductPriceIndex rebuilt = new ProductPriceIndex();
+        return Rebuild.of(rebuilt::index, () -> productPriceIndex = rebuilt);
+    }
+}
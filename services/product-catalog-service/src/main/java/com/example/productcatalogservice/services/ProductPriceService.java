@@ -0,0 +1,71 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.dtos.SortType;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import com.example.productcatalogservice.repos.ProductRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Products by price: top-K, price ranges and the cheapest of a category. The
+ * in-memory ProductPriceIndex finds the ids and the products come through the
+ * product cache, with the index disabled the same query runs against MySQL.
+ * The index knows categories by id, the name is looked up on every request.
+ */
+@Service
+public class ProductPriceService {
+    @Autowired(required = false)
+    private ProductPriceIndexer productPriceIndexer;
+
+    // The index is filled from MySQL, so products are loaded from there too
+    @Autowired
+    @Qualifier("storage-product-service")
+    private IProductService productService;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Value("${search.price.max-limit:200}")
+    private int maxLimit;
+
+    public List<Product> findByPrice(Double minPrice, Double maxPrice, String category, Integer limit, SortType sortType) {
+        if(limit == null || limit <= 0 || limit > maxLimit) {
+            throw new IllegalArgumentException("Please pass a limit between 1 and " + maxLimit);
+        }
+        if(minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        boolean descending = sortType == SortType.DESC;
+
+        if(productPriceIndexer != null) {
+            // Names are not unique, like the MySQL query every category with the name counts
+            List<Long> categoryIds = category != null
+                    ? categoryRepo.findAllByName(category).stream().map(Category::getId).toList()
+                    : null;
+            if(categoryIds != null && categoryIds.isEmpty()) {
+                return List.of();
+            }
+            List<Long> productIds = productPriceIndexer.getProductPriceIndex()
+                    .range(minPrice, maxPrice, categoryIds, limit, descending);
+            return productIds.isEmpty() ? List.of() : productService.getProductsByIds(productIds);
+        }
+
+        Sort sort = Sort.by(descending ? Sort.Direction.DESC : Sort.Direction.ASC, "price", "id");
+        Double from = minPrice != null ? minPrice : -Double.MAX_VALUE;
+        Double to = maxPrice != null ? maxPrice : Double.MAX_VALUE;
+        return category != null
+                ? productRepo.findByCategory_NameAndPriceBetween(category, from, to, sort, Limit.of(limit))
+                : productRepo.findByPriceBetween(from, to, sort, Limit.of(limit));
+    }
+}
@@ -1,68 +1,492 @@
 package com.example.productcatalogservice.services;
 
+import com.example.productcatalogservice.cache.CacheWriteMode;
+import com.example.productcatalogservice.cache.CatalogVersion;
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.cache.ProductWriteBehindQueue;
+import com.example.productcatalogservice.datasource.DataSourceRouting;
+import com.example.productcatalogservice.datasource.ReadYourWrites;
+import com.example.productcatalogservice.dtos.BulkItemResultDto;
+import com.example.productcatalogservice.dtos.BulkItemStatus;
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import com.example.productcatalogservice.modals.BaseModal;
 import com.example.productcatalogservice.modals.Product;
 import com.example.productcatalogservice.repos.ProductRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Primary;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service("storage-product-service")
-@Primary
 public class StorageProductService implements IProductService {
+    private static final Logger logger = LoggerFactory.getLogger(StorageProductService.class);
+
+    private static final String CONFLICT_MESSAGE =
+            "a product in this chunk was changed by someone else, please retry with current versions";
+
     @Autowired
     private ProductRepo productRepo;
 
     @Autowired
-    private RedisTemplate<String,Object> redisTemplate;
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductWriteBehindQueue productWriteBehindQueue;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private ProductBatchWriter productBatchWriter;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${products.cache.write-mode:INVALIDATE}")
+    private CacheWriteMode cacheWriteMode;
+
+    @Value("${products.bulk.max-items:10000}")
+    private int bulkMaxItems;
+
+    // Products written per transaction
+    @Value("${products.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
 
     @Override
     public Product createProduct(Product product) {
-        Optional<Product> productOptional = productRepo.findById(product.getId());
-        return productOptional.orElseGet(() -> productRepo.save(product));
+        Optional<Product> productOptional = DataSourceRouting.onPrimary(() -> productRepo.findById(product.getId()));
+        if(productOptional.isPresent()) {
+            return productOptional.get();
+        }
+        Product createdProduct = write(product, productBatchWriter::insertNew);
+        if(createdProduct == null) {
+            // Created by someone else since the lookup
+            return DataSourceRouting.onPrimary(() -> productRepo.findById(product.getId())).orElse(null);
+        }
+        applicationEventPublisher.publishEvent(ProductChangedEvent.created(createdProduct));
+        return createdProduct;
     }
 
+    // Read only transactions are served by a replica when replicas are configured
     @Override
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         return  productRepo.findAll();
     }
 
+    // Each product is detached once handled so the persistence context does not grow with the catalog
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachProduct(Consumer<Product> action) {
+        try(Stream<Product> products = productRepo.streamAllBy()) {
+            products.forEach(product -> {
+                action.accept(product);
+                entityManager.detach(product);
+            });
+        }
+    }
+
     @Override
     public Product getProductById(Long id) {
-        Product product = (Product)redisTemplate.opsForHash().get("products",id);
-        if(product == null) {
-            Optional<Product> optionalProduct = productRepo.findById(id);
-            if(optionalProduct.isPresent()) {
-                redisTemplate.opsForHash().put(
-                        "products", id, optionalProduct.get());
-
-                return optionalProduct.get();
-            }
+        return productCache.get(id, this::loadProduct);
+    }
 
+    @Override
+    public String getProductVersion(Long id) {
+        Product pendingProduct = productWriteBehindQueue.getPending(id);
+        if(pendingProduct != null) {
+            return BaseModal.versionTag(pendingProduct.getVersion(), pendingProduct.getUpdatedAt());
+        }
+        return readYourWrites.read(id, () -> productRepo.findVersionById(id))
+                .map(productVersion -> BaseModal.versionTag(productVersion.getVersion(), productVersion.getUpdatedAt()))
+                .orElse(null);
+    }
+
+    @Override
+    public String getCatalogVersion() {
+        CatalogVersion.Snapshot snapshot = readCatalogVersion();
+        return snapshot != null ? String.valueOf(snapshot.version()) : aggregateCatalogVersion();
+    }
+
+    // The version is read before the rows, rows newer than it only cost the client one more download.
+    // Rows older than it would be cached by clients under the new version, so the rows come from the
+    // primary while the replicas may not have the last write yet
+    @Override
+    @Transactional(readOnly = true)
+    public Catalog getCatalog() {
+        CatalogVersion.Snapshot snapshot = readCatalogVersion();
+        if(snapshot == null) {
+            return new Catalog(aggregateCatalogVersion(), productRepo.findAll());
+        }
+        return new Catalog(String.valueOf(snapshot.version()),
+                readYourWrites.readWrittenAt(snapshot.changedAt(), productRepo::findAll));
+    }
+
+    private CatalogVersion.Snapshot readCatalogVersion() {
+        try {
+            return catalogVersion.read();
+        } catch (DataAccessException exception) {
+            logger.warn("Catalog version not readable from Redis, computing it from MySQL: {}", exception.getMessage());
             return null;
         }
-        return product;
+    }
+
+    // Aggregates the whole products table, only used while Redis is unavailable
+    private String aggregateCatalogVersion() {
+        ProductRepo.CatalogVersion aggregate = productRepo.findCatalogVersion();
+        Date lastUpdatedAt = aggregate.getLastUpdatedAt();
+        return aggregate.getCount() + "-" + (lastUpdatedAt != null ? lastUpdatedAt.getTime() : 0)
+                + "-" + aggregate.getIdSum() + "-" + aggregate.getVersionSum();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Product> getProductsByIds(List<Long> ids) {
+        Map<Long, Product> products = productCache.getAll(ids, this::loadProducts);
+        return ids.stream().distinct().map(products::get).filter(Objects::nonNull).toList();
+    }
+
+    // A product only pending in the write behind queue exists too, it is discarded so the flush can't bring it back
     @Override
     public Boolean deleteProduct(Long id) {
-        Optional<Product> productOptional = productRepo.findById(id);
-        if(productOptional.isPresent()) {
-            productRepo.deleteById(id);
-            return true;
+        Product pendingProduct = productWriteBehindQueue.discard(id);
+        // Looked up after the discard, which waits for a running flush that may have just written the product
+        Optional<Product> productOptional = DataSourceRouting.onPrimary(() -> productRepo.findById(id));
+        productOptional.ifPresent(product -> productRepo.deleteById(id));
+        if(pendingProduct == null && productOptional.isEmpty()) {
+            return false;
         }
-        return false;
+        productCache.evict(id);
+        applicationEventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+        return true;
     }
 
+    // Full overwrite, checked against the version when the product carries one
     @Override
     public Product updateProduct(Long id, Product product){
-        Optional<Product> productOptional = productRepo.findById(id);
-        if(productOptional.isPresent()) {
-           return productRepo.save(product);
+        product.setId(id);
+        if(cacheWriteMode == CacheWriteMode.WRITE_BEHIND) {
+            // The pending product is the latest state, a product created moments ago may only be there
+            Product pendingProduct = productWriteBehindQueue.getPending(id);
+            Optional<Product> productOptional = DataSourceRouting.onPrimary(() -> productRepo.findById(id));
+            if(pendingProduct == null && productOptional.isEmpty()) {
+                return null;
+            }
+            // Versions are only counted by MySQL, a product that was never flushed has none yet
+            Long storedVersion = productOptional.map(Product::getVersion).orElse(null);
+            if(product.getVersion() != null && !product.getVersion().equals(storedVersion)) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, id);
+            }
+            Product existingProduct = pendingProduct != null ? pendingProduct : productOptional.get();
+            product.setCreatedAt(existingProduct.getCreatedAt());
+            product.touch(existingProduct.getUpdatedAt());
+            // Checked here, the flush writes the latest pending state whatever version the row has by then
+            product.setVersion(null);
+        }
+        Product updatedProduct = write(product, productBatchWriter::updateExisting);
+        if(updatedProduct == null) {
+            return null;
+        }
+        applicationEventPublisher.publishEvent(ProductChangedEvent.updated(updatedProduct));
+        return updatedProduct;
+    }
+
+    // One UPDATE ... WHERE id = ? AND version = ?, the product is only looked at again when nothing was updated
+    @Override
+    public String patchProduct(Long id, Long version, Product changes) {
+        if(productWriteBehindQueue.getPending(id) != null) {
+            // The pending flush would overwrite this change, the client can retry once it is written
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+        Date updatedAt = new Date();
+        int updated = productRepo.patch(id, version, changes.getName(), changes.getDescription(),
+                changes.getImageUrl(), changes.getPrice(), updatedAt);
+        if(updated == 0) {
+            if(!DataSourceRouting.onPrimary(() -> productRepo.existsById(id))) {
+                return null;
+            }
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+        productCache.evict(id);
+        applicationEventPublisher.publishEvent(ProductChangedEvent.patched(id));
+        return BaseModal.versionTag(version + 1, updatedAt);
+    }
+
+    // Bulk writes go straight to MySQL whatever the write mode, a failed chunk fails only its own items
+    @Override
+    public List<BulkItemResultDto> createProducts(List<Product> products) {
+        BulkItemResultDto[] results = new BulkItemResultDto[checkBulkSize(products)];
+        List<Product> validProducts = new ArrayList<>();
+        Set<Long> seenIds = new HashSet<>();
+        for(int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            String error = validate(product, seenIds);
+            if(error != null) {
+                results[i] = BulkItemResultDto.failed(product != null ? product.getId() : null, error);
+            } else if(productWriteBehindQueue.getPending(product.getId()) != null) {
+                results[i] = BulkItemResultDto.of(product.getId(), BulkItemStatus.ALREADY_EXISTS);
+            } else {
+                validProducts.add(product);
+            }
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        List<Product> createdProducts = writeInChunks(validProducts, Product::getId, productBatchWriter::insertNew, failures);
+        fillResults(requestIds(products), results, idsOf(createdProducts), failures,
+                BulkItemStatus.CREATED, BulkItemStatus.ALREADY_EXISTS);
+
+        refreshCache(createdProducts);
+        createdProducts.forEach(product -> applicationEventPublisher.publishEvent(ProductChangedEvent.created(product)));
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BulkItemResultDto> updateProducts(List<Product> products) {
+        BulkItemResultDto[] results = new BulkItemResultDto[checkBulkSize(products)];
+        List<Product> validProducts = new ArrayList<>();
+        Map<Long, Product> discardedProducts = new HashMap<>();
+        Set<Long> seenIds = new HashSet<>();
+        for(int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            String error = validate(product, seenIds);
+            if(error != null) {
+                results[i] = BulkItemResultDto.failed(product != null ? product.getId() : null, error);
+            } else {
+                // Taken out so a pending write behind flush can't overwrite the update, put back when it doesn't happen
+                Product pendingProduct = productWriteBehindQueue.discard(product.getId());
+                if(pendingProduct != null) {
+                    discardedProducts.put(product.getId(), pendingProduct);
+                }
+                validProducts.add(product);
+            }
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        List<Product> updatedProducts = writeInChunks(validProducts, Product::getId, productBatchWriter::updateExisting, failures);
+        updatedProducts.addAll(updatePending(validProducts, discardedProducts, idsOf(updatedProducts), failures));
+        fillResults(requestIds(products), results, idsOf(updatedProducts), failures,
+                BulkItemStatus.UPDATED, BulkItemStatus.NOT_FOUND);
+
+        refreshCache(updatedProducts);
+        updatedProducts.forEach(product -> applicationEventPublisher.publishEvent(ProductChangedEvent.updated(product)));
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BulkItemResultDto> deleteProducts(List<Long> ids) {
+        BulkItemResultDto[] results = new BulkItemResultDto[checkBulkSize(ids)];
+        List<Long> validIds = new ArrayList<>();
+        Map<Long, Product> discardedProducts = new HashMap<>();
+        Set<Long> seenIds = new HashSet<>();
+        for(int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if(id == null) {
+                results[i] = BulkItemResultDto.failed(null, "id is required");
+            } else if(!seenIds.add(id)) {
+                results[i] = BulkItemResultDto.failed(id, "id is repeated in the request");
+            } else {
+                Product pendingProduct = productWriteBehindQueue.discard(id);
+                if(pendingProduct != null) {
+                    discardedProducts.put(id, pendingProduct);
+                }
+                validIds.add(id);
+            }
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        Set<Long> deletedIds = new HashSet<>(writeInChunks(validIds, Function.identity(),
+                productBatchWriter::deleteExisting, failures));
+        // A product only pending in the write behind queue is deleted by the discard
+        for(Product pendingProduct : discardedProducts.values()) {
+            if(failures.containsKey(pendingProduct.getId())) {
+                productWriteBehindQueue.restore(pendingProduct);
+            } else {
+                deletedIds.add(pendingProduct.getId());
+            }
+        }
+        fillResults(ids, results, deletedIds, failures, BulkItemStatus.DELETED, BulkItemStatus.NOT_FOUND);
+
+        productCache.evictAll(deletedIds);
+        deletedIds.forEach(id -> applicationEventPublisher.publishEvent(ProductChangedEvent.deleted(id)));
+        return Arrays.asList(results);
+    }
+
+    // Products created in write behind mode and not flushed yet are not in MySQL, they are updated in the queue
+    private List<Product> updatePending(List<Product> products, Map<Long, Product> discardedProducts,
+                                        Set<Long> updatedIds, Map<Long, String> failures) {
+        List<Product> updatedProducts = new ArrayList<>();
+        for(Product product : products) {
+            Product pendingProduct = discardedProducts.get(product.getId());
+            if(pendingProduct == null || updatedIds.contains(product.getId())) {
+                continue;
+            }
+            if(failures.containsKey(product.getId())) {
+                productWriteBehindQueue.restore(pendingProduct);
+            } else if(product.getVersion() != null) {
+                // Versions are only counted by MySQL, a product that was never flushed has none yet
+                productWriteBehindQueue.restore(pendingProduct);
+                failures.put(product.getId(), CONFLICT_MESSAGE);
+            } else {
+                product.setCreatedAt(pendingProduct.getCreatedAt());
+                product.touch(pendingProduct.getUpdatedAt());
+                productWriteBehindQueue.enqueue(product);
+                updatedProducts.add(product);
+            }
+        }
+        return updatedProducts;
+    }
+
+    private Product loadProduct(Long id) {
+        Product pendingProduct = productWriteBehindQueue.getPending(id);
+        if(pendingProduct != null) {
+            return pendingProduct;
+        }
+        return readYourWrites.read(id, () -> productRepo.findById(id)).orElse(null);
+    }
+
+    // Pending write behind products first, then one select for the rest
+    private List<Product> loadProducts(Collection<Long> ids) {
+        List<Product> products = new ArrayList<>();
+        List<Long> storedIds = new ArrayList<>();
+        for(Long id : ids) {
+            Product pendingProduct = productWriteBehindQueue.getPending(id);
+            if(pendingProduct != null) {
+                products.add(pendingProduct);
+            } else {
+                storedIds.add(id);
+            }
+        }
+        if(!storedIds.isEmpty()) {
+            products.addAll(readYourWrites.read(storedIds, () -> productRepo.findAllById(storedIds)));
+        }
+        return products;
+    }
+
+    // Returns null when the writer skipped the product
+    private Product write(Product product, Function<List<Product>, List<Product>> writer) {
+        if(cacheWriteMode == CacheWriteMode.WRITE_BEHIND) {
+            productCache.write(product);
+            productWriteBehindQueue.enqueue(product);
+            return product;
+        }
+
+        List<Product> writtenProducts = writer.apply(List.of(product));
+        if(writtenProducts.isEmpty()) {
+            return null;
+        }
+        Product savedProduct = writtenProducts.get(0);
+        if(cacheWriteMode == CacheWriteMode.WRITE_THROUGH) {
+            productCache.write(savedProduct);
+        } else {
+            productCache.evict(savedProduct.getId());
+        }
+        return savedProduct;
+    }
+
+    private int checkBulkSize(List<?> items) {
+        if(items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Please pass at least one product");
+        }
+        if(items.size() > bulkMaxItems) {
+            throw new IllegalArgumentException("Please pass at most " + bulkMaxItems + " products per request");
+        }
+        return items.size();
+    }
+
+    private String validate(Product product, Set<Long> seenIds) {
+        if(product == null || product.getId() == null) {
+            return "id is required";
+        }
+        if(!seenIds.add(product.getId())) {
+            return "id is repeated in the request";
+        }
+        if(product.getCategory() != null && product.getCategory().getId() == null) {
+            return "category id is required";
         }
         return null;
     }
+
+    // Each chunk commits on its own, the ids of a chunk that fails are recorded in failures
+    private <T, R> List<R> writeInChunks(List<T> items, Function<T, Long> idOf,
+                                         Function<List<T>, List<R>> writer, Map<Long, String> failures) {
+        List<R> written = new ArrayList<>();
+        for(int from = 0; from < items.size(); from += bulkChunkSize) {
+            List<T> chunk = items.subList(from, Math.min(from + bulkChunkSize, items.size()));
+            try {
+                written.addAll(writer.apply(chunk));
+            } catch (RuntimeException exception) {
+                logger.warn("Bulk write of {} products failed", chunk.size(), exception);
+                String message = exception instanceof OptimisticLockingFailureException
+                        || exception instanceof OptimisticLockException
+                        ? CONFLICT_MESSAGE
+                        : "write failed, please retry";
+                chunk.forEach(item -> failures.put(idOf.apply(item), message));
+            }
+        }
+        return written;
+    }
+
+    // Items without a result yet were sent to MySQL, they were either written, skipped or failed with their chunk
+    private void fillResults(List<Long> ids, BulkItemResultDto[] results, Set<Long> writtenIds,
+                             Map<Long, String> failures, BulkItemStatus written, BulkItemStatus skipped) {
+        for(int i = 0; i < results.length; i++) {
+            if(results[i] != null) {
+                continue;
+            }
+            Long id = ids.get(i);
+            if(failures.containsKey(id)) {
+                results[i] = BulkItemResultDto.failed(id, failures.get(id));
+            } else {
+                results[i] = BulkItemResultDto.of(id, writtenIds.contains(id) ? written : skipped);
+            }
+        }
+    }
+
+    private static List<Long> requestIds(List<Product> products) {
+        return products.stream().map(product -> product != null ? product.getId() : null).toList();
+    }
+
+    private static Set<Long> idsOf(Collection<Product> products) {
+        Set<Long> ids = new HashSet<>();
+        products.forEach(product -> ids.add(product.getId()));
+        return ids;
+    }
+
+    private void refreshCache(List<Product> products) {
+        if(cacheWriteMode == CacheWriteMode.INVALIDATE) {
+            productCache.evictAll(products.stream().map(Product::getId).toList());
+        } else {
+            productCache.writeAll(products);
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package com.example.productcatalogservice.benchmarks;
+
+import com.example.productcatalogservice.dtos.CategoryDto;
+import com.example.productcatalogservice.dtos.ProductDto;
+import com.example.productcatalogservice.mappers.ProductMapper;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a GET /products response: mapping to ProductDto and serializing
+ * the list (dto, the old controller path) against ProductMapper writing the
+ * products with the generator (streaming). Run with:
+ *   ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.productcatalogservice.benchmarks.ProductJsonBenchmark
+ * The gc profiler adds gc.alloc.rate.norm, bytes allocated per response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductJsonBenchmark {
+
+    @Param({"100", "1000"})
+    public int productCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ProductMapper productMapper = new ProductMapper();
+
+    // Both paths close the stream after each response, so it has to survive close
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private List<Product> products;
+
+    @Setup
+    public void setUp() {
+        products = products(productCount);
+    }
+
+    @Benchmark
+    public void dto() throws IOException {
+        List<ProductDto> productDtos = new ArrayList<>(products.size());
+        for(Product product : products) {
+            productDtos.add(from(product));
+        }
+        objectMapper.writeValue(out, productDtos);
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            productMapper.writeJsonArray(generator, products);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ProductJsonBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    // The controller mapping this replaced, a new CategoryDto per product
+    private static ProductDto from(Product product) {
+        ProductDto productDto = new ProductDto();
+        productDto.setId(product.getId());
+        productDto.setName(product.getName());
+        productDto.setDescription(product.getDescription());
+        productDto.setPrice(product.getPrice());
+        productDto.setImageUrl(product.getImageUrl());
+        if(product.getCategory() != null) {
+            Category category = product.getCategory();
+            productDto.setCategory(new CategoryDto(category.getId(), category.getName(), category.getDescription()));
+        }
+        return productDto;
+    }
+
+    private static List<Product> products(int count) {
+        List<Category> categories = new ArrayList<>();
+        for(long id = 1; id <= 10; id++) {
+            Category category = new Category();
+            category.setId(id);
+            category.setName("Category " + id);
+            category.setDescription("Everything in category " + id);
+            categories.add(category);
+        }
+        List<Product> products = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId((long) i + 1);
+            product.setName("Product " + (i + 1));
+            product.setDescription("A product description that is about as long as the ones in the catalog");
+            product.setImageUrl("https://cdn.example.com/products/" + (i + 1) + "/main.jpg");
+            product.setPrice(999.99D + i);
+            product.setCategory(categories.get(i % categories.size()));
+            products.add(product);
+        }
+        return products;
+    }
+}
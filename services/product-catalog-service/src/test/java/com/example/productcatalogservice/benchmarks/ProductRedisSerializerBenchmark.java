@@ -0,0 +1,93 @@
+package com.example.productcatalogservice.benchmarks;
+
+import com.example.productcatalogservice.cache.ProductRedisSerializer;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of a cached Product for each products.cache.serializer
+ * option. Run with:
+ *   ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.productcatalogservice.benchmarks.ProductRedisSerializerBenchmark
+ * Bytes per entry are printed before the JMH run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductRedisSerializerBenchmark {
+
+    @Param({"jdk", "binary", "cbor", "smile"})
+    public String serializerName;
+
+    private RedisSerializer<Object> serializer;
+
+    private Product product;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = serializer(serializerName);
+        product = product();
+        encoded = serializer.serialize(product);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(product);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for(String name : new String[]{"jdk", "binary", "cbor", "smile"}) {
+            System.out.printf("%-7s %5d bytes per entry%n", name, serializer(name).serialize(product()).length);
+        }
+        Options options = new OptionsBuilder()
+                .include(ProductRedisSerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    private static RedisSerializer<Object> serializer(String name) {
+        if("jdk".equals(name)) {
+            return new JdkSerializationRedisSerializer();
+        }
+        return new ProductRedisSerializer(ProductRedisSerializer.Encoding.valueOf(name.toUpperCase()));
+    }
+
+    private static Product product() {
+        Category category = new Category();
+        category.setId(2L);
+        category.setName("Phones");
+        category.setDescription("Smart phones and accessories");
+
+        Product product = new Product();
+        product.setId(1042L);
+        product.setName("Iphone 15");
+        product.setDescription("Apple Iphone 15 with 128GB storage, 6.1 inch display and dual camera");
+        product.setImageUrl("https://cdn.example.com/products/1042/main.jpg");
+        product.setPrice(79999D);
+        product.setIsPrime(true);
+        product.setCreatedAt(new Date());
+        product.setUpdatedAt(new Date());
+        product.setCategory(category);
+        return product;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CatalogVersionTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+
+        catalogVersion = new CatalogVersion();
+        ReflectionTestUtils.setField(catalogVersion, "stringRedisTemplate", stringRedisTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void TestOnProductChanged_BumpsTheSharedVersion() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("products:catalog")), anyString()))
+                .thenReturn(8L);
+
+        catalogVersion.onProductChanged(ProductChangedEvent.deleted(1L));
+
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("products:catalog")), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void TestRead_StoredVersion_NotBumped() {
+        when(hashOperations.multiGet(eq("products:catalog"), anyList())).thenReturn(List.of("7", "1000"));
+
+        assertEquals(new CatalogVersion.Snapshot(7L, 1000L), catalogVersion.read());
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void TestRead_MissingVersion_StartedByABump() {
+        when(hashOperations.multiGet(eq("products:catalog"), anyList())).thenReturn(Arrays.asList(null, null));
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("products:catalog")), anyString()))
+                .thenReturn(1700000000001L);
+        long before = System.currentTimeMillis();
+
+        CatalogVersion.Snapshot snapshot = catalogVersion.read();
+
+        assertEquals(1700000000001L, snapshot.version());
+        assertTrue(snapshot.changedAt() >= before);
+    }
+}
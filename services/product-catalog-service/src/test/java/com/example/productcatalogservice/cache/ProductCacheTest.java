@@ -0,0 +1,212 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.modals.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductCacheTest {
+
+    private RedisTemplate<String,Object> redisTemplate;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private HashOperations<String,Object,Object> hashOperations;
+
+    private ProductCache productCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+
+        productCache = new ProductCache();
+        ReflectionTestUtils.setField(productCache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(productCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(productCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(productCache, "localMaximumSize", 100L);
+        ReflectionTestUtils.setField(productCache, "localTtlSeconds", 60L);
+        ReflectionTestUtils.setField(productCache, "invalidationChannel", "products:invalidate");
+        productCache.init();
+    }
+
+    @Test
+    public void TestGet_SecondLookupServedLocally_RedisCalledOnce() {
+        Product product = product(7L);
+        when(hashOperations.get(ProductCache.PRODUCTS_KEY, 7L)).thenReturn(product);
+
+        assertSame(product, productCache.get(7L));
+        assertSame(product, productCache.get(7L));
+
+        verify(hashOperations, times(1)).get(ProductCache.PRODUCTS_KEY, 7L);
+    }
+
+    @Test
+    public void TestEvict_PublishesAndDropsLocalEntry() {
+        productCache.put(product(3L));
+
+        productCache.evict(3L);
+
+        verify(stringRedisTemplate).convertAndSend(eq("products:invalidate"), anyString());
+        assertNull(productCache.get(3L));
+    }
+
+    @Test
+    public void TestOnMessage_FromOtherNode_DropsLocalEntry() {
+        productCache.put(product(5L));
+
+        productCache.onMessage(message("other-node:5"), null);
+
+        assertNull(productCache.get(5L));
+    }
+
+    @Test
+    public void TestOnMessage_FromSameNode_KeepsLocalEntry() {
+        productCache.put(product(5L));
+        String nodeId = (String) ReflectionTestUtils.getField(productCache, "nodeId");
+
+        productCache.onMessage(message(nodeId + ":5"), null);
+
+        assertNotNull(productCache.get(5L));
+        verify(hashOperations, never()).get(ProductCache.PRODUCTS_KEY, 5L);
+    }
+
+    @Test
+    public void TestOnMessage_FromOtherNode_NotifiesRemoteChangeListeners() {
+        List<List<Long>> changes = new ArrayList<>();
+        productCache.addRemoteChangeListener(changes::add);
+        String nodeId = (String) ReflectionTestUtils.getField(productCache, "nodeId");
+
+        productCache.onMessage(message("other-node:5,6"), null);
+        productCache.onMessage(message(nodeId + ":7"), null);
+
+        assertEquals(List.of(List.of(5L, 6L)), changes);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void TestSweepExpired_RemovesExpiredFieldsFromHashAndExpirySet() {
+        ZSetOperations<String,Object> zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.rangeByScore(eq(ProductCache.EXPIRY_KEY), eq(0D), anyDouble(), eq(0L), anyLong()))
+                .thenReturn(Set.of(1L));
+
+        productCache.sweepExpired();
+
+        verify(hashOperations).delete(ProductCache.PRODUCTS_KEY, 1L);
+        verify(zSetOperations).remove(ProductCache.EXPIRY_KEY, 1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void TestGetAll_OneHmgetOneLoadOnePipelinedWriteBack_RedisOrderKept() {
+        ZSetOperations<String,Object> zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            return List.of();
+        });
+        productCache.put(product(1L));
+        clearInvocations(hashOperations, zSetOperations);
+        when(hashOperations.multiGet(ProductCache.PRODUCTS_KEY, List.of(2L, 3L, 4L)))
+                .thenReturn(Arrays.asList(product(2L), null, null));
+        List<Collection<Long>> loads = new ArrayList<>();
+
+        Map<Long, Product> products = productCache.getAll(List.of(1L, 2L, 3L, 4L, 2L), ids -> {
+            loads.add(ids);
+            return List.of(product(3L));
+        });
+
+        assertEquals(Set.of(1L, 2L, 3L), products.keySet());
+        assertEquals(List.of(List.of(3L, 4L)), loads);
+        verify(hashOperations, times(1)).multiGet(anyString(), anyCollection());
+        verify(hashOperations).putAll(eq(ProductCache.PRODUCTS_KEY), eq(Map.of(3L, products.get(3L))));
+        verify(zSetOperations).add(eq(ProductCache.EXPIRY_KEY), anySet());
+        verify(hashOperations, never()).get(anyString(), any());
+    }
+
+    @Test
+    public void TestGetAll_AllInLocalCache_RedisNotCalled() {
+        productCache.put(product(1L));
+        productCache.put(product(2L));
+
+        Map<Long, Product> products = productCache.getAll(List.of(2L, 1L), ids -> fail("nothing to load"));
+
+        assertEquals(Set.of(1L, 2L), products.keySet());
+        verify(hashOperations, never()).multiGet(anyString(), anyCollection());
+    }
+
+    @Test
+    public void TestRefresh_RedisCopyOutlivesLocalEntry_MySqlNotRead() {
+        Product product = product(8L);
+        pipelinedReplies(product, (double) (System.currentTimeMillis() + 600000));
+
+        Product refreshed = ReflectionTestUtils.invokeMethod(productCache, "refresh", 8L,
+                (Function<Long, Product>) id -> fail("must not reach MySQL"));
+
+        assertSame(product, refreshed);
+        assertSame(product, productCache.get(8L));
+    }
+
+    @Test
+    public void TestRefresh_RedisCopyAboutToExpire_ReloadsFromMySql() {
+        pipelinedReplies(product(8L), (double) (System.currentTimeMillis() + 1000));
+        Product loaded = product(8L);
+
+        Product refreshed = ReflectionTestUtils.invokeMethod(productCache, "refresh", 8L,
+                (Function<Long, Product>) id -> loaded);
+
+        assertSame(loaded, refreshed);
+        verify(hashOperations).put(ProductCache.PRODUCTS_KEY, 8L, loaded);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void pipelinedReplies(Object... replies) {
+        when(redisTemplate.opsForZSet()).thenReturn(mock(ZSetOperations.class));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(redisTemplate);
+            return Arrays.asList(replies);
+        });
+    }
+
+    private Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        return product;
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage("products:invalidate".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.modals.State;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRedisSerializerTest {
+
+    @ParameterizedTest
+    @EnumSource(ProductRedisSerializer.Encoding.class)
+    public void TestRoundTrip_ProductWithCategory_AllFieldsPreserved(ProductRedisSerializer.Encoding encoding) {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(encoding);
+        Product product = product();
+
+        Product decoded = (Product) serializer.deserialize(serializer.serialize(product));
+
+        assertEquals(product.getId(), decoded.getId());
+        assertEquals(product.getName(), decoded.getName());
+        assertEquals(product.getDescription(), decoded.getDescription());
+        assertEquals(product.getImageUrl(), decoded.getImageUrl());
+        assertEquals(product.getPrice(), decoded.getPrice());
+        assertEquals(product.getIsPrime(), decoded.getIsPrime());
+        assertEquals(product.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(product.getUpdatedAt(), decoded.getUpdatedAt());
+        assertEquals(product.getState(), decoded.getState());
+        assertEquals(product.getCategory().getId(), decoded.getCategory().getId());
+        assertEquals(product.getCategory().getName(), decoded.getCategory().getName());
+        assertEquals(product.getVersion(), decoded.getVersion());
+        assertEquals(product.getCategory().getVersion(), decoded.getCategory().getVersion());
+    }
+
+    @Test
+    public void TestRoundTrip_ProductWithNullFields_NullsPreserved() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY);
+        Product product = new Product();
+        product.setId(9L);
+        product.setCreatedAt(null);
+
+        Product decoded = (Product) serializer.deserialize(serializer.serialize(product));
+
+        assertEquals(9L, decoded.getId());
+        assertNull(decoded.getName());
+        assertNull(decoded.getPrice());
+        assertNull(decoded.getCreatedAt());
+        assertNull(decoded.getCategory());
+        assertNull(decoded.getVersion());
+    }
+
+    @Test
+    public void TestRoundTrip_NonAsciiName_Preserved() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY);
+        Product product = product();
+        product.setName("Caf\u00e9 mug \u2615 \uD83D\uDE00");
+
+        Product decoded = (Product) serializer.deserialize(serializer.serialize(product));
+
+        assertEquals(product.getName(), decoded.getName());
+        assertEquals(product.getDescription(), decoded.getDescription());
+    }
+
+    @Test
+    public void TestSerialize_Binary_SmallerThanJdk() {
+        Product product = product();
+
+        int binarySize = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY).serialize(product).length;
+        int jdkSize = new JdkSerializationRedisSerializer().serialize(product).length;
+
+        assertTrue(binarySize * 4 < jdkSize, "binary " + binarySize + " bytes, jdk " + jdkSize + " bytes");
+    }
+
+    @Test
+    public void TestDeserialize_ValueWrittenByJdkSerializer_StillReadable() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY);
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(product());
+
+        Product decoded = (Product) serializer.deserialize(legacy);
+
+        assertEquals("Iphone", decoded.getName());
+    }
+
+    @Test
+    public void TestDeserialize_UnknownFormatVersion_TreatedAsMiss() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY);
+        byte[] bytes = serializer.serialize(product());
+        bytes[0] = (byte) (ProductRedisSerializer.FORMAT_VERSION + 1);
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void TestDeserialize_UnknownStateName_TreatedAsMiss() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY);
+        byte[] bytes = serializer.serialize(product());
+        String encoded = new String(bytes, StandardCharsets.ISO_8859_1);
+        int state = encoded.indexOf("DELETED");
+        assertTrue(state > 0, "state is written by name");
+        bytes[state + 6] = 'X';
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void TestRoundTrip_LongId() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer(ProductRedisSerializer.Encoding.BINARY);
+
+        assertEquals(123456789L, serializer.deserialize(serializer.serialize(123456789L)));
+        assertEquals(4, serializer.serialize(300L).length);
+    }
+
+    static Product product() {
+        Category category = new Category();
+        category.setId(2L);
+        category.setName("Phones");
+        category.setDescription("Smart phones");
+        category.setCreatedAt(new Date(1700000000000L));
+        category.setUpdatedAt(new Date(1700000000000L));
+        category.setState(State.ACTIVE);
+        category.setVersion(3L);
+
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Iphone");
+        product.setDescription("Iphone 15 with 128GB storage");
+        product.setImageUrl("https://example.com/iphone.jpg");
+        product.setPrice(79999D);
+        product.setIsPrime(true);
+        product.setCreatedAt(new Date(1700000000000L));
+        product.setUpdatedAt(new Date(1700000500000L));
+        product.setState(State.DELETED);
+        product.setCategory(category);
+        product.setVersion(7L);
+        return product;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.productcatalogservice.cache;
+
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.services.ProductBatchWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ProductWriteBehindQueueTest {
+
+    private ProductBatchWriter productBatchWriter;
+
+    private CatalogVersion catalogVersion;
+
+    private ProductWriteBehindQueue productWriteBehindQueue;
+
+    @BeforeEach
+    public void setUp() {
+        productBatchWriter = mock(ProductBatchWriter.class);
+        catalogVersion = mock(CatalogVersion.class);
+        productWriteBehindQueue = new ProductWriteBehindQueue();
+        ReflectionTestUtils.setField(productWriteBehindQueue, "productBatchWriter", productBatchWriter);
+        ReflectionTestUtils.setField(productWriteBehindQueue, "catalogVersion", catalogVersion);
+    }
+
+    @Test
+    public void TestFlush_ProductStaysPendingUntilSaved() {
+        Product product = product(1L, "Phone");
+        productWriteBehindQueue.enqueue(product);
+        doAnswer(invocation -> {
+            assertSame(product, productWriteBehindQueue.getPending(1L));
+            return null;
+        }).when(productBatchWriter).saveAll(anyList());
+
+        productWriteBehindQueue.flush();
+
+        verify(productBatchWriter).saveAll(anyList());
+        assertNull(productWriteBehindQueue.getPending(1L));
+    }
+
+    @Test
+    public void TestFlush_Saved_BumpsCatalogVersionAfterTheSave() {
+        productWriteBehindQueue.enqueue(product(1L, "Phone"));
+
+        productWriteBehindQueue.flush();
+
+        InOrder inOrder = inOrder(productBatchWriter, catalogVersion);
+        inOrder.verify(productBatchWriter).saveAll(anyList());
+        inOrder.verify(catalogVersion).bump();
+    }
+
+    @Test
+    public void TestFlush_NewerWriteDuringSave_KeptForNextFlush() {
+        productWriteBehindQueue.enqueue(product(1L, "Phone"));
+        Product newer = product(1L, "Smartphone");
+        doAnswer(invocation -> {
+            productWriteBehindQueue.enqueue(newer);
+            return null;
+        }).when(productBatchWriter).saveAll(anyList());
+
+        productWriteBehindQueue.flush();
+
+        assertSame(newer, productWriteBehindQueue.getPending(1L));
+    }
+
+    @Test
+    public void TestFlush_SaveFails_ProductStillPending() {
+        Product product = product(1L, "Phone");
+        productWriteBehindQueue.enqueue(product);
+        doThrow(new IllegalStateException("connection lost")).when(productBatchWriter).saveAll(anyList());
+
+        productWriteBehindQueue.flush();
+
+        assertSame(product, productWriteBehindQueue.getPending(1L));
+        assertEquals(1, productWriteBehindQueue.size());
+        verify(catalogVersion, never()).bump();
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+}
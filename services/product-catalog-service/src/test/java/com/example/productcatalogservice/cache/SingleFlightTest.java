@@ -0,0 +1,89 @@
+package com.example.productcatalogservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    public void TestLoad_ConcurrentCallersForSameKey_LoaderRunsOnce() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        try {
+            CompletableFuture<String> leader = CompletableFuture.supplyAsync(() ->
+                    singleFlight.load(1L, () -> {
+                        loads.incrementAndGet();
+                        loaderStarted.countDown();
+                        await(releaseLoader);
+                        return "product-1";
+                    }).join(), executorService);
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            List<CompletableFuture<String>> followers = new ArrayList<>();
+            for(int i = 0; i < 7; i++) {
+                followers.add(singleFlight.load(1L, () -> {
+                    loads.incrementAndGet();
+                    return "duplicate";
+                }));
+            }
+            releaseLoader.countDown();
+
+            assertEquals("product-1", leader.get(5, TimeUnit.SECONDS));
+            for(CompletableFuture<String> follower : followers) {
+                assertEquals("product-1", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertFalse(singleFlight.isInFlight(1L));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void TestLoad_LoaderFails_FailureSharedAndKeyReleased() {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+        CompletableFuture<String> future = singleFlight.load(2L, () -> {
+            throw new IllegalStateException("MySQL down");
+        });
+
+        assertTrue(future.isCompletedExceptionally());
+        assertFalse(singleFlight.isInFlight(2L));
+        assertEquals("product-2", singleFlight.load(2L, () -> "product-2").join());
+    }
+
+    @Test
+    public void TestLoadAsync_ExecutorRejects_KeyReleased() {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+        CompletableFuture<String> future = singleFlight.loadAsync(3L, () -> "product-3", runnable -> {
+            throw new RejectedExecutionException("queue full");
+        });
+
+        assertTrue(future.isCompletedExceptionally());
+        assertFalse(singleFlight.isInFlight(3L));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
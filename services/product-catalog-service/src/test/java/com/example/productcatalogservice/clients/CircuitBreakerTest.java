@@ -0,0 +1,77 @@
+package com.example.productcatalogservice.clients;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(10, 5, 50, 1000, 2, now::get);
+
+    @Test
+    public void TestOnFailure_BelowMinimumCalls_StaysClosed() {
+        for(int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void TestOnFailure_RateReachesThreshold_OpensAndRejects() {
+        for(int i = 0; i < 5; i++) {
+            circuitBreaker.onSuccess();
+        }
+        for(int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void TestHalfOpen_TrialCallsSucceed_Closes() {
+        open();
+        now.addAndGet(1000);
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    public void TestHalfOpen_TrialCallFails_OpensAgain() {
+        open();
+        now.addAndGet(1000);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        now.addAndGet(999);
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void open() {
+        for(int i = 0; i < 5; i++) {
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.productcatalogservice.clients;
+
+import com.example.productcatalogservice.dtos.FakeStoreProductDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against a local stub server instead of fakestoreapi.com
+class FakeStoreApiClientTest {
+
+    private HttpServer server;
+
+    private FakeStoreApiClient fakeStoreApiClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final CountDownLatch releaseSlowResponse = new CountDownLatch(1);
+
+    private final AtomicInteger serverErrors = new AtomicInteger();
+
+    private final AtomicInteger hedgedCalls = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/products/1", exchange -> respond(exchange, 200,
+                "{\"id\":1,\"title\":\"Backpack\",\"price\":109.95,\"category\":\"bags\",\"rating\":{\"rate\":3.9}}"));
+        server.createContext("/products/2", exchange -> respond(exchange, 200, ""));
+        server.createContext("/products/3", exchange -> {
+            serverErrors.incrementAndGet();
+            respond(exchange, 500, "oops");
+        });
+        // Only the first call is slow
+        server.createContext("/products/hedged", exchange -> {
+            if(hedgedCalls.incrementAndGet() == 1) {
+                try {
+                    releaseSlowResponse.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 200, "{\"id\":" + hedgedCalls.get() + "}");
+        });
+        server.createContext("/products/slow", exchange -> {
+            try {
+                releaseSlowResponse.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{}");
+        });
+        server.start();
+
+        fakeStoreApiClient = newClient(2, false);
+    }
+
+    private FakeStoreApiClient newClient(int maxConcurrentRequests, boolean hedgeEnabled) {
+        meterRegistry = new SimpleMeterRegistry();
+        FakeStoreApiClient client = new FakeStoreApiClient();
+        ReflectionTestUtils.setField(client, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(client, "readTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(client, "maxConcurrentRequests", maxConcurrentRequests);
+        ReflectionTestUtils.setField(client, "clientThreads", 2);
+        ReflectionTestUtils.setField(client, "circuitWindowSize", 4);
+        ReflectionTestUtils.setField(client, "circuitMinimumCalls", 4);
+        ReflectionTestUtils.setField(client, "circuitFailureRateThreshold", 50D);
+        ReflectionTestUtils.setField(client, "circuitOpenDurationMs", 60000L);
+        ReflectionTestUtils.setField(client, "circuitHalfOpenCalls", 1);
+        ReflectionTestUtils.setField(client, "hedgeEnabled", hedgeEnabled);
+        ReflectionTestUtils.setField(client, "hedgeMinDelayMs", 20L);
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(client, "meterRegistry", meterRegistry);
+        client.init();
+        return client;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        releaseSlowResponse.countDown();
+        server.stop(0);
+        fakeStoreApiClient.shutdown();
+    }
+
+    @Test
+    public void TestGet_ReadsBodyIgnoringUnknownFields() {
+        FakeStoreProductDto product = fakeStoreApiClient.get("/products/1", FakeStoreProductDto.class).join();
+
+        assertEquals(1L, product.getId());
+        assertEquals("Backpack", product.getTitle());
+        assertEquals(2, fakeStoreApiClient.getAvailablePermits());
+    }
+
+    @Test
+    public void TestGet_EmptyBodyOrNotFound_CompletesWithNull() {
+        assertNull(fakeStoreApiClient.get("/products/2", FakeStoreProductDto.class).join());
+        assertNull(fakeStoreApiClient.get("/missing", FakeStoreProductDto.class).join());
+    }
+
+    @Test
+    public void TestGet_ServerError_FailsWithClientException() {
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> fakeStoreApiClient.get("/products/3", FakeStoreProductDto.class).join());
+
+        assertInstanceOf(FakeStoreClientException.class, exception.getCause());
+        assertEquals(2, fakeStoreApiClient.getAvailablePermits());
+    }
+
+    @Test
+    public void TestSend_ConcurrencyLimitReached_FailsFastWithoutBlocking() {
+        CompletableFuture<FakeStoreProductDto> first = fakeStoreApiClient.get("/products/slow", FakeStoreProductDto.class);
+        CompletableFuture<FakeStoreProductDto> second = fakeStoreApiClient.get("/products/slow", FakeStoreProductDto.class);
+
+        CompletableFuture<FakeStoreProductDto> third = fakeStoreApiClient.get("/products/1", FakeStoreProductDto.class);
+
+        assertTrue(third.isCompletedExceptionally());
+        releaseSlowResponse.countDown();
+        assertNotNull(first.join());
+        assertNotNull(second.join());
+        assertEquals(2, fakeStoreApiClient.getAvailablePermits());
+    }
+
+    @Test
+    public void TestCircuit_OpensOnServerErrors_ShortCircuitsWithoutCallingUpstream() {
+        for(int i = 0; i < 4; i++) {
+            assertThrows(CompletionException.class,
+                    () -> fakeStoreApiClient.get("/products/3", FakeStoreProductDto.class).join());
+        }
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> fakeStoreApiClient.get("/products/1", FakeStoreProductDto.class).join());
+
+        assertEquals("FakeStore circuit is open", exception.getCause().getMessage());
+        assertEquals(4, serverErrors.get());
+        assertEquals(CircuitBreaker.State.OPEN, fakeStoreApiClient.getCircuitState());
+        assertEquals(1, meterRegistry.get("fakestore.circuit.state").gauge().value());
+        assertEquals(1, meterRegistry.get("fakestore.requests").tag("outcome", "circuit_open").counter().count());
+    }
+
+    @Test
+    public void TestHedge_SlowerThanP95_SecondRequestAnswers() throws Exception {
+        fakeStoreApiClient.shutdown();
+        fakeStoreApiClient = newClient(4, true);
+        for(int i = 0; i < 20; i++) {
+            fakeStoreApiClient.get("/products/1", FakeStoreProductDto.class).join();
+        }
+
+        FakeStoreProductDto product = fakeStoreApiClient.get("/products/hedged", FakeStoreProductDto.class)
+                .get(3, TimeUnit.SECONDS);
+
+        assertEquals(2L, product.getId());
+        assertEquals(1, meterRegistry.get("fakestore.hedges").counter().count());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try(OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
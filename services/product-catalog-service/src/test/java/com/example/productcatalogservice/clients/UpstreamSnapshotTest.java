@@ -0,0 +1,165 @@
+package com.example.productcatalogservice.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamSnapshotTest {
+
+    private static final String ETAG = "W/\"catalog-1\"";
+
+    private HttpServer server;
+
+    private FakeStoreApiClient fakeStoreApiClient;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger mappings = new AtomicInteger();
+
+    private final AtomicReference<String> lastIfNoneMatch = new AtomicReference<>();
+
+    private volatile int status = 200;
+
+    private volatile CountDownLatch releaseResponse = new CountDownLatch(0);
+
+    private UpstreamSnapshot<String[], List<String>> snapshot;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/products", this::handle);
+        server.start();
+
+        fakeStoreApiClient = new FakeStoreApiClient();
+        ReflectionTestUtils.setField(fakeStoreApiClient, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(fakeStoreApiClient, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "readTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "maxConcurrentRequests", 8);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "clientThreads", 2);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(fakeStoreApiClient, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(fakeStoreApiClient, "circuitWindowSize", 20);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "circuitMinimumCalls", 10);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "circuitFailureRateThreshold", 50D);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "circuitOpenDurationMs", 30000L);
+        ReflectionTestUtils.setField(fakeStoreApiClient, "circuitHalfOpenCalls", 3);
+        fakeStoreApiClient.init();
+
+        snapshot = new UpstreamSnapshot<>(fakeStoreApiClient, "/products", String[].class, titles -> {
+            mappings.incrementAndGet();
+            return List.of(titles);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        releaseResponse.countDown();
+        server.stop(0);
+        fakeStoreApiClient.shutdown();
+    }
+
+    @Test
+    public void TestGet_LoadsOnceThenServesLocalCopy() {
+        assertEquals(List.of("Backpack", "Jacket"), snapshot.get().join());
+        assertEquals(List.of("Backpack", "Jacket"), snapshot.get().join());
+
+        assertEquals(1, requests.get());
+        assertTrue(snapshot.getAgeMillis() >= 0);
+    }
+
+    @Test
+    public void TestRefresh_NotModified_KeepsCopyWithoutRemapping() {
+        List<String> loaded = snapshot.get().join();
+
+        List<String> refreshed = snapshot.refresh().join();
+
+        assertSame(loaded, refreshed);
+        assertEquals(ETAG, lastIfNoneMatch.get());
+        assertEquals(2, requests.get());
+        assertEquals(1, mappings.get());
+    }
+
+    @Test
+    public void TestRefresh_UpstreamFails_ServesStaleCopy() {
+        List<String> loaded = snapshot.get().join();
+        status = 500;
+
+        assertSame(loaded, snapshot.refresh().join());
+        assertSame(loaded, snapshot.get().join());
+    }
+
+    @Test
+    public void TestRefresh_ConcurrentCallsShareOneRequest() throws Exception {
+        snapshot.get().join();
+        releaseResponse = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> first = snapshot.refresh();
+        CompletableFuture<List<String>> second = snapshot.refresh();
+        // Readers are not held up by the running refresh
+        assertTrue(snapshot.get().isDone());
+        releaseResponse.countDown();
+
+        assertEquals(List.of("Backpack", "Jacket"), first.get(5, TimeUnit.SECONDS));
+        assertSame(first.get(), second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void TestGet_OneCallerTimesOut_OthersStillGetTheFirstLoad() throws Exception {
+        releaseResponse = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> impatient = snapshot.get().orTimeout(50, TimeUnit.MILLISECONDS);
+        CompletableFuture<List<String>> patient = snapshot.get();
+        assertThrows(Exception.class, () -> impatient.get(5, TimeUnit.SECONDS));
+        releaseResponse.countDown();
+
+        assertEquals(List.of("Backpack", "Jacket"), patient.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        lastIfNoneMatch.set(exchange.getRequestHeaders().getFirst("If-None-Match"));
+        try {
+            releaseResponse.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(status != 200) {
+            exchange.sendResponseHeaders(status, -1);
+        } else if(ETAG.equals(lastIfNoneMatch.get())) {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            byte[] body = "[\"Backpack\",\"Jacket\"]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+        exchange.close();
+    }
+}
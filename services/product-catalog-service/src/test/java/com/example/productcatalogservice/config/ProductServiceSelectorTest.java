@@ -0,0 +1,44 @@
+package com.example.productcatalogservice.config;
+
+import com.example.productcatalogservice.services.CompositeProductService;
+import com.example.productcatalogservice.services.FakeStoreProductService;
+import com.example.productcatalogservice.services.IProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductServiceSelectorTest {
+
+    @Test
+    public void TestPostProcessBeanFactory_ConfiguredServiceBecomesPrimary() {
+        GenericApplicationContext context = context("fake-store-service");
+
+        assertFalse(context.getBeanDefinition("storage-product-service").isPrimary());
+        assertTrue(context.getBeanDefinition("fake-store-service").isPrimary());
+        assertFalse(context.getBeanDefinition("composite-product-service").isPrimary());
+    }
+
+    @Test
+    public void TestPostProcessBeanFactory_UnknownService_FailsStartup() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> context("remote-service"));
+
+        assertTrue(exception.getMessage().startsWith("products.service=remote-service"));
+    }
+
+    private static GenericApplicationContext context(String selected) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.setEnvironment(new MockEnvironment().withProperty("products.service", selected));
+        // Definitions only, refreshing the context would need the whole application
+        context.registerBeanDefinition("storage-product-service", new RootBeanDefinition(IProductService.class));
+        context.registerBeanDefinition("fake-store-service", new RootBeanDefinition(FakeStoreProductService.class));
+        context.registerBeanDefinition("composite-product-service", new RootBeanDefinition(CompositeProductService.class));
+
+        ProductServiceSelector productServiceSelector = new ProductServiceSelector();
+        productServiceSelector.setEnvironment(context.getEnvironment());
+        productServiceSelector.postProcessBeanFactory(context.getBeanFactory());
+        return context;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.productcatalogservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(DataSourcePropertiesConfig.class, ReplicaRoutingConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:h2:mem:primary",
+                    "products.datasource.replica-urls=jdbc:h2:mem:replica");
+
+    @Test
+    public void TestPrimaryDataSource_HikariPropertiesApplied() {
+        contextRunner
+                .withPropertyValues(
+                        "spring.datasource.hikari.maximum-pool-size=3",
+                        "spring.datasource.hikari.connection-timeout=1500")
+                .run(context -> {
+                    HikariDataSource primary = context.getBean("primaryDataSource", HikariDataSource.class);
+
+                    assertEquals("jdbc:h2:mem:primary", primary.getJdbcUrl());
+                    assertEquals("primary", primary.getPoolName());
+                    assertEquals(3, primary.getMaximumPoolSize());
+                    assertEquals(1500, primary.getConnectionTimeout());
+                });
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(DataSourceProperties.class)
+    static class DataSourcePropertiesConfig {
+    }
+}
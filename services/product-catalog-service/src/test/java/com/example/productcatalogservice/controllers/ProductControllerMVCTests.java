@@ -2,6 +2,7 @@ package com.example.productcatalogservice.controllers;
 
 import com.example.productcatalogservice.controllers.ProductController;
 import com.example.productcatalogservice.dtos.ProductDto;
+import com.example.productcatalogservice.mappers.ProductMapper;
 import com.example.productcatalogservice.modals.Product;
 import com.example.productcatalogservice.services.IProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,20 +10,37 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ProductController.class)
+@Import(ProductMapper.class)
 public class ProductControllerMVCTests {
 
     @Autowired
@@ -48,22 +66,137 @@ public class ProductControllerMVCTests {
         List<Product> products = new ArrayList<>();
         products.add(product);
         products.add(product2);
-        when(productService.getAllProducts()).thenReturn(products);
+        when(productService.getCatalog()).thenReturn(new IProductService.Catalog(null, products));
 
+        mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(objectMapper.writeValueAsString(products)));
+    }
 
-        ProductDto productDto = new ProductDto();
-        productDto.setName("Iphone");
-        productDto.setId(1L);
-        ProductDto productDto2= new ProductDto();
-        productDto2.setId(2L);
-        productDto2.setName("Macbook");
-        List<ProductDto> productDtos = new ArrayList<>();
-        productDtos.add(productDto);
-        productDtos.add(productDto2);
+    @Test
+    public void Test_GetProductsByIds_ReturnsProductsInRequestOrder() throws Exception {
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Iphone");
+        Product product2 = new Product();
+        product2.setId(3L);
+        product2.setName("Macbook");
+        when(productService.getProductsByIds(List.of(7L, 3L))).thenReturn(List.of(product, product2));
 
-        mockMvc.perform(get("/products"))
+        mockMvc.perform(get("/products").param("ids", "7,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[1].name").value("Macbook"))
+                .andExpect(jsonPath("$[0].state").value("ACTIVE"))
+                .andExpect(jsonPath("$[0].createdAt").exists());
+    }
+
+    @Test
+    public void Test_GetProductsByIds_WithNegativeId_BadRequest() throws Exception {
+        mockMvc.perform(get("/products").param("ids", "7,-3"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void Test_GetProduct_SetsETagAndCacheControl() throws Exception {
+        Product product = new Product();
+        product.setId(4L);
+        product.setName("Iphone");
+        product.setUpdatedAt(new Date(1700000000000L));
+        product.setVersion(2L);
+        when(productService.getProductById(4L)).thenReturn(product);
+
+        mockMvc.perform(get("/products/4"))
                 .andExpect(status().isOk())
-                .andExpect(content().string(objectMapper.writeValueAsString(productDtos)));
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-2-1700000000000\""))
+                .andExpect(jsonPath("$.version").value(2))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=30, public, s-maxage=60"));
+    }
+
+    @Test
+    public void Test_GetProduct_IfNoneMatchesVersion_NotModifiedWithoutLoadingProduct() throws Exception {
+        when(productService.getProductVersion(4L)).thenReturn("2-1700000000000");
+
+        mockMvc.perform(get("/products/4").header(HttpHeaders.IF_NONE_MATCH, "\"3-1-1\", W/\"4-2-1700000000000\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-2-1700000000000\""))
+                .andExpect(content().string(""));
+
+        verify(productService, never()).getProductById(4L);
+    }
+
+    @Test
+    public void Test_GetProduct_StaleIfNoneMatch_ReturnsProduct() throws Exception {
+        Product product = new Product();
+        product.setId(4L);
+        product.setName("Iphone");
+        product.setUpdatedAt(new Date(1700000000001L));
+        product.setVersion(3L);
+        when(productService.getProductVersion(4L)).thenReturn("3-1700000000001");
+        when(productService.getProductById(4L)).thenReturn(product);
+
+        mockMvc.perform(get("/products/4").header(HttpHeaders.IF_NONE_MATCH, "\"4-2-1700000000000\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-3-1700000000001\""))
+                .andExpect(jsonPath("$.name").value("Iphone"));
+    }
+
+    @Test
+    public void Test_GetProducts_IfNoneMatchesCatalogVersion_NotModified() throws Exception {
+        when(productService.getCatalogVersion()).thenReturn("9-1700000000000-45");
+
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, "\"9-1700000000000-45\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"9-1700000000000-45\""));
+
+        verify(productService, never()).getCatalog();
+    }
+
+    @Test
+    public void Test_GetProducts_ChangedCatalog_ETagFromTheVersionReadWithTheRows() throws Exception {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Iphone");
+        when(productService.getCatalogVersion()).thenReturn("9-1700000000000-45");
+        when(productService.getCatalog()).thenReturn(new IProductService.Catalog("10-1700000000001-46", List.of(product)));
+
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, "\"8-1690000000000-44\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"10-1700000000001-46\""))
+                .andExpect(jsonPath("$[0].name").value("Iphone"));
+    }
+
+    @Test
+    public void Test_PatchProduct_CurrentVersion_NoContentWithNewETag() throws Exception {
+        when(productService.patchProduct(eq(4L), eq(2L), any(Product.class))).thenReturn("3-1700000000000");
+
+        mockMvc.perform(patch("/products/4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":149.5,\"version\":2}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-3-1700000000000\""));
+
+        verify(productService).patchProduct(eq(4L), eq(2L), argThat(changes ->
+                changes.getPrice() == 149.5D && changes.getName() == null && changes.getVersion() == null));
+    }
+
+    @Test
+    public void Test_PatchProduct_StaleVersion_Conflict() throws Exception {
+        when(productService.patchProduct(eq(4L), eq(1L), any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 4L));
+
+        mockMvc.perform(patch("/products/4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":149.5,\"version\":1}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void Test_PatchProduct_WithoutVersion_BadRequest() throws Exception {
+        mockMvc.perform(patch("/products/4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":149.5}"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -87,4 +220,39 @@ public class ProductControllerMVCTests {
                 .andExpect(status().isOk())
                 .andExpect(content().string(objectMapper.writeValueAsString(productDto)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void Test_StreamProducts_WritesOneProductPerLine() throws Exception {
+        //Arrange
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Iphone");
+
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setName("Macbook");
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            action.accept(product);
+            action.accept(product2);
+            return null;
+        }).when(productService).forEachProduct(any());
+
+        ProductDto productDto = new ProductDto();
+        productDto.setName("Iphone");
+        productDto.setId(1L);
+        ProductDto productDto2= new ProductDto();
+        productDto2.setId(2L);
+        productDto2.setName("Macbook");
+
+        //Act and Assert
+        MvcResult mvcResult = mockMvc.perform(get("/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(objectMapper.writeValueAsString(productDto) + "\n"
+                        + objectMapper.writeValueAsString(productDto2) + "\n"));
+    }
+}
@@ -37,7 +37,7 @@ class ProductControllerTest {
         when(productService.getProductById(id)).thenReturn(product);
 
         //Act
-        ProductDto productDto = productController.getProductDetails(id);
+        ProductDto productDto = productController.getProductDetails(id, null).getBody();
 
         //Assert
         assertNotNull(productDto);
@@ -54,7 +54,7 @@ class ProductControllerTest {
         //productController.getProductDetails(-1L);
 
         Exception exception = assertThrows(IllegalArgumentException.class,
-                ()->productController.getProductDetails(-5L));
+                ()->productController.getProductDetails(-5L, null));
         assertEquals(exception.getMessage(),"Please pass productId greater than 0");
 
         verify(productService,times(0)).getProductById(-5L);
@@ -70,7 +70,7 @@ class ProductControllerTest {
         when(productService.getProductById(productId)).thenReturn(product);
 
         //Act
-        productController.getProductDetails(productId);
+        productController.getProductDetails(productId, null);
 
         //Assert
         verify(productService).getProductById(idCaptor.capture());
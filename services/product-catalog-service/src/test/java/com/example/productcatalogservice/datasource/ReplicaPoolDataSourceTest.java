@@ -0,0 +1,160 @@
+package com.example.productcatalogservice.datasource;
+
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Each node is its own in-memory H2 database that knows its name
+class ReplicaPoolDataSourceTest {
+
+    private static final String LAG_QUERY = "SELECT seconds FROM lag";
+
+    private final List<DataSource> nodes = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        nodes.forEach(node -> new JdbcTemplate(node).execute("SHUTDOWN"));
+    }
+
+    @Test
+    public void TestReadOnlyTransactions_AlternateReplicas_WritesUsePrimary() {
+        ReplicaPoolDataSource pool = pool(ReplicaPoolDataSource.Selection.ROUND_ROBIN, "replica-0", "replica-1");
+        DataSource dataSource = routing(pool);
+
+        List<String> reads = List.of(read(dataSource), read(dataSource), read(dataSource), read(dataSource));
+        assertEquals(List.of("replica-0", "replica-1", "replica-0", "replica-1"), reads);
+        assertEquals("primary", write(dataSource));
+        // Outside a transaction nothing marks the connection read only
+        assertEquals("primary", new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    public void TestOnPrimary_ReadOnlyTransaction_UsesPrimary() {
+        ReplicaPoolDataSource pool = pool(ReplicaPoolDataSource.Selection.ROUND_ROBIN, "replica-0");
+        DataSource dataSource = routing(pool);
+
+        assertEquals("primary", DataSourceRouting.onPrimary(() -> read(dataSource)));
+        assertEquals("replica-0", read(dataSource));
+    }
+
+    @Test
+    public void TestCheckReplicas_LaggingReplica_LeftOutUntilItCatchesUp() {
+        ReplicaPoolDataSource pool = pool(ReplicaPoolDataSource.Selection.ROUND_ROBIN, "replica-0", "replica-1");
+        DataSource dataSource = routing(pool);
+        setLag(pool.getReplicas().get(0), 10);
+
+        pool.checkReplicas();
+        assertFalse(pool.getReplicas().get(0).isHealthy());
+        assertEquals("replica-1", read(dataSource));
+        assertEquals("replica-1", read(dataSource));
+
+        setLag(pool.getReplicas().get(1), 10);
+        pool.checkReplicas();
+        assertEquals("primary", read(dataSource));
+
+        setLag(pool.getReplicas().get(0), 0.5);
+        pool.checkReplicas();
+        assertTrue(pool.getReplicas().get(0).isHealthy());
+        assertEquals(500, pool.getMaxReplicaLagMs());
+        assertEquals("replica-0", read(dataSource));
+    }
+
+    @Test
+    public void TestGetConnection_ReplicaDown_FallsBackAndIsMarkedUnhealthy() {
+        ReplicaPoolDataSource.Replica down = new ReplicaPoolDataSource.Replica("down",
+                new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:missing;IFEXISTS=TRUE"));
+        ReplicaPoolDataSource pool = new ReplicaPoolDataSource(node("primary"), List.of(down),
+                ReplicaPoolDataSource.Selection.ROUND_ROBIN, 5000, LAG_QUERY);
+
+        assertEquals("primary", read(routing(pool)));
+        assertFalse(down.isHealthy());
+    }
+
+    @Test
+    public void TestLeastLatency_PrefersFastestReplica() {
+        ReplicaPoolDataSource pool = pool(ReplicaPoolDataSource.Selection.LEAST_LATENCY, "replica-0", "replica-1");
+        ReflectionTestUtils.setField(pool.getReplicas().get(0), "latencyMicros", 900.0);
+        ReflectionTestUtils.setField(pool.getReplicas().get(1), "latencyMicros", 300.0);
+        DataSource dataSource = routing(pool);
+
+        assertEquals("replica-1", read(dataSource));
+        assertEquals("replica-1", read(dataSource));
+    }
+
+    @Test
+    public void TestReadYourWrites_RecentlyWrittenProduct_ReadFromPrimary() {
+        ReplicaPoolDataSource pool = pool(ReplicaPoolDataSource.Selection.ROUND_ROBIN, "replica-0");
+        DataSource dataSource = routing(pool);
+        ReadYourWrites readYourWrites = new ReadYourWrites();
+        ReflectionTestUtils.setField(readYourWrites, "replicaPoolDataSource", pool);
+        ReflectionTestUtils.setField(readYourWrites, "enabled", true);
+        ReflectionTestUtils.setField(readYourWrites, "minWindowMs", 60000L);
+        ReflectionTestUtils.setField(readYourWrites, "maxWindowMs", 60000L);
+        ReflectionTestUtils.setField(readYourWrites, "maximumSize", 100L);
+        readYourWrites.init();
+
+        readYourWrites.onProductChanged(ProductChangedEvent.patched(1L));
+
+        assertEquals("primary", readYourWrites.read(1L, () -> read(dataSource)));
+        assertEquals("primary", readYourWrites.read(List.of(2L, 1L), () -> read(dataSource)));
+        assertEquals("replica-0", readYourWrites.read(2L, () -> read(dataSource)));
+    }
+
+    private ReplicaPoolDataSource pool(ReplicaPoolDataSource.Selection selection, String... replicaNames) {
+        List<ReplicaPoolDataSource.Replica> replicas = new ArrayList<>();
+        for(String replicaName : replicaNames) {
+            replicas.add(new ReplicaPoolDataSource.Replica(replicaName, node(replicaName)));
+        }
+        return new ReplicaPoolDataSource(node("primary"), replicas, selection, 5000, LAG_QUERY);
+    }
+
+    private DataSource node(String name) {
+        DataSource node = new SimpleDriverDataSource(new org.h2.Driver(),
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(node);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(32))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE lag (seconds DOUBLE)");
+        jdbcTemplate.update("INSERT INTO lag VALUES (0)");
+        nodes.add(node);
+        return node;
+    }
+
+    private static void setLag(ReplicaPoolDataSource.Replica replica, double seconds) {
+        new JdbcTemplate(replica.getDataSource()).update("UPDATE lag SET seconds = ?", seconds);
+    }
+
+    private static DataSource routing(ReplicaPoolDataSource pool) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(pool.getPrimary());
+        dataSource.setReadOnlyDataSource(pool);
+        return dataSource;
+    }
+
+    private static String read(DataSource dataSource) {
+        return nodeName(dataSource, true);
+    }
+
+    private static String write(DataSource dataSource) {
+        return nodeName(dataSource, false);
+    }
+
+    private static String nodeName(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+}
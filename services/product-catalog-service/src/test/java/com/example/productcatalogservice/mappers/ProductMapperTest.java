@@ -0,0 +1,104 @@
+package com.example.productcatalogservice.mappers;
+
+import com.example.productcatalogservice.dtos.ProductDto;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.modals.State;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductMapperTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ProductMapper productMapper = new ProductMapper();
+
+    @Test
+    public void TestWriteJson_SameJsonAsProductDto() throws IOException {
+        Product product = product(1L, category(2L, "Phones", null));
+        product.setDescription("Apple \"Iphone\" 15\n128GB");
+        product.setImageUrl("https://cdn.example.com/1.jpg");
+        product.setPrice(79999.5D);
+        product.setVersion(4L);
+        Product sparseProduct = new Product();
+        sparseProduct.setName("No id");
+        List<Product> products = List.of(product, sparseProduct, product(3L, null));
+
+        String expected = objectMapper.writeValueAsString(products.stream().map(productMapper::toDto).toList());
+
+        assertEquals(expected, write(products, productMapper::writeJsonArray));
+    }
+
+    @Test
+    public void TestWriteEntityJson_SameJsonAsProduct() throws IOException {
+        Category category = category(2L, "Phones", null);
+        category.setVersion(1L);
+        Product product = product(1L, category);
+        product.setDescription("Apple \"Iphone\" 15\n128GB");
+        product.setPrice(79999.5D);
+        product.setVersion(4L);
+        product.setIsPrime(true);
+        product.setState(State.DELETED);
+        Product sparseProduct = new Product();
+        sparseProduct.setName("No id");
+        sparseProduct.setCreatedAt(null);
+        List<Product> products = List.of(product, sparseProduct, product(3L, null));
+
+        String expected = objectMapper.writeValueAsString(products);
+
+        assertEquals(expected, write(products, productMapper::writeEntityJsonArray));
+    }
+
+    @Test
+    public void TestToDto_SameCategory_SharesCategoryDto() {
+        ProductDto first = productMapper.toDto(product(1L, category(2L, "Phones", "Smart phones")));
+        ProductDto second = productMapper.toDto(product(2L, category(2L, "Phones", "Smart phones")));
+
+        assertSame(first.getCategory(), second.getCategory());
+    }
+
+    @Test
+    public void TestToDto_RenamedCategory_NewCategoryDto() {
+        ProductDto first = productMapper.toDto(product(1L, category(2L, "Phones", null)));
+        ProductDto second = productMapper.toDto(product(2L, category(2L, "Mobiles", null)));
+
+        assertNotSame(first.getCategory(), second.getCategory());
+        assertEquals("Mobiles", second.getCategory().getName());
+        assertSame(second.getCategory(), productMapper.toDto(product(3L, category(2L, "Mobiles", null))).getCategory());
+    }
+
+    private String write(List<Product> products, ArrayWriter arrayWriter) throws IOException {
+        StringWriter json = new StringWriter();
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            arrayWriter.write(generator, products);
+        }
+        return json.toString();
+    }
+
+    private interface ArrayWriter {
+        void write(JsonGenerator generator, List<Product> products) throws IOException;
+    }
+
+    private static Product product(Long id, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(Long id, String name, String description) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        category.setDescription(description);
+        return category;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.productcatalogservice.repos;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against an in-memory H2 database, the list queries must not issue one select per category
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eureka.client.enabled=false"
+})
+class ProductRepoStatementCountTest {
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        for(long categoryId = 1; categoryId <= 3; categoryId++) {
+            Category category = new Category();
+            category.setId(categoryId);
+            category.setName("Category" + categoryId);
+            for(long i = 0; i < 3; i++) {
+                Product product = new Product();
+                product.setId(categoryId * 10 + i);
+                product.setName(i == 0 ? "Iphone" : "Product" + categoryId + i);
+                product.setPrice(100D * (categoryId + i));
+                product.setCategory(category);
+                productRepo.save(product);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void TestFindAll_LoadsCategoriesInOneStatement() {
+        List<Product> products = productRepo.findAll();
+
+        assertEquals(9, products.size());
+        products.forEach(product -> assertNotNull(product.getCategory().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindProductByOrderByPriceDesc_LoadsCategoriesInOneStatement() {
+        List<Product> products = productRepo.findProductByOrderByPriceDesc();
+
+        assertEquals(9, products.size());
+        products.forEach(product -> assertNotNull(product.getCategory().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindByPriceBetween_StopsAtLimitInPriceAndIdOrder() {
+        List<Product> products = productRepo.findByPriceBetween(200D, 300D,
+                Sort.by(Sort.Direction.DESC, "price", "id"), Limit.of(3));
+
+        assertEquals(List.of(30L, 21L, 12L), products.stream().map(Product::getId).toList());
+        products.forEach(product -> assertNotNull(product.getCategory().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindByCategoryNameAndPriceBetween_CheapestOfCategory() {
+        List<Product> products = productRepo.findByCategory_NameAndPriceBetween("Category2", -Double.MAX_VALUE,
+                Double.MAX_VALUE, Sort.by("price", "id"), Limit.of(2));
+
+        assertEquals(List.of(20L, 21L), products.stream().map(Product::getId).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindByNameEquals_PageRunsContentAndCountStatementsOnly() {
+        Page<Product> products = productRepo.findByNameEquals("Iphone", PageRequest.of(0, 2));
+
+        assertEquals(3, products.getTotalElements());
+        products.forEach(product -> assertNotNull(product.getCategory().getName()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindByNameEquals_WindowLoadsCategoriesInOneStatement() {
+        Window<Product> products = productRepo.findByNameEquals("Iphone", ScrollPosition.keyset(),
+                Sort.by("id"), Limit.of(5));
+
+        assertEquals(3, products.size());
+        products.forEach(product -> assertNotNull(product.getCategory().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindAllById_LoadsCategoriesInOneStatement() {
+        List<Product> products = productRepo.findAllById(List.of(10L, 20L, 30L));
+
+        assertEquals(3, products.size());
+        products.forEach(product -> assertNotNull(product.getCategory().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestCategoryProducts_AreLoadedInBatches() {
+        List<Category> categories = categoryRepo.findAll();
+
+        categories.forEach(category -> assertEquals(3, category.getProducts().size()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void TestFindVersionById_OneStatementNoEntityLoaded() {
+        ProductRepo.ProductVersion productVersion = productRepo.findVersionById(10L).orElseThrow();
+        assertEquals(0L, productVersion.getVersion());
+        assertNotNull(productVersion.getUpdatedAt());
+        assertTrue(productRepo.findVersionById(99L).isEmpty());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void TestFindCatalogVersion_ChangesWhenAProductIsDeleted() {
+        ProductRepo.CatalogVersion before = productRepo.findCatalogVersion();
+        productRepo.deleteAllByIdInBatch(List.of(11L));
+        ProductRepo.CatalogVersion after = productRepo.findCatalogVersion();
+
+        assertEquals(9, before.getCount());
+        assertEquals(8, after.getCount());
+        assertEquals(before.getIdSum() - 11, after.getIdSum());
+        assertNotNull(after.getLastUpdatedAt());
+    }
+
+    @Test
+    public void TestPatch_CurrentVersion_OneUpdateStatementAndVersionBumped() {
+        Date updatedAt = new Date();
+
+        int updated = productRepo.patch(10L, 0L, null, null, null, 149.5D, updatedAt);
+
+        assertEquals(1, updated);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        Product product = productRepo.findById(10L).orElseThrow();
+        assertEquals(149.5D, product.getPrice());
+        assertEquals("Iphone", product.getName());
+        assertEquals(1L, product.getVersion());
+    }
+
+    @Test
+    public void TestPatch_StaleVersion_NothingUpdated() {
+        assertEquals(1, productRepo.patch(10L, 0L, "Iphone 15", null, null, null, new Date()));
+
+        assertEquals(0, productRepo.patch(10L, 0L, "Iphone 16", null, null, null, new Date()));
+
+        assertEquals("Iphone 15", productRepo.findById(10L).orElseThrow().getName());
+    }
+}
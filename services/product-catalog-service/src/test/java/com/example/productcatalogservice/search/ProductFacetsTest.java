@@ -0,0 +1,151 @@
+package com.example.productcatalogservice.search;
+
+import com.example.productcatalogservice.dtos.CategoryFacetDto;
+import com.example.productcatalogservice.dtos.SearchFacetsDto;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import com.example.productcatalogservice.search.ProductFacets.FacetCounts;
+import com.example.productcatalogservice.services.ProductFacetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetsTest {
+    private static final long PHONES = 7L;
+
+    private static final long REFURBISHED = 8L;
+
+    private static final long ACCESSORIES = 9L;
+
+    private ProductFacets productFacets;
+
+    @BeforeEach
+    public void setUp() {
+        productFacets = new ProductFacets(List.of(0.0, 100.0, 500.0));
+        productFacets.index(product(1L, "iPhone", 799.0, PHONES));
+        productFacets.index(product(2L, "iphone ", 99.0, REFURBISHED));
+        productFacets.index(product(3L, "Galaxy", 450.0, PHONES));
+        productFacets.index(product(4L, "Cable", null, null));
+    }
+
+    @Test
+    public void TestForCatalog_CountsEveryProduct() {
+        FacetCounts facetCounts = productFacets.forCatalog();
+
+        assertEquals(4, facetCounts.total());
+        assertEquals(Map.of(PHONES, 2L, REFURBISHED, 1L), facetCounts.categories());
+        assertArrayEquals(new long[]{1, 1, 1}, facetCounts.priceBuckets());
+    }
+
+    @Test
+    public void TestForName_MatchesLikeMySqlNameEquality() {
+        FacetCounts facetCounts = productFacets.forName("IPHONE");
+
+        assertEquals(2, facetCounts.total());
+        assertEquals(Map.of(PHONES, 1L, REFURBISHED, 1L), facetCounts.categories());
+        assertArrayEquals(new long[]{1, 0, 1}, facetCounts.priceBuckets());
+        assertEquals(0, productFacets.forName("Pixel").total());
+    }
+
+    @Test
+    public void TestIndex_UpdateAndRemoveAreIncremental() {
+        productFacets.index(product(1L, "Galaxy", 120.0, PHONES));
+
+        assertEquals(1, productFacets.forName("iphone").total());
+        assertEquals(2, productFacets.forName("galaxy").total());
+        assertArrayEquals(new long[]{1, 2, 0}, productFacets.forCatalog().priceBuckets());
+
+        productFacets.remove(2L);
+        productFacets.remove(2L);
+
+        FacetCounts facetCounts = productFacets.forCatalog();
+        assertEquals(3, facetCounts.total());
+        assertEquals(Map.of(PHONES, 2L), facetCounts.categories());
+        assertEquals(0, productFacets.forName("iphone").total());
+    }
+
+    @Test
+    public void TestForProducts_CountsOnlyGivenIds() {
+        FacetCounts facetCounts = productFacets.forProducts(List.of(1L, 3L, 42L));
+
+        assertEquals(2, facetCounts.total());
+        assertEquals(Map.of(PHONES, 2L), facetCounts.categories());
+        assertArrayEquals(new long[]{0, 1, 1}, facetCounts.priceBuckets());
+    }
+
+    @Test
+    public void TestFacetsForName_SortsCategoriesAndLabelsPriceRanges() {
+        ProductFacetService productFacetService = productFacetService(List.of(category(PHONES, "Phones")));
+        productFacetService.index(product(1L, "Case", 10.0, ACCESSORIES));
+        productFacetService.index(product(2L, "Case", 150.0, PHONES));
+        productFacetService.index(product(3L, "Case", 20.0, PHONES));
+
+        SearchFacetsDto searchFacets = productFacetService.facetsForName("case");
+
+        assertEquals(3, searchFacets.getTotal());
+        assertEquals(List.of("Phones", "Accessories"),
+                searchFacets.getCategories().stream().map(CategoryFacetDto::getName).toList());
+        assertEquals(List.of(PHONES, ACCESSORIES),
+                searchFacets.getCategories().stream().map(CategoryFacetDto::getId).toList());
+        assertEquals(0.0, searchFacets.getPriceRanges().get(0).getFrom());
+        assertEquals(100.0, searchFacets.getPriceRanges().get(0).getTo());
+        assertEquals(2, searchFacets.getPriceRanges().get(0).getCount());
+        assertNull(searchFacets.getPriceRanges().get(1).getTo());
+        assertEquals(3, productFacetService.facetsForName(" ").getTotal());
+    }
+
+    @Test
+    public void TestFacetsForName_RenamedCategory_CurrentNameWithoutReindexing() {
+        ProductFacetService productFacetService = productFacetService(List.of(category(PHONES, "Mobiles")));
+        productFacetService.index(product(1L, "Case", 10.0, PHONES));
+        productFacetService.index(product(2L, "Case", 20.0, PHONES));
+
+        SearchFacetsDto searchFacets = productFacetService.facetsForName("case");
+
+        assertEquals(1, searchFacets.getCategories().size());
+        assertEquals("Mobiles", searchFacets.getCategories().get(0).getName());
+        assertEquals(2, searchFacets.getCategories().get(0).getCount());
+    }
+
+    // The repo answers with the stored categories, the others keep the name they were indexed with
+    private static ProductFacetService productFacetService(List<Category> storedCategories) {
+        CategoryRepo categoryRepo = mock(CategoryRepo.class);
+        when(categoryRepo.findAllById(any())).thenReturn(storedCategories);
+        ProductFacetService productFacetService = new ProductFacetService();
+        ReflectionTestUtils.setField(productFacetService, "categoryRepo", categoryRepo);
+        ReflectionTestUtils.setField(productFacetService, "priceBounds", List.of(100.0, 0.0));
+        ReflectionTestUtils.invokeMethod(productFacetService, "init");
+        return productFacetService;
+    }
+
+    private static Product product(Long id, String name, Double price, Long categoryId) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        if(categoryId != null) {
+            product.setCategory(category(categoryId, categoryName(categoryId)));
+        }
+        return product;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    private static String categoryName(long categoryId) {
+        return categoryId == PHONES ? "Phones" : categoryId == REFURBISHED ? "Refurbished" : "Accessories";
+    }
+}
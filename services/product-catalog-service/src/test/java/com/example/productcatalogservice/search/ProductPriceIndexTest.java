@@ -0,0 +1,113 @@
+package com.example.productcatalogservice.search;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPriceIndexTest {
+    private static final long PHONES = 7L;
+
+    private static final long ACCESSORIES = 8L;
+
+    private static final long LAPTOPS = 9L;
+
+    private ProductPriceIndex productPriceIndex;
+
+    @BeforeEach
+    public void setUp() {
+        productPriceIndex = new ProductPriceIndex();
+        productPriceIndex.index(product(1L, 799.0, PHONES));
+        productPriceIndex.index(product(2L, 99.0, ACCESSORIES));
+        productPriceIndex.index(product(3L, 450.0, PHONES));
+        productPriceIndex.index(product(4L, 450.0, PHONES));
+        productPriceIndex.index(product(5L, 19.0, null));
+        productPriceIndex.index(product(6L, null, PHONES));
+    }
+
+    @Test
+    public void TestRange_WithoutBounds_IsTopK() {
+        assertEquals(List.of(1L, 4L, 3L), productPriceIndex.range(null, null, null, 3, true));
+        assertEquals(List.of(5L, 2L), productPriceIndex.range(null, null, null, 2, false));
+        assertEquals(5, productPriceIndex.size());
+    }
+
+    @Test
+    public void TestRange_BoundsAreInclusive() {
+        assertEquals(List.of(2L, 3L, 4L), productPriceIndex.range(99.0, 450.0, null, 10, false));
+        assertEquals(List.of(1L, 4L, 3L), productPriceIndex.range(450.0, null, null, 10, true));
+        assertTrue(productPriceIndex.range(500.0, 100.0, null, 10, false).isEmpty());
+    }
+
+    @Test
+    public void TestRange_CheapestInCategory() {
+        assertEquals(List.of(3L, 4L), productPriceIndex.range(null, null, List.of(PHONES), 2, false));
+        assertEquals(List.of(1L), productPriceIndex.range(500.0, null, List.of(PHONES), 2, false));
+        assertTrue(productPriceIndex.range(null, null, List.of(LAPTOPS), 2, false).isEmpty());
+    }
+
+    @Test
+    public void TestIndex_PriceAndCategoryChangesMoveTheProduct() {
+        productPriceIndex.index(product(1L, 9.0, ACCESSORIES));
+        productPriceIndex.index(product(2L, null, ACCESSORIES));
+        productPriceIndex.remove(3L);
+
+        assertEquals(List.of(1L, 5L, 4L), productPriceIndex.range(null, null, null, 10, false));
+        assertEquals(List.of(4L), productPriceIndex.range(null, null, List.of(PHONES), 10, false));
+        assertEquals(List.of(1L), productPriceIndex.range(null, null, List.of(ACCESSORIES), 10, false));
+    }
+
+    @Test
+    public void TestIndex_ConcurrentWritersLeaveOneKeyPerProduct() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for(int thread = 0; thread < 4; thread++) {
+                int offset = thread;
+                writers.add(executorService.submit(() -> {
+                    for(int i = 0; i < 2000; i++) {
+                        long id = 100 + i % 50;
+                        productPriceIndex.index(product(id, (double) ((i + offset) % 97), (i + offset) % 2 == 0 ? 1L : 2L));
+                    }
+                }));
+            }
+            for(Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertEquals(55, productPriceIndex.size());
+        assertEquals(55, productPriceIndex.range(null, null, null, 1000, false).size());
+        assertEquals(50, productPriceIndex.range(null, null, List.of(1L), 1000, false).size()
+                + productPriceIndex.range(null, null, List.of(2L), 1000, false).size());
+    }
+
+    @Test
+    public void TestRange_SeveralCategories_MergedInPriceOrder() {
+        assertEquals(List.of(2L, 3L, 4L), productPriceIndex.range(null, null, List.of(PHONES, ACCESSORIES), 3, false));
+        assertEquals(List.of(1L, 4L), productPriceIndex.range(null, null, List.of(ACCESSORIES, PHONES, LAPTOPS), 2, true));
+    }
+
+    private static Product product(Long id, Double price, Long categoryId) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(price);
+        if(categoryId != null) {
+            Category category = new Category();
+            category.setId(categoryId);
+            category.setName("Category " + categoryId);
+            product.setCategory(category);
+        }
+        return product;
+    }
+}
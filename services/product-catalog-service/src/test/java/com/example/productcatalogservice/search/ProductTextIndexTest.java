@@ -0,0 +1,85 @@
+package com.example.productcatalogservice.search;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.modals.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductTextIndexTest {
+
+    private ProductTextIndex productTextIndex;
+
+    @BeforeEach
+    public void setUp() {
+        productTextIndex = new ProductTextIndex();
+        productTextIndex.index(product(1L, "iPhone 15", "Apple smartphone with a great camera", "Phones"));
+        productTextIndex.index(product(2L, "Galaxy S24", "Android phone, pairs with the iPhone charger", "Phones"));
+        productTextIndex.index(product(3L, "MacBook Pro", "Laptop for professionals", "Laptops"));
+    }
+
+    @Test
+    public void TestSearch_NameMatchRanksAboveDescriptionMatch() {
+        List<Long> ids = ids(productTextIndex.search("iphone"));
+
+        assertEquals(List.of(1L, 2L), ids);
+    }
+
+    @Test
+    public void TestSearch_PrefixAndPluralMatch() {
+        assertEquals(List.of(3L), ids(productTextIndex.search("macb")));
+        assertEquals(List.of(3L), ids(productTextIndex.search("laptops")));
+    }
+
+    @Test
+    public void TestSearch_MisspelledTermMatchesFuzzily() {
+        assertEquals(List.of(2L), ids(productTextIndex.search("galaxi")));
+    }
+
+    @Test
+    public void TestIndex_UpdateAndRemoveAreIncremental() {
+        productTextIndex.index(product(3L, "ThinkPad X1", "Business laptop", "Laptops"));
+
+        assertTrue(productTextIndex.search("macbook").isEmpty());
+        assertEquals(List.of(3L), ids(productTextIndex.search("thinkpad")));
+
+        productTextIndex.remove(3L);
+
+        assertTrue(productTextIndex.search("thinkpad").isEmpty());
+        assertEquals(2, productTextIndex.size());
+    }
+
+    @Test
+    public void TestIndex_DeletedProductIsNotSearchable() {
+        Product product = product(1L, "iPhone 15", "Apple smartphone", "Phones");
+        product.setState(State.DELETED);
+
+        productTextIndex.index(product);
+
+        assertEquals(List.of(2L), ids(productTextIndex.search("iphone")));
+    }
+
+    @Test
+    public void TestTokenize_FoldsCaseAccentsStopWordsAndPlurals() {
+        assertEquals(List.of("cafe", "phone", "battery"), Tokenizer.tokenize("Café of the PHONES, batteries"));
+    }
+
+    private static List<Long> ids(List<ProductTextIndex.ScoredProduct> results) {
+        return results.stream().map(result -> result.product().getId()).toList();
+    }
+
+    private static Product product(Long id, String name, String description, String categoryName) {
+        Category category = new Category();
+        category.setName(categoryName);
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setCategory(category);
+        return product;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.clients.FakeStoreClientException;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CompositeProductServiceTest {
+
+    private IProductService localProductService;
+
+    private IAsyncProductService remoteProductService;
+
+    private CategoryRepo categoryRepo;
+
+    private ProductCache productCache;
+
+    private CompositeProductService compositeProductService;
+
+    @BeforeEach
+    public void setUp() {
+        localProductService = mock(IProductService.class);
+        remoteProductService = mock(IAsyncProductService.class);
+        categoryRepo = mock(CategoryRepo.class);
+        productCache = mock(ProductCache.class);
+
+        compositeProductService = new CompositeProductService();
+        ReflectionTestUtils.setField(compositeProductService, "localProductService", localProductService);
+        ReflectionTestUtils.setField(compositeProductService, "remoteProductService", remoteProductService);
+        ReflectionTestUtils.setField(compositeProductService, "categoryRepo", categoryRepo);
+        ReflectionTestUtils.setField(compositeProductService, "productCache", productCache);
+        ReflectionTestUtils.setField(compositeProductService, "localTimeoutMs", 200L);
+        ReflectionTestUtils.setField(compositeProductService, "localListTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(compositeProductService, "remoteTimeoutMs", 200L);
+        ReflectionTestUtils.setField(compositeProductService, "threads", 2);
+        ReflectionTestUtils.setField(compositeProductService, "queueCapacity", 10);
+        compositeProductService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        compositeProductService.shutdown();
+    }
+
+    @Test
+    public void TestGetProductById_LocalHit_FakeStoreNotCalled() {
+        Product product = product(1L, "Iphone");
+        when(localProductService.getProductById(1L)).thenReturn(product);
+
+        assertSame(product, compositeProductService.getProductById(1L));
+
+        verifyNoInteractions(remoteProductService);
+    }
+
+    @Test
+    public void TestGetProductById_LocalMiss_FakeStoreHitIsBackfilled() {
+        Product remoteProduct = product(2L, "Backpack");
+        Category category = new Category();
+        category.setName("bags");
+        remoteProduct.setCategory(category);
+        Category localCategory = new Category();
+        localCategory.setId(9L);
+        localCategory.setName("bags");
+        when(remoteProductService.getProductByIdAsync(2L)).thenReturn(CompletableFuture.completedFuture(remoteProduct));
+        when(categoryRepo.findFirstByName("bags")).thenReturn(Optional.of(localCategory));
+        when(localProductService.createProduct(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertSame(remoteProduct, compositeProductService.getProductById(2L));
+
+        ArgumentCaptor<Product> backfilled = ArgumentCaptor.forClass(Product.class);
+        verify(localProductService, timeout(1000)).createProduct(backfilled.capture());
+        assertEquals("Backpack", backfilled.getValue().getName());
+        assertSame(localCategory, backfilled.getValue().getCategory());
+        verify(productCache, timeout(1000)).put(backfilled.getValue());
+    }
+
+    @Test
+    public void TestGetProductById_LocalPastDeadline_FakeStoreAnswers() {
+        Product remoteProduct = product(3L, "Jacket");
+        when(localProductService.getProductById(3L)).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return product(3L, "Too late");
+        });
+        when(remoteProductService.getProductByIdAsync(3L)).thenReturn(CompletableFuture.completedFuture(remoteProduct));
+
+        long start = System.nanoTime();
+        assertSame(remoteProduct, compositeProductService.getProductById(3L));
+
+        assertTrue(System.nanoTime() - start < 900_000_000L);
+    }
+
+    @Test
+    public void TestGetAllProducts_MergesWithLocalProductsWinning() {
+        when(localProductService.getAllProducts()).thenReturn(List.of(product(1L, "Local iphone")));
+        when(remoteProductService.getAllProductsAsync()).thenReturn(CompletableFuture.completedFuture(
+                List.of(product(1L, "Remote iphone"), product(2L, "Backpack"))));
+
+        List<Product> products = compositeProductService.getAllProducts();
+
+        assertEquals(List.of("Local iphone", "Backpack"), products.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    public void TestGetAllProducts_LocalListSlowerThanLookupDeadline_StillReturned() {
+        when(localProductService.getAllProducts()).thenAnswer(invocation -> {
+            Thread.sleep(400);
+            return List.of(product(1L, "Local iphone"));
+        });
+        when(remoteProductService.getAllProductsAsync()).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        List<Product> products = compositeProductService.getAllProducts();
+
+        assertEquals(List.of("Local iphone"), products.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    public void TestGetAllProducts_FakeStoreFails_ReturnsLocalProducts() {
+        when(localProductService.getAllProducts()).thenReturn(List.of(product(1L, "Local iphone")));
+        when(remoteProductService.getAllProductsAsync())
+                .thenReturn(CompletableFuture.failedFuture(new FakeStoreClientException("FakeStore circuit is open")));
+
+        List<Product> products = compositeProductService.getAllProducts();
+
+        assertEquals(1, products.size());
+    }
+
+    @Test
+    public void TestGetProductsByIds_OnlyLocalMissesAskedFromFakeStore_InputOrderKept() {
+        when(localProductService.getProductsByIds(List.of(1L, 2L, 3L))).thenReturn(List.of(product(1L, "Iphone")));
+        when(remoteProductService.getProductByIdAsync(2L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(remoteProductService.getProductByIdAsync(3L))
+                .thenReturn(CompletableFuture.completedFuture(product(3L, "Jacket")));
+        when(localProductService.createProduct(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Product> products = compositeProductService.getProductsByIds(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, 3L), products.stream().map(Product::getId).toList());
+        verify(remoteProductService, never()).getProductByIdAsync(1L);
+        verify(localProductService, timeout(1000)).createProduct(any(Product.class));
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+}
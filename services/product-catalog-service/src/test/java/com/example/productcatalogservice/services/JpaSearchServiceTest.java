@@ -0,0 +1,127 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.dtos.CursorPageDto;
+import com.example.productcatalogservice.dtos.SortParam;
+import com.example.productcatalogservice.dtos.SortType;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.ProductRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Walks the keyset queries page by page on H2, rows sharing a sort key must neither repeat nor go missing
+@DataJpaTest
+@Import(JpaSearchService.class)
+@TestPropertySource(properties = "eureka.client.enabled=false")
+class JpaSearchServiceTest {
+
+    @Autowired
+    private JpaSearchService jpaSearchService;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @BeforeEach
+    public void setUp() {
+        // Ids out of price order, three products at 100 and two at 200 and 300
+        long[][] products = {{7, 100}, {3, 300}, {5, 100}, {1, 200}, {6, 300}, {2, 100}, {4, 200}};
+        for(long[] values : products) {
+            Product product = new Product();
+            product.setId(values[0]);
+            product.setName("Iphone");
+            product.setPrice((double) values[1]);
+            productRepo.save(product);
+        }
+        Product other = new Product();
+        other.setId(8L);
+        other.setName("Pixel");
+        other.setPrice(100D);
+        productRepo.save(other);
+        productRepo.flush();
+    }
+
+    @Test
+    public void TestScrollProducts_DuplicatePrices_IdBreaksTies() {
+        List<Long> ids = scrollAll(2, sortParam("price", SortType.ASC));
+
+        assertEquals(List.of(2L, 5L, 7L, 1L, 4L, 3L, 6L), ids);
+    }
+
+    @Test
+    public void TestScrollProducts_DescendingPrice_TiesStillAscendingById() {
+        List<Long> ids = scrollAll(3, sortParam("price", SortType.DESC));
+
+        assertEquals(List.of(3L, 6L, 1L, 4L, 2L, 5L, 7L), ids);
+    }
+
+    @Test
+    public void TestScrollProducts_PageBoundaryInsideEqualPrices_NothingSkipped() {
+        CursorPageDto<Product> first = jpaSearchService.scrollProducts("Iphone", null, 2,
+                List.of(sortParam("price", SortType.ASC)));
+        CursorPageDto<Product> second = jpaSearchService.scrollProducts("Iphone", first.getNextCursor(), 2,
+                List.of(sortParam("price", SortType.ASC)));
+
+        assertEquals(List.of(2L, 5L), ids(first));
+        assertEquals(List.of(7L, 1L), ids(second));
+    }
+
+    @Test
+    public void TestScrollProducts_LastPageExactlyFull_HasNoNextCursor() {
+        productRepo.deleteById(6L);
+        productRepo.flush();
+
+        CursorPageDto<Product> first = jpaSearchService.scrollProducts("Iphone", null, 3,
+                List.of(sortParam("price", SortType.ASC)));
+        CursorPageDto<Product> last = jpaSearchService.scrollProducts("Iphone", first.getNextCursor(), 3,
+                List.of(sortParam("price", SortType.ASC)));
+
+        assertTrue(first.isHasNext());
+        assertEquals(List.of(1L, 4L, 3L), ids(last));
+        assertFalse(last.isHasNext());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    public void TestScrollProducts_NoMatches_EmptyLastPage() {
+        CursorPageDto<Product> page = jpaSearchService.scrollProducts("Galaxy", null, 2,
+                List.of(sortParam("price", SortType.ASC)));
+
+        assertTrue(page.getContent().isEmpty());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    private List<Long> scrollAll(int pageSize, SortParam sortParam) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageDto<Product> page = jpaSearchService.scrollProducts("Iphone", cursor, pageSize, List.of(sortParam));
+            assertTrue(page.getContent().size() <= pageSize);
+            ids.addAll(ids(page));
+            cursor = page.getNextCursor();
+            assertEquals(page.isHasNext(), cursor != null);
+            assertTrue(++pages <= 10, "scrolling does not end");
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> ids(CursorPageDto<Product> page) {
+        return page.getContent().stream().map(Product::getId).toList();
+    }
+
+    private static SortParam sortParam(String paramName, SortType sortType) {
+        SortParam sortParam = new SortParam();
+        sortParam.setParamName(paramName);
+        sortParam.setSortType(sortType);
+        return sortParam;
+    }
+}
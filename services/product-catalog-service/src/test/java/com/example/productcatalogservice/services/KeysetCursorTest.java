@@ -0,0 +1,54 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    public void TestRoundTrip_KeysKeepTheirTypes() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("price", 99.5D);
+        keys.put("createdAt", new Date(1700000000000L));
+        keys.put("state", State.ACTIVE);
+        keys.put("name", "Iphone");
+        keys.put("id", 42L);
+        Sort sort = Sort.by("price").descending().and(Sort.by("createdAt", "state", "name", "id"));
+
+        String cursor = KeysetCursor.encode(ScrollPosition.forward(keys));
+        KeysetScrollPosition position = (KeysetScrollPosition) KeysetCursor.decode(cursor, sort);
+
+        assertEquals(keys, position.getKeys());
+        assertInstanceOf(Long.class, position.getKeys().get("id"));
+    }
+
+    @Test
+    public void TestDecode_NoCursor_StartsFromFirstRow() {
+        ScrollPosition position = KeysetCursor.decode(null, Sort.by("id"));
+
+        assertTrue(position.isInitial());
+    }
+
+    @Test
+    public void TestDecode_CursorFromDifferentSort_ResultsInIllegalArgumentException() {
+        String cursor = KeysetCursor.encode(ScrollPosition.forward(Map.of("price", 10D, "id", 1L)));
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> KeysetCursor.decode(cursor, Sort.by("name", "id")));
+        assertEquals("Cursor does not match the sort params of this search", exception.getMessage());
+    }
+
+    @Test
+    public void TestDecode_GarbageCursor_ResultsInIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor!", Sort.by("id")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import com.example.productcatalogservice.repos.ProductRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every chunk must cost a fixed number of statements, not one or two per product
+@DataJpaTest
+@Import(ProductBatchWriter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "eureka.client.enabled=false"
+})
+class ProductBatchWriterTest {
+
+    @Autowired
+    private ProductBatchWriter productBatchWriter;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+        Category category = new Category();
+        category.setId(1L);
+        category.setName("Phones");
+        categoryRepo.save(category);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void TestInsertNew_BatchesInsertsAndSkipsExistingIds() {
+        productBatchWriter.insertNew(products(1, 300, 1L));
+        statistics.clear();
+
+        List<Product> inserted = productBatchWriter.insertNew(products(201, 500, 2L));
+
+        // existing ids, categories, the new category and one batched product insert
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(200, inserted.size());
+        assertEquals(500, productRepo.count());
+    }
+
+    @Test
+    public void TestUpdateExisting_BatchesUpdatesAndSkipsUnknownIds() {
+        productBatchWriter.insertNew(products(1, 200, 1L));
+        statistics.clear();
+
+        List<Product> updates = products(101, 300, 1L);
+        updates.forEach(product -> product.setName("Renamed" + product.getId()));
+        List<Product> updated = productBatchWriter.updateExisting(updates);
+
+        // products, categories and one batch of updates
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(100, updated.size());
+        assertEquals("Renamed150", productRepo.findById(150L).get().getName());
+        assertEquals("Product50", productRepo.findById(50L).get().getName());
+    }
+
+    @Test
+    public void TestUpdateExisting_StaleVersion_WholeChunkRejected() {
+        productBatchWriter.insertNew(products(1, 2, 1L));
+        productBatchWriter.updateExisting(products(1, 1, 1L));
+
+        List<Product> updates = products(1, 2, 1L);
+        updates.forEach(product -> {
+            product.setName("Renamed" + product.getId());
+            product.setVersion(0L);
+        });
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productBatchWriter.updateExisting(updates));
+        assertEquals("Product1", productRepo.findById(1L).get().getName());
+        assertEquals("Product2", productRepo.findById(2L).get().getName());
+        assertEquals(1L, productRepo.findById(1L).get().getVersion());
+    }
+
+    @Test
+    public void TestSaveAll_UpdatesExistingAndInsertsNew() {
+        productBatchWriter.insertNew(products(1, 10, 1L));
+
+        List<Product> products = products(6, 15, 1L);
+        products.forEach(product -> product.setName("Saved" + product.getId()));
+        List<Product> saved = productBatchWriter.saveAll(products);
+
+        assertEquals(10, saved.size());
+        assertEquals(15, productRepo.count());
+        assertEquals("Saved8", productRepo.findById(8L).get().getName());
+        assertEquals(1L, productRepo.findById(8L).get().getVersion());
+        assertEquals(0L, productRepo.findById(12L).get().getVersion());
+    }
+
+    @Test
+    public void TestDeleteExisting_DeletesInOneStatement() {
+        productBatchWriter.insertNew(products(1, 100, 1L));
+        statistics.clear();
+
+        List<Long> ids = new ArrayList<>();
+        for(long id = 51; id <= 150; id++) {
+            ids.add(id);
+        }
+        List<Long> deleted = productBatchWriter.deleteExisting(ids);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(50, deleted.size());
+        assertEquals(50, productRepo.count());
+    }
+
+    private static List<Product> products(long fromId, long toId, Long categoryId) {
+        List<Product> products = new ArrayList<>();
+        for(long id = fromId; id <= toId; id++) {
+            Category category = new Category();
+            category.setId(categoryId);
+            category.setName("Category" + categoryId);
+            Product product = new Product();
+            product.setId(id);
+            product.setName("Product" + id);
+            product.setPrice((double) id);
+            product.setCategory(category);
+            products.add(product);
+        }
+        return products;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.events.ProductChangedEvent;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.ProductRepo;
+import com.example.productcatalogservice.search.ProductPriceIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductIndexMaintainerTest {
+
+    private ProductRepo productRepo;
+
+    private ProductCache productCache;
+
+    private ProductPriceIndexer productPriceIndexer;
+
+    private ProductIndexMaintainer productIndexMaintainer;
+
+    @BeforeEach
+    public void setUp() {
+        productRepo = mock(ProductRepo.class);
+        productCache = mock(ProductCache.class);
+        productPriceIndexer = new ProductPriceIndexer();
+
+        productIndexMaintainer = new ProductIndexMaintainer();
+        ReflectionTestUtils.setField(productIndexMaintainer, "productRepo", productRepo);
+        ReflectionTestUtils.setField(productIndexMaintainer, "productCache", productCache);
+        ReflectionTestUtils.setField(productIndexMaintainer, "productIndexes", List.<IProductIndex>of(productPriceIndexer));
+        productIndexMaintainer.init();
+    }
+
+    @Test
+    public void TestRebuild_QueriesSeeThePreviousIndexUntilTheScanIsDone() {
+        productPriceIndexer.index(product(1L, 10D));
+        when(productRepo.findAllBy(any(ScrollPosition.class), any(Sort.class), any(Limit.class))).thenAnswer(invocation -> {
+            assertEquals(List.of(1L), priceRange());
+            return Window.from(List.of(product(2L, 20D), product(3L, 30D)), ScrollPosition::offset);
+        });
+
+        productIndexMaintainer.rebuild();
+
+        assertEquals(List.of(2L, 3L), priceRange());
+    }
+
+    @Test
+    public void TestRebuild_ChangeWhileScanning_AppliedToTheNewIndex() {
+        when(productRepo.findAllBy(any(ScrollPosition.class), any(Sort.class), any(Limit.class))).thenAnswer(invocation -> {
+            // Written on this node after the scan read the old price
+            productIndexMaintainer.onProductChanged(ProductChangedEvent.updated(product(1L, 99D)));
+            return Window.from(List.of(product(1L, 10D)), ScrollPosition::offset);
+        });
+        answerFromCache(Map.of(1L, product(1L, 99D)));
+
+        productIndexMaintainer.rebuild();
+
+        assertEquals(List.of(), productPriceIndexer.getProductPriceIndex().range(0D, 50D, null, 10, false));
+        assertEquals(List.of(1L), productPriceIndexer.getProductPriceIndex().range(50D, 100D, null, 10, false));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void TestRemoteChange_IndexesWrittenAndRemovesDeletedProducts() {
+        productPriceIndexer.index(product(1L, 10D));
+        productPriceIndexer.index(product(2L, 20D));
+        answerFromCache(Map.of(1L, product(1L, 15D), 3L, product(3L, 30D)));
+        ArgumentCaptor<Consumer<List<Long>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(productCache).addRemoteChangeListener(listener.capture());
+
+        listener.getValue().accept(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, 3L), priceRange());
+        assertEquals(List.of(1L), productPriceIndexer.getProductPriceIndex().range(15D, 15D, null, 10, false));
+    }
+
+    @Test
+    public void TestRemoteChange_MissingFromRedis_ReadFromMySql() {
+        when(productRepo.findAllById(List.of(4L))).thenReturn(List.of(product(4L, 40D)));
+        when(productCache.getAll(any(), any())).thenAnswer(invocation -> {
+            Function<Collection<Long>, Collection<Product>> loader = invocation.getArgument(1);
+            Map<Long, Product> products = new HashMap<>();
+            loader.apply(invocation.getArgument(0)).forEach(product -> products.put(product.getId(), product));
+            return products;
+        });
+
+        productIndexMaintainer.onRemoteChange(List.of(4L));
+
+        assertEquals(List.of(4L), priceRange());
+    }
+
+    private void answerFromCache(Map<Long, Product> products) {
+        when(productCache.getAll(any(), any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return products.entrySet().stream()
+                    .filter(entry -> ids.contains(entry.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        });
+    }
+
+    private List<Long> priceRange() {
+        ProductPriceIndex productPriceIndex = productPriceIndexer.getProductPriceIndex();
+        return productPriceIndex.range(null, null, null, 10, false);
+    }
+
+    private static Product product(Long id, Double price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(price);
+        return product;
+    }
+}
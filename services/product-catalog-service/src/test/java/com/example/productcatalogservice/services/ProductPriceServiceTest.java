@@ -0,0 +1,72 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.dtos.SortType;
+import com.example.productcatalogservice.modals.Category;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.CategoryRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ProductPriceServiceTest {
+
+    private CategoryRepo categoryRepo;
+
+    private IProductService productService;
+
+    private ProductPriceIndexer productPriceIndexer;
+
+    private ProductPriceService productPriceService;
+
+    @BeforeEach
+    public void setUp() {
+        categoryRepo = mock(CategoryRepo.class);
+        productService = mock(IProductService.class);
+        productPriceIndexer = new ProductPriceIndexer();
+        when(productService.getProductsByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> product(id, 0D, null)).toList();
+        });
+
+        productPriceService = new ProductPriceService();
+        ReflectionTestUtils.setField(productPriceService, "productPriceIndexer", productPriceIndexer);
+        ReflectionTestUtils.setField(productPriceService, "productService", productService);
+        ReflectionTestUtils.setField(productPriceService, "categoryRepo", categoryRepo);
+        ReflectionTestUtils.setField(productPriceService, "maxLimit", 200);
+    }
+
+    @Test
+    public void TestFindByPrice_RenamedCategory_FoundByItsCurrentName() {
+        productPriceIndexer.index(product(1L, 20D, category(7L, "Phones")));
+        productPriceIndexer.index(product(2L, 10D, category(7L, "Phones")));
+        when(categoryRepo.findAllByName("Mobiles")).thenReturn(List.of(category(7L, "Mobiles")));
+
+        List<Product> products = productPriceService.findByPrice(null, null, "Mobiles", 10, SortType.ASC);
+
+        assertEquals(List.of(2L, 1L), products.stream().map(Product::getId).toList());
+        assertTrue(productPriceService.findByPrice(null, null, "Phones", 10, SortType.ASC).isEmpty());
+        verify(productService, times(1)).getProductsByIds(any());
+    }
+
+    private static Product product(Long id, Double price, Category category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(price);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+}
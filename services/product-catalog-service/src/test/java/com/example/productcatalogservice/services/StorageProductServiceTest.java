@@ -0,0 +1,195 @@
+package com.example.productcatalogservice.services;
+
+import com.example.productcatalogservice.cache.CacheWriteMode;
+import com.example.productcatalogservice.cache.CatalogVersion;
+import com.example.productcatalogservice.cache.ProductCache;
+import com.example.productcatalogservice.cache.ProductWriteBehindQueue;
+import com.example.productcatalogservice.datasource.ReadYourWrites;
+import com.example.productcatalogservice.dtos.BulkItemResultDto;
+import com.example.productcatalogservice.dtos.BulkItemStatus;
+import com.example.productcatalogservice.modals.Product;
+import com.example.productcatalogservice.repos.ProductRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Write behind mode, products created moments ago may only exist in the queue
+class StorageProductServiceTest {
+
+    private ProductRepo productRepo;
+
+    private ProductCache productCache;
+
+    private ProductBatchWriter productBatchWriter;
+
+    private ProductWriteBehindQueue productWriteBehindQueue;
+
+    private CatalogVersion catalogVersion;
+
+    private ReadYourWrites readYourWrites;
+
+    private StorageProductService storageProductService;
+
+    @BeforeEach
+    public void setUp() {
+        productRepo = mock(ProductRepo.class);
+        productCache = mock(ProductCache.class);
+        productBatchWriter = mock(ProductBatchWriter.class);
+        catalogVersion = mock(CatalogVersion.class);
+        readYourWrites = mock(ReadYourWrites.class);
+        productWriteBehindQueue = new ProductWriteBehindQueue();
+        ReflectionTestUtils.setField(productWriteBehindQueue, "productBatchWriter", productBatchWriter);
+        ReflectionTestUtils.setField(productWriteBehindQueue, "catalogVersion", catalogVersion);
+
+        storageProductService = new StorageProductService();
+        ReflectionTestUtils.setField(storageProductService, "productRepo", productRepo);
+        ReflectionTestUtils.setField(storageProductService, "productCache", productCache);
+        ReflectionTestUtils.setField(storageProductService, "productWriteBehindQueue", productWriteBehindQueue);
+        ReflectionTestUtils.setField(storageProductService, "applicationEventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(storageProductService, "productBatchWriter", productBatchWriter);
+        ReflectionTestUtils.setField(storageProductService, "readYourWrites", readYourWrites);
+        ReflectionTestUtils.setField(storageProductService, "catalogVersion", catalogVersion);
+        ReflectionTestUtils.setField(storageProductService, "cacheWriteMode", CacheWriteMode.WRITE_BEHIND);
+        ReflectionTestUtils.setField(storageProductService, "bulkMaxItems", 100);
+        ReflectionTestUtils.setField(storageProductService, "bulkChunkSize", 10);
+        when(productRepo.findById(any())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void TestUpdateProduct_PendingCreate_IsUpdatedInTheQueue() {
+        Product created = product(1L, "Phone");
+        created.setCreatedAt(new Date(1000));
+        created.setUpdatedAt(new Date(1000));
+        productWriteBehindQueue.enqueue(created);
+
+        Product updatedProduct = storageProductService.updateProduct(1L, product(1L, "Smartphone"));
+
+        assertNotNull(updatedProduct);
+        Product pendingProduct = productWriteBehindQueue.getPending(1L);
+        assertEquals("Smartphone", pendingProduct.getName());
+        assertEquals(new Date(1000), pendingProduct.getCreatedAt());
+        assertTrue(pendingProduct.getUpdatedAt().after(new Date(1000)));
+        verify(productCache).write(pendingProduct);
+    }
+
+    @Test
+    public void TestUpdateProduct_UnknownProduct_ReturnsNull() {
+        assertNull(storageProductService.updateProduct(1L, product(1L, "Phone")));
+        assertEquals(0, productWriteBehindQueue.size());
+    }
+
+    @Test
+    public void TestDeleteProduct_PendingCreate_IsNotFlushedAfterwards() {
+        productWriteBehindQueue.enqueue(product(1L, "Phone"));
+
+        assertTrue(storageProductService.deleteProduct(1L));
+
+        productWriteBehindQueue.flush();
+        verify(productBatchWriter, never()).saveAll(anyList());
+        verify(productRepo, never()).deleteById(any());
+        verify(productCache).evict(1L);
+    }
+
+    @Test
+    public void TestDeleteProduct_StoredProduct_IsDeleted() {
+        when(productRepo.findById(1L)).thenReturn(Optional.of(product(1L, "Phone")));
+
+        assertTrue(storageProductService.deleteProduct(1L));
+        assertFalse(storageProductService.deleteProduct(2L));
+
+        verify(productRepo).deleteById(1L);
+        verify(productCache, never()).evict(2L);
+    }
+
+    @Test
+    public void TestUpdateProducts_PendingCreate_UpdatedInTheQueue() {
+        productWriteBehindQueue.enqueue(product(1L, "Phone"));
+        when(productBatchWriter.updateExisting(anyList())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            return products.stream().filter(product -> product.getId() == 2L).toList();
+        });
+
+        List<BulkItemResultDto> results = storageProductService.updateProducts(
+                List.of(product(1L, "Smartphone"), product(2L, "Laptop"), product(3L, "Tablet")));
+
+        assertEquals(List.of(BulkItemStatus.UPDATED, BulkItemStatus.UPDATED, BulkItemStatus.NOT_FOUND),
+                results.stream().map(BulkItemResultDto::getStatus).toList());
+        assertEquals("Smartphone", productWriteBehindQueue.getPending(1L).getName());
+    }
+
+    @Test
+    public void TestUpdateProducts_ChunkFails_PendingProductKept() {
+        Product pendingProduct = product(1L, "Phone");
+        productWriteBehindQueue.enqueue(pendingProduct);
+        when(productBatchWriter.updateExisting(anyList())).thenThrow(new IllegalStateException("connection lost"));
+
+        List<BulkItemResultDto> results = storageProductService.updateProducts(List.of(product(1L, "Smartphone")));
+
+        assertEquals(BulkItemStatus.FAILED, results.get(0).getStatus());
+        assertSame(pendingProduct, productWriteBehindQueue.getPending(1L));
+    }
+
+    @Test
+    public void TestDeleteProducts_PendingCreate_ReportedDeleted() {
+        productWriteBehindQueue.enqueue(product(1L, "Phone"));
+        when(productBatchWriter.deleteExisting(anyList())).thenReturn(List.of());
+
+        List<BulkItemResultDto> results = storageProductService.deleteProducts(List.of(1L, 2L));
+
+        assertEquals(List.of(BulkItemStatus.DELETED, BulkItemStatus.NOT_FOUND),
+                results.stream().map(BulkItemResultDto::getStatus).toList());
+        assertNull(productWriteBehindQueue.getPending(1L));
+    }
+
+    @Test
+    public void TestGetCatalogVersion_ReadFromRedis_TableNotAggregated() {
+        when(catalogVersion.read()).thenReturn(new CatalogVersion.Snapshot(42L, 1000L));
+
+        assertEquals("42", storageProductService.getCatalogVersion());
+        verify(productRepo, never()).findCatalogVersion();
+    }
+
+    @Test
+    public void TestGetCatalogVersion_RedisDown_AggregatedFromMySQL() {
+        when(catalogVersion.read()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        ProductRepo.CatalogVersion aggregate = mock(ProductRepo.CatalogVersion.class);
+        when(aggregate.getCount()).thenReturn(2L);
+        when(aggregate.getLastUpdatedAt()).thenReturn(new Date(1000));
+        when(aggregate.getIdSum()).thenReturn(3L);
+        when(aggregate.getVersionSum()).thenReturn(4L);
+        when(productRepo.findCatalogVersion()).thenReturn(aggregate);
+
+        assertEquals("2-1000-3-4", storageProductService.getCatalogVersion());
+    }
+
+    @Test
+    public void TestGetCatalog_RowsReadAccordingToWhenTheVersionChanged() {
+        List<Product> products = List.of(product(1L, "Phone"));
+        when(catalogVersion.read()).thenReturn(new CatalogVersion.Snapshot(42L, 1000L));
+        when(readYourWrites.readWrittenAt(eq(1000L), any())).thenReturn(products);
+
+        IProductService.Catalog catalog = storageProductService.getCatalog();
+
+        assertEquals("42", catalog.version());
+        assertSame(products, catalog.products());
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+}
@@ -1,15 +1,12 @@
 package com.example.userauthenticationservice.config;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.MacAlgorithm;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
-import javax.crypto.SecretKey;
-
 @Configuration
 public class SecurityConfig {
 
@@ -21,15 +18,9 @@ public class SecurityConfig {
         return httpSecurity.build();
     }
 
+    // Stored hashes with another cost are rehashed on the next successful login
     @Bean
-    public BCryptPasswordEncoder bCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
-    @Bean
-    public SecretKey secretKey() {
-        MacAlgorithm algorithm = Jwts.SIG.HS256;
-        SecretKey secretKey = algorithm.key().build();
-        return secretKey;
+    public BCryptPasswordEncoder bCryptPasswordEncoder(@Value("${auth.hashing.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
@@ -2,9 +2,12 @@ package com.example.userauthenticationservice.controllers;
 
 import com.example.userauthenticationservice.dtos.*;
 import com.example.userauthenticationservice.exceptions.IncorrectPassword;
+import com.example.userauthenticationservice.exceptions.PasswordHashingBusy;
+import com.example.userauthenticationservice.exceptions.TooManyLoginAttempts;
 import com.example.userauthenticationservice.exceptions.UserNotFound;
 import com.example.userauthenticationservice.models.User;
 import com.example.userauthenticationservice.services.IAuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.antlr.v4.runtime.misc.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -12,6 +15,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,16 +27,20 @@ public class AuthController {
     @Autowired
     private IAuthService authService;
 
+    // getRemoteAddr() is the forwarded client address when a trusted proxy sent the request, see
+    // server.forward-headers-strategy
     @PostMapping("/signup")
-    public UserDto signup(@RequestBody SignupRequestDto signupRequestDto) {
-        User user = authService.signup(signupRequestDto.getEmailId(),signupRequestDto.getPassword());
+    public UserDto signup(@RequestBody SignupRequestDto signupRequestDto, HttpServletRequest request) {
+        User user = authService.signup(signupRequestDto.getEmailId(),signupRequestDto.getPassword(),
+                request.getRemoteAddr());
         return from(user);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<UserDto> login(@RequestBody LoginRequestDto loginRequestDto) {
+    public ResponseEntity<UserDto> login(@RequestBody LoginRequestDto loginRequestDto, HttpServletRequest request) {
         try {
-            Pair<User, String> userWithToken = authService.login(loginRequestDto.getEmailId(), loginRequestDto.getPassword());
+            Pair<User, String> userWithToken = authService.login(loginRequestDto.getEmailId(),
+                    loginRequestDto.getPassword(), request.getRemoteAddr());
             UserDto userDto = from(userWithToken.a);
             MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
             headers.add(HttpHeaders.SET_COOKIE, userWithToken.b);
@@ -59,6 +67,22 @@ public class AuthController {
             return new ResponseEntity<>(false,null,400);
         }
     }
+
+    // Password hashing is saturated, the client should back off and retry
+    @ExceptionHandler(PasswordHashingBusy.class)
+    public ResponseEntity<Void> hashingBusy(PasswordHashingBusy exception) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(TooManyLoginAttempts.class)
+    public ResponseEntity<Void> tooManyAttempts(TooManyLoginAttempts exception) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
     private UserDto from(User user) {
         UserDto userDto = new UserDto();
         userDto.setId(user.getId());
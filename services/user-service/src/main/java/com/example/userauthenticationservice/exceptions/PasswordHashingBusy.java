@@ -0,0 +1,7 @@
+package com.example.userauthenticationservice.exceptions;
+
+public class PasswordHashingBusy extends RuntimeException {
+    public PasswordHashingBusy(String message) {
+        super(message);
+    }
+}
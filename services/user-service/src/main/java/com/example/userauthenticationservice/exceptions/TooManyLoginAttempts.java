@@ -0,0 +1,7 @@
+package com.example.userauthenticationservice.exceptions;
+
+public class TooManyLoginAttempts extends RuntimeException {
+    public TooManyLoginAttempts(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.userauthenticationservice.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+// Kept until the token would have expired anyway
+@Setter
+@Getter
+@Entity
+@Table(name = "revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revokedAt"),
+        @Index(name = "idx_revoked_token_expires_at", columnList = "expiresAt")
+})
+public class RevokedToken {
+    @Id
+    private String jti;
+    private Date expiresAt;
+    private Date revokedAt;
+}
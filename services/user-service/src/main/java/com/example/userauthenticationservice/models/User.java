@@ -3,13 +3,16 @@ package com.example.userauthenticationservice.models;
 import com.example.userauthenticationservice.models.BaseModel;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 
 @Setter
 @Getter
 @Entity
-@Table(name = "app_user")
+@Table(name = "app_user", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_app_user_email_id", columnNames = "emailId")
+})
 public class User extends BaseModel {
     private String emailId;
     private String password;
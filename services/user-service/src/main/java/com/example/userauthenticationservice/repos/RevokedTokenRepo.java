@@ -0,0 +1,27 @@
+package com.example.userauthenticationservice.repos;
+
+import com.example.userauthenticationservice.models.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepo extends JpaRepository<RevokedToken, String> {
+
+    @Query("select r.jti from RevokedToken r where r.revokedAt > :since")
+    List<String> findJtisRevokedAfter(@Param("since") Date since);
+
+    @Query("select r.jti from RevokedToken r where r.expiresAt > :now")
+    List<String> findJtisExpiringAfter(@Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Date now);
+}
@@ -0,0 +1,99 @@
+package com.example.userauthenticationservice.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size set of strings that answers "maybe" or "definitely not". Sized for
+ * an expected number of entries and false positive probability, lock free for
+ * concurrent adds and lookups. Entries can not be removed, build a new one instead.
+ */
+final class BloomFilter {
+    private final AtomicLongArray words;
+
+    private final int expectedEntries;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    BloomFilter(int expectedEntries, double falsePositiveProbability) {
+        if(expectedEntries <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Expected entries must be positive and the probability between 0 and 1");
+        }
+        // m = -n ln p / (ln 2)^2 and k = m / n ln 2
+        this.expectedEntries = expectedEntries;
+        long bits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        words = new AtomicLongArray(wordCount);
+        bitCount = wordCount * 64L;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        long first = hash;
+        long second = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(first + i * second, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while((current & mask) == 0) {
+                if(words.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+                current = words.get(word);
+            }
+        }
+        if(changed) {
+            size.incrementAndGet();
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        long first = hash;
+        long second = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(first + i * second, bitCount);
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int expectedEntries() {
+        return expectedEntries;
+    }
+
+    // Entries that set at least one new bit, close to the number of distinct entries added
+    int size() {
+        return size.get();
+    }
+
+    // FNV-1a over the bytes, then mixed so nearby jtis spread over the whole array
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for(byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
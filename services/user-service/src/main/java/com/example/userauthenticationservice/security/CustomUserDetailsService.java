@@ -1,7 +1,5 @@
 package com.example.userauthenticationservice.security;
 
-import com.example.userauthenticationservice.models.User;
-import com.example.userauthenticationservice.repos.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -14,15 +12,14 @@ import java.util.Optional;
 public class CustomUserDetailsService implements UserDetailsService{
 
     @Autowired
-    private UserRepo userRepo;
+    private UserCredentialsCache userCredentialsCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        Optional<User> userOptional = userRepo.findUserByEmailId(email);
-        if(userOptional.isEmpty()){
+        Optional<UserCredentialsCache.UserCredentials> credentialsOptional = userCredentialsCache.findByEmail(email);
+        if(credentialsOptional.isEmpty()){
             throw new UsernameNotFoundException("User not found");
         }
-        User user = userOptional.get();
-        return  new CustomUserDetails(user);
+        return  new CustomUserDetails(credentialsOptional.get().toUser());
     }
 }
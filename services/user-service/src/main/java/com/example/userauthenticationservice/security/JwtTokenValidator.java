@@ -0,0 +1,138 @@
+package com.example.userauthenticationservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.MalformedJwtException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates login tokens with one shared parser, so the signature is checked
+ * once per token. Tokens that passed are remembered by their SHA-256 until
+ * they expire, repeated validations of the same token skip the HMAC and JSON work.
+ * Revocation is checked on every validation, cached or not.
+ */
+@Component
+public class JwtTokenValidator {
+    public static final String USER_ID_CLAIM = "userId";
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${auth.token-cache.maximum-size:100000}")
+    private long maximumSize;
+
+    private JwtParser jwtParser;
+
+    private Cache<String, ValidatedToken> validatedTokens;
+
+    public record ValidatedToken(Long userId, String jti, long expiresAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        // Immutable once built, shared by every request thread. The kid header picks the key from the ring
+        jwtParser = Jwts.parser().keyLocator(new LocatorAdapter<>() {
+            @Override
+            protected SecretKey locate(JwsHeader header) {
+                SecretKey secretKey = signingKeyRing.getVerificationKey(header.getKeyId());
+                if(secretKey == null) {
+                    throw new MalformedJwtException("Token is signed with an unknown key " + header.getKeyId());
+                }
+                return secretKey;
+            }
+        }).build();
+        validatedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, ValidatedToken>() {
+                    @Override
+                    public long expireAfterCreate(String tokenHash, ValidatedToken validatedToken, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, validatedToken.expiresAtMillis() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String tokenHash, ValidatedToken validatedToken, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(tokenHash, validatedToken, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String tokenHash, ValidatedToken validatedToken, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Returns the id of the user the token was issued to, throws a JwtException when it is not valid
+    public Long validate(String token) {
+        return verify(token).userId();
+    }
+
+    public ValidatedToken verify(String token) {
+        if(token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Token is required");
+        }
+        String tokenHash = hash(token);
+        ValidatedToken validatedToken = validatedTokens.getIfPresent(tokenHash);
+        if(validatedToken == null || validatedToken.expiresAtMillis() <= System.currentTimeMillis()) {
+            validatedToken = parse(token);
+            validatedTokens.put(tokenHash, validatedToken);
+        }
+        if(tokenRevocationList.isRevoked(validatedToken.jti())) {
+            throw new JwtException("Token has been revoked");
+        }
+        return validatedToken;
+    }
+
+    public void invalidate(String token) {
+        if(token != null && !token.isBlank()) {
+            validatedTokens.invalidate(hash(token));
+        }
+    }
+
+    // The parser rejects bad signatures and expired tokens itself
+    private ValidatedToken parse(String token) {
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        if(expiration == null) {
+            throw new MalformedJwtException("Token has no expiration");
+        }
+        // Without an id the token could not be revoked
+        if(claims.getId() == null || claims.getId().isBlank()) {
+            throw new MalformedJwtException("Token has no id");
+        }
+        return new ValidatedToken(claims.get(USER_ID_CLAIM, Long.class), claims.getId(), expiration.getTime());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
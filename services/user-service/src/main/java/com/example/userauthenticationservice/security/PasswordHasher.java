@@ -0,0 +1,229 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.exceptions.PasswordHashingBusy;
+import com.example.userauthenticationservice.exceptions.TooManyLoginAttempts;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bcrypt on its own bounded pool instead of the request threads. At most
+ * threads hashes run and queue-capacity wait, anything more fails right away
+ * with PasswordHashingBusy, so a login storm holds a bounded number of request
+ * threads and leaves the CPU to the other endpoints. The queue is also cut
+ * short adaptively: with the average hash time measured so far, a hash that
+ * would not start and finish within the timeout is refused before it queues.
+ * One email or client address can only have a few hashes in flight, beyond
+ * that TooManyLoginAttempts. bcrypt can't be interrupted, so a hash that timed
+ * out keeps its pool thread and its email and address slots until it is done.
+ */
+@Component
+public class PasswordHasher {
+    @Autowired
+    private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    @Value("${auth.hashing.strength:10}")
+    private int strength;
+
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    // Includes the time spent queued
+    @Value("${auth.hashing.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Value("${auth.hashing.max-concurrent-per-email:2}")
+    private int maxConcurrentPerEmail;
+
+    @Value("${auth.hashing.max-concurrent-per-address:8}")
+    private int maxConcurrentPerAddress;
+
+    private ThreadPoolExecutor executor;
+
+    // Moving average of how long one hash takes, 0 until the first one finishes
+    private volatile double averageHashNanos;
+
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+    // upgradedHash is set when the stored hash used another cost and the password matched
+    public record Verification(boolean matches, String upgradedHash) {
+    }
+
+    @PostConstruct
+    void init() {
+        // bcrypt is pure CPU, more threads than cores only adds latency
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("password-hashing-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public String encode(String rawPassword, String email, String clientAddress) {
+        return run(() -> bCryptPasswordEncoder.encode(rawPassword), email, clientAddress);
+    }
+
+    public Verification verify(String rawPassword, String storedHash, String email, String clientAddress) {
+        return run(() -> {
+            if(!bCryptPasswordEncoder.matches(rawPassword, storedHash)) {
+                return new Verification(false, null);
+            }
+            // Same task, the password is at hand only now
+            String upgradedHash = cost(storedHash) != strength ? bCryptPasswordEncoder.encode(rawPassword) : null;
+            return new Verification(true, upgradedHash);
+        }, email, clientAddress);
+    }
+
+    private <T> T run(Callable<T> hashing, String email, String clientAddress) {
+        String emailKey = email != null ? "email:" + email.toLowerCase() : null;
+        String addressKey = clientAddress != null ? "address:" + clientAddress : null;
+        acquire(emailKey, maxConcurrentPerEmail);
+        try {
+            acquire(addressKey, maxConcurrentPerAddress);
+        } catch (RuntimeException exception) {
+            release(emailKey);
+            throw exception;
+        }
+        return submitAndWait(hashing, () -> {
+            release(addressKey);
+            release(emailKey);
+        });
+    }
+
+    // The slots are released once, by the task when it ran or here when it never will
+    private <T> T submitAndWait(Callable<T> hashing, Runnable releaseSlots) {
+        // Read once, the deadline of a call does not move once its hash is submitted
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if(expectedWaitNanos() > timeoutNanos) {
+            releaseSlots.run();
+            throw new PasswordHashingBusy("Too many logins in progress, please retry shortly");
+        }
+        // Taken by the task when it starts, or by the caller giving up on a task still queued
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if(!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                long startedAt = System.nanoTime();
+                try {
+                    return hashing.call();
+                } finally {
+                    record(System.nanoTime() - startedAt);
+                    releaseSlots.run();
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            releaseSlots.run();
+            throw new PasswordHashingBusy("Too many logins in progress, please retry shortly");
+        }
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException exception) {
+            abandon(future, claimed, releaseSlots);
+            throw new PasswordHashingBusy("Password check timed out, please retry shortly");
+        } catch (InterruptedException exception) {
+            abandon(future, claimed, releaseSlots);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusy("Password check was interrupted");
+        } catch (ExecutionException exception) {
+            if(exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    // A queued task is taken out of the queue. A running one is left to finish, interrupting does not stop
+    // bcrypt, so it keeps counting against the pool and releases the slots itself
+    private void abandon(Future<?> future, AtomicBoolean claimed, Runnable releaseSlots) {
+        if(claimed.compareAndSet(false, true)) {
+            future.cancel(false);
+            executor.remove((Runnable) future);
+            releaseSlots.run();
+        }
+    }
+
+    // Hashes ahead of this one spread over the pool, plus this one
+    private long expectedWaitNanos() {
+        int ahead = executor.getQueue().size() + executor.getActiveCount();
+        return (long) ((ahead / executor.getMaximumPoolSize() + 1) * averageHashNanos);
+    }
+
+    // Follows a change of strength or CPU load within a few dozen hashes
+    private void record(long hashNanos) {
+        double average = averageHashNanos;
+        averageHashNanos = average == 0 ? hashNanos : average * 0.9 + hashNanos * 0.1;
+    }
+
+    private void acquire(String key, int limit) {
+        if(key == null) {
+            return;
+        }
+        boolean[] acquired = new boolean[1];
+        inFlight.compute(key, (k, count) -> {
+            int current = count != null ? count : 0;
+            acquired[0] = current < limit;
+            return acquired[0] ? current + 1 : count;
+        });
+        if(!acquired[0]) {
+            throw new TooManyLoginAttempts("Too many concurrent attempts, please retry shortly");
+        }
+    }
+
+    // Entries are dropped at zero so the map only holds keys with hashes in flight
+    private void release(String key) {
+        if(key != null) {
+            inFlight.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    int inFlightKeys() {
+        return inFlight.size();
+    }
+
+    // The two digits after the version, $2a$10$...; -1 when it is not a bcrypt hash
+    private static int cost(String hash) {
+        if(hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.userauthenticationservice.security;
+
+import io.jsonwebtoken.Jwts;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HMAC keys for signing and verifying login tokens, each known by a kid that
+ * goes into the token header. Every node loads the same PKCS12 keystore and
+ * reloads it periodically, so any node can verify any token.
+ *
+ * The node with auth.keys.rotation.enabled adds a new key every rotation
+ * interval. A new key only signs once activation-delay has passed, so every
+ * node has loaded it by then, and a replaced key keeps verifying for
+ * retired-key-retention so the tokens it signed can expire first.
+ */
+@Component
+public class SigningKeyRing {
+    private static final Logger logger = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    // Blank keeps the keys in memory, only good for a single node
+    @Value("${auth.keys.keystore-path:}")
+    private String keystorePath;
+
+    // Blank by default, a keystore file is only opened with a password that was set
+    @Value("${auth.keys.keystore-password:}")
+    private String keystorePassword;
+
+    @Value("${auth.keys.rotation.enabled:false}")
+    private boolean rotationEnabled;
+
+    @Value("${auth.keys.rotation.interval-ms:86400000}")
+    private long rotationIntervalMs;
+
+    // Longer than the reload interval, so no node sees a token signed with a key it has not loaded
+    @Value("${auth.keys.activation-delay-ms:60000}")
+    private long activationDelayMs;
+
+    // Longer than the token lifetime
+    @Value("${auth.keys.retired-key-retention-ms:600000}")
+    private long retiredKeyRetentionMs;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // Newest first, replaced as a whole on every change
+    private volatile List<SigningKey> keys = List.of();
+
+    private volatile Map<String, SigningKey> keysById = Map.of();
+
+    public record SigningKey(String kid, SecretKey secretKey, Instant createdAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        if(isFileBacked() && (keystorePassword == null || keystorePassword.isBlank())) {
+            throw new IllegalStateException("auth.keys.keystore-password is blank, set AUTH_KEYS_KEYSTORE_PASSWORD");
+        }
+        if(isFileBacked() && Files.exists(Path.of(keystorePath))) {
+            reload();
+        } else if(isFileBacked() && !rotationEnabled) {
+            throw new IllegalStateException("Keystore " + keystorePath
+                    + " not found, create it or enable auth.keys.rotation on one node");
+        }
+        if(keys.isEmpty()) {
+            // The first key signs right away, there are no tokens from other nodes yet
+            rotate(Instant.now().minusMillis(activationDelayMs));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.keys.reload-interval-ms:30000}",
+            initialDelayString = "${auth.keys.reload-interval-ms:30000}")
+    public void refresh() {
+        if(isFileBacked()) {
+            reload();
+        }
+        Instant now = Instant.now();
+        if(rotationEnabled && (keys.isEmpty() || keys.get(0).createdAt().plusMillis(rotationIntervalMs).isBefore(now))) {
+            rotate(now);
+        }
+    }
+
+    // The newest key that has been around for activation-delay, the oldest one when none has
+    public SigningKey getActiveKey() {
+        return activeKey(Instant.now());
+    }
+
+    public SecretKey getVerificationKey(String kid) {
+        SigningKey signingKey = kid != null ? keysById.get(kid) : null;
+        return signingKey != null ? signingKey.secretKey() : null;
+    }
+
+    public List<SigningKey> getKeys() {
+        return keys;
+    }
+
+    SigningKey activeKey(Instant now) {
+        List<SigningKey> currentKeys = keys;
+        Instant activeBefore = now.minusMillis(activationDelayMs);
+        for(SigningKey signingKey : currentKeys) {
+            if(!signingKey.createdAt().isAfter(activeBefore)) {
+                return signingKey;
+            }
+        }
+        return currentKeys.isEmpty() ? null : currentKeys.get(currentKeys.size() - 1);
+    }
+
+    // Adds a key created at the given time, drops keys retired for longer than the retention and saves the ring
+    synchronized void rotate(Instant createdAt) {
+        SecretKey secretKey = Jwts.SIG.HS256.key().random(secureRandom).build();
+        byte[] suffix = new byte[4];
+        secureRandom.nextBytes(suffix);
+        String kid = createdAt.toEpochMilli() + "-" + HexFormat.of().formatHex(suffix);
+        List<SigningKey> newKeys = new ArrayList<>(keys);
+        newKeys.add(new SigningKey(kid, secretKey, createdAt));
+        newKeys.sort(Comparator.comparing(SigningKey::createdAt).reversed());
+        newKeys = prune(newKeys, createdAt);
+        if(isFileBacked()) {
+            save(newKeys);
+        }
+        publish(newKeys);
+        logger.info("Added signing key {}, {} keys in the ring", kid, newKeys.size());
+    }
+
+    // A key retires when the next newer key becomes active
+    private List<SigningKey> prune(List<SigningKey> newestFirst, Instant now) {
+        List<SigningKey> kept = new ArrayList<>();
+        for(int i = 0; i < newestFirst.size(); i++) {
+            Instant retiredAt = i == 0 ? null : newestFirst.get(i - 1).createdAt().plusMillis(activationDelayMs);
+            if(retiredAt == null || retiredAt.plusMillis(retiredKeyRetentionMs).isAfter(now)) {
+                kept.add(newestFirst.get(i));
+            }
+        }
+        return kept;
+    }
+
+    private synchronized void reload() {
+        try(InputStream inputStream = Files.newInputStream(Path.of(keystorePath))) {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(inputStream, keystorePassword.toCharArray());
+            KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(keystorePassword.toCharArray());
+            List<SigningKey> loadedKeys = new ArrayList<>();
+            for(String alias : Collections.list(keyStore.aliases())) {
+                if(keyStore.getEntry(alias, protection) instanceof KeyStore.SecretKeyEntry entry) {
+                    loadedKeys.add(new SigningKey(alias, entry.getSecretKey(), createdAt(keyStore, alias)));
+                }
+            }
+            if(loadedKeys.isEmpty()) {
+                throw new IllegalStateException("Keystore " + keystorePath + " holds no secret keys");
+            }
+            loadedKeys.sort(Comparator.comparing(SigningKey::createdAt).reversed());
+            publish(loadedKeys);
+        } catch (IOException | GeneralSecurityException exception) {
+            if(keys.isEmpty()) {
+                throw new IllegalStateException("Could not load keystore " + keystorePath, exception);
+            }
+            // Keep verifying with the keys already loaded, the next reload may succeed
+            logger.warn("Could not reload keystore {}, keeping {} keys", keystorePath, keys.size(), exception);
+        }
+    }
+
+    // Written next to the keystore and moved over it, other nodes never read a half written file
+    private void save(List<SigningKey> newKeys) {
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, keystorePassword.toCharArray());
+            KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(keystorePassword.toCharArray());
+            for(SigningKey signingKey : newKeys) {
+                keyStore.setEntry(signingKey.kid(), new KeyStore.SecretKeyEntry(signingKey.secretKey()), protection);
+            }
+            Path path = Path.of(keystorePath).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try(OutputStream outputStream = Files.newOutputStream(temporary)) {
+                keyStore.store(outputStream, keystorePassword.toCharArray());
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | GeneralSecurityException exception) {
+            throw new IllegalStateException("Could not save keystore " + keystorePath, exception);
+        }
+    }
+
+    private void publish(List<SigningKey> newKeys) {
+        Map<String, SigningKey> newKeysById = new HashMap<>();
+        newKeys.forEach(signingKey -> newKeysById.put(signingKey.kid(), signingKey));
+        keysById = Map.copyOf(newKeysById);
+        keys = List.copyOf(newKeys);
+    }
+
+    // Keys added by the rotation carry their creation time in the alias, others use the keystore date
+    private static Instant createdAt(KeyStore keyStore, String alias) throws GeneralSecurityException {
+        int separator = alias.indexOf('-');
+        if(separator > 0) {
+            try {
+                return Instant.ofEpochMilli(Long.parseLong(alias.substring(0, separator)));
+            } catch (NumberFormatException ignored) {
+                // Not one of ours
+            }
+        }
+        return keyStore.getCreationDate(alias).toInstant();
+    }
+
+    private boolean isFileBacked() {
+        return keystorePath != null && !keystorePath.isBlank();
+    }
+}
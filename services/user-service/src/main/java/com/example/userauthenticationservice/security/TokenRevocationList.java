@@ -0,0 +1,105 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.models.RevokedToken;
+import com.example.userauthenticationservice.repos.RevokedTokenRepo;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Revoked token ids (jti). The revoked_token table is the authoritative store,
+ * every node keeps a Bloom filter of its rows so the check for a token that was
+ * not revoked, nearly every request, stays in memory. Only a filter hit reads
+ * the table. Nodes pull the rows revoked since their last sync every
+ * sync-interval, a token revoked on another node is rejected here within that
+ * interval. Rows are only needed until the token expires, the filter is rebuilt
+ * from the remaining rows every rebuild-interval since Bloom filters can not
+ * drop entries.
+ */
+@Component
+public class TokenRevocationList {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    @Autowired
+    private RevokedTokenRepo revokedTokenRepo;
+
+    @Value("${auth.revocation.expected-revocations:100000}")
+    private int expectedRevocations;
+
+    @Value("${auth.revocation.false-positive-probability:0.01}")
+    private double falsePositiveProbability;
+
+    // Rows are read again this far back, for clock skew between nodes and slow commits
+    @Value("${auth.revocation.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    private volatile BloomFilter revokedJtis;
+
+    // Revocation time of the newest rows read, the next sync starts from here
+    private volatile long syncedUntilMillis;
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    public void revoke(String jti, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        if(expiresAtMillis <= now) {
+            // Rejected as expired anyway
+            return;
+        }
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(jti);
+        revokedToken.setExpiresAt(new Date(expiresAtMillis));
+        revokedToken.setRevokedAt(new Date(now));
+        revokedTokenRepo.save(revokedToken);
+        revokedJtis.add(jti);
+    }
+
+    // False from the filter alone for tokens never revoked, the store settles the rare false positive
+    public boolean isRevoked(String jti) {
+        return revokedJtis.mightContain(jti) && revokedTokenRepo.existsById(jti);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.revocation.sync-interval-ms:5000}",
+            initialDelayString = "${auth.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        long startedAt = System.currentTimeMillis();
+        List<String> jtis = revokedTokenRepo.findJtisRevokedAfter(new Date(syncedUntilMillis - syncOverlapMs));
+        BloomFilter current = revokedJtis;
+        jtis.forEach(current::add);
+        syncedUntilMillis = startedAt;
+        if(current.size() > current.expectedEntries()) {
+            // Past its sizing the false positive rate climbs, rebuild with more room
+            rebuild();
+        }
+    }
+
+    // Drops expired rows and starts a filter holding only the tokens that are still revoked
+    @Scheduled(fixedDelayString = "${auth.revocation.rebuild-interval-ms:3600000}",
+            initialDelayString = "${auth.revocation.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        Date now = new Date(startedAt);
+        int deleted = revokedTokenRepo.deleteExpired(now);
+        List<String> jtis = revokedTokenRepo.findJtisExpiringAfter(now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, jtis.size() * 2), falsePositiveProbability);
+        jtis.forEach(rebuilt::add);
+        BloomFilter previous = revokedJtis;
+        revokedJtis = rebuilt;
+        syncedUntilMillis = startedAt;
+        if(previous != null) {
+            // Revoked on this node while the rows were read, the next sync would add them too
+            sync();
+        }
+        logger.info("Rebuilt token revocation filter with {} revoked tokens, dropped {} expired", jtis.size(), deleted);
+    }
+}
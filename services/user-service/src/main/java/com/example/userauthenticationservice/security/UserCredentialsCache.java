@@ -0,0 +1,92 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.models.User;
+import com.example.userauthenticationservice.repos.UserRepo;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Email to user id and password hash, for signup, login and the Spring Security
+ * user lookup. Emails with no user are cached too, for a shorter time, so
+ * retries with an unknown email stop at the cache as well. Signup and password
+ * changes on this node invalidate the email; other nodes see them once their
+ * entry expires, a password change within positive-ttl and a new user within
+ * negative-ttl. The unique index on emailId still rejects a signup that a
+ * stale entry let through.
+ */
+@Component
+public class UserCredentialsCache {
+    @Autowired
+    private UserRepo userRepo;
+
+    @Value("${auth.user-cache.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${auth.user-cache.positive-ttl-ms:60000}")
+    private long positiveTtlMs;
+
+    @Value("${auth.user-cache.negative-ttl-ms:5000}")
+    private long negativeTtlMs;
+
+    private LoadingCache<String, Optional<UserCredentials>> credentialsByEmail;
+
+    public record UserCredentials(Long id, String emailId, String passwordHash) {
+        // Detached, only for reading, load the entity to change the user
+        public User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setEmailId(emailId);
+            user.setPassword(passwordHash);
+            return user;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        credentialsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<UserCredentials>>() {
+                    @Override
+                    public long expireAfterCreate(String email, Optional<UserCredentials> credentials,
+                                                  long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(credentials.isPresent() ? positiveTtlMs : negativeTtlMs);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String email, Optional<UserCredentials> credentials,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(email, credentials, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String email, Optional<UserCredentials> credentials,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // Concurrent misses for one email share a single query
+                .build(email -> userRepo.findUserByEmailId(email)
+                        .map(user -> new UserCredentials(user.getId(), user.getEmailId(), user.getPassword())));
+    }
+
+    public Optional<UserCredentials> findByEmail(String email) {
+        if(email == null) {
+            return Optional.empty();
+        }
+        return credentialsByEmail.get(email);
+    }
+
+    public void invalidate(String email) {
+        if(email != null) {
+            credentialsByEmail.invalidate(email);
+        }
+    }
+}
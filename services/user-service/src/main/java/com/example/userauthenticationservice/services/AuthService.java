@@ -9,21 +9,22 @@ import com.example.userauthenticationservice.models.User;
 import com.example.userauthenticationservice.repos.UserRepo;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.JwtParser;
+import com.example.userauthenticationservice.security.JwtTokenValidator;
+import com.example.userauthenticationservice.security.PasswordHasher;
+import com.example.userauthenticationservice.security.SigningKeyRing;
+import com.example.userauthenticationservice.security.TokenRevocationList;
+import com.example.userauthenticationservice.security.UserCredentialsCache;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.MacAlgorithm;
 import org.antlr.v4.runtime.misc.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Date;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class AuthService implements IAuthService {
@@ -31,10 +32,13 @@ public class AuthService implements IAuthService {
     private UserRepo userRepo;
 
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private UserCredentialsCache userCredentialsCache;
 
     @Autowired
-    private SecretKey secretKey;
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
 
     @Autowired
     private KafkaProducerClient kafkaProducerClient;
@@ -42,16 +46,39 @@ public class AuthService implements IAuthService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JwtTokenValidator jwtTokenValidator;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${auth.token.ttl-ms:100000}")
+    private long tokenTtlMs;
+
     @Override
     public User signup(String email, String password) {
-        Optional<User> userOptional = userRepo.findUserByEmailId(email);
-        if (userOptional.isPresent()) {
+        return signup(email, password, null);
+    }
+
+    @Override
+    public User signup(String email, String password, String clientAddress) {
+        if (userCredentialsCache.findByEmail(email).isPresent()) {
             throw new UserAlreadyExists("Account already exists, please try logging in");
         }
         User user = new User();
-        user.setPassword(password);
+        user.setPassword(passwordHasher.encode(password, email, clientAddress));
         user.setEmailId(email);
 
+        // The unique index catches a signup that raced this one or that a stale cache entry let through
+        User savedUser;
+        try {
+            savedUser = userRepo.save(user);
+        } catch (DataIntegrityViolationException exception) {
+            throw new UserAlreadyExists("Account already exists, please try logging in");
+        } finally {
+            userCredentialsCache.invalidate(email);
+        }
+
         //Sending welcome email
         EmailDto emailDto = new EmailDto();
         emailDto.setTo(user.getEmailId());
@@ -65,20 +92,32 @@ public class AuthService implements IAuthService {
             throw new RuntimeException(ex.getMessage());
         }
 
-        return userRepo.save(user);
+        return savedUser;
     }
 
     @Override
     public Pair<User,String> login(String email, String password){
-        Optional<User> userOptional = userRepo.findUserByEmailId(email);
-        if (userOptional.isEmpty()) {
+        return login(email, password, null);
+    }
+
+    @Override
+    public Pair<User,String> login(String email, String password, String clientAddress){
+        Optional<UserCredentialsCache.UserCredentials> credentialsOptional = userCredentialsCache.findByEmail(email);
+        if (credentialsOptional.isEmpty()) {
             throw new UserNotFound("User not found, please sign up first");
         }
 
-        String storedPassword = userOptional.get().getPassword();
-        if(!bCryptPasswordEncoder.matches(password,storedPassword)) {
+        UserCredentialsCache.UserCredentials credentials = credentialsOptional.get();
+        PasswordHasher.Verification verification =
+                passwordHasher.verify(password, credentials.passwordHash(), email, clientAddress);
+        if(!verification.matches()) {
             throw new IncorrectPassword("Please pass correct password, otherwise reset your password");
         }
+        if(verification.upgradedHash() != null) {
+            // The configured cost changed since this hash was stored
+            updatePassword(credentials, verification.upgradedHash());
+        }
+        User user = credentials.toUser();
         //Generating Token
 //        String message = "{\n" +
 //                "   \"email\": \"anurag@gmail.com\",\n" +
@@ -88,43 +127,51 @@ public class AuthService implements IAuthService {
 //                "   ],\n" +
 //                "   \"expirationDate\": \"2ndApril2025\"\n" + "}";
 //        byte[] content = message.getBytes(StandardCharsets.UTF_8);
-        Map<String,Object> payload = new HashMap<>();
-        payload.put("userId",userOptional.get().getId());
-        Long currentTime = System.currentTimeMillis();
-        payload.put("iat",currentTime);
-        payload.put("exp",currentTime+100000);
-        payload.put("iss","scaler");
-        MacAlgorithm algo = Jwts.SIG.HS256;
-        secretKey = algo.key().build();
-        String token = Jwts.builder().claims(payload).signWith(secretKey).compact();
-        return new Pair<User,String>(userOptional.get(),token);
+        // The kid tells every node which key of the shared ring to verify with
+        SigningKeyRing.SigningKey signingKey = signingKeyRing.getActiveKey();
+        Date issuedAt = new Date();
+        String token = Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .id(UUID.randomUUID().toString())
+                .claim(JwtTokenValidator.USER_ID_CLAIM, user.getId())
+                .issuer("scaler")
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + tokenTtlMs))
+                .signWith(signingKey.secretKey())
+                .compact();
+        return new Pair<User,String>(user,token);
+    }
+
+    // Every password change goes through here so the cached hash is dropped
+    private void updatePassword(UserCredentialsCache.UserCredentials credentials, String passwordHash) {
+        userRepo.findById(credentials.id()).ifPresent(user -> {
+            user.setPassword(passwordHash);
+            userRepo.save(user);
+        });
+        userCredentialsCache.invalidate(credentials.emailId());
     }
 
+    // Signature and expiry are checked by JwtTokenValidator, a userId has to match the one the token was issued to
     @Override
     public Boolean validateToken(String token,Long userId){
-        try{
-            JwtParser jwtParser = Jwts.parser().verifyWith(secretKey).build();
-            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
-            String newToken = Jwts.builder().claims(claims).signWith(secretKey).compact();
-            if(!newToken.equals(token)){
-                throw new RuntimeException("Invalid token");
-            }
-            Long expiry = (Long)claims.get("exp");
-            Long currentTime = System.currentTimeMillis();
-            if(currentTime > expiry) {
-                System.out.println("Token has expired");
-                throw new RuntimeException("Token has expired");
-            }
-            return true;
-        } catch (Exception exception){
-            throw exception;
+        Long tokenUserId = jwtTokenValidator.validate(token);
+        if(userId != null && !userId.equals(tokenUserId)) {
+            throw new RuntimeException("Token was issued to another user");
         }
-
+        return true;
     }
+
+    // Revoked until it expires, false when the token was not valid to begin with
     @Override
     public boolean logout(String token) {
-        // TODO: Implement proper token validation and invalidation logic
-        // For now, return true to indicate successful logout
+        JwtTokenValidator.ValidatedToken validatedToken;
+        try {
+            validatedToken = jwtTokenValidator.verify(token);
+        } catch (JwtException | IllegalArgumentException exception) {
+            return false;
+        }
+        tokenRevocationList.revoke(validatedToken.jti(), validatedToken.expiresAtMillis());
+        jwtTokenValidator.invalidate(token);
         return true;
     }
 }
@@ -6,7 +6,12 @@ import org.antlr.v4.runtime.misc.Pair;
 public interface IAuthService {
     User signup(String email, String password);
 
+    // clientAddress limits concurrent attempts from one client, may be null
+    User signup(String email, String password, String clientAddress);
+
     Pair<User,String> login(String email, String password);
+
+    Pair<User,String> login(String email, String password, String clientAddress);
     Boolean validateToken(String token,Long userId);
     boolean logout(String token);
 }
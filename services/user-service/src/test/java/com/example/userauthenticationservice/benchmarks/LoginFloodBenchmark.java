@@ -0,0 +1,181 @@
+package com.example.userauthenticationservice.benchmarks;
+
+import com.example.userauthenticationservice.exceptions.PasswordHashingBusy;
+import com.example.userauthenticationservice.exceptions.TooManyLoginAttempts;
+import com.example.userauthenticationservice.repos.RevokedTokenRepo;
+import com.example.userauthenticationservice.security.JwtTokenValidator;
+import com.example.userauthenticationservice.security.PasswordHasher;
+import com.example.userauthenticationservice.security.SigningKeyRing;
+import com.example.userauthenticationservice.security.TokenRevocationList;
+import io.jsonwebtoken.Jwts;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of /validateToken while logins flood the service, with bcrypt on the
+ * request threads (inline) and on PasswordHasher (pooled). The request threads
+ * are a pool of WORKERS like Tomcat's default, LOGIN_CLIENTS send logins back
+ * to back (honouring the one second Retry-After of a 503 or 429) and one client sends a validation
+ * every 5ms and records how long it took, queueing included.
+ * Run with:
+ *   ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.userauthenticationservice.benchmarks.LoginFloodBenchmark
+ */
+public class LoginFloodBenchmark {
+    private static final int WORKERS = 200;
+
+    private static final int LOGIN_CLIENTS = 400;
+
+    private static final int STRENGTH = 10;
+
+    private static final long DURATION_MS = 10000;
+
+    public static void main(String[] args) throws Exception {
+        BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder(STRENGTH);
+        String storedHash = bCryptPasswordEncoder.encode("secret");
+        PasswordHasher passwordHasher = passwordHasher(bCryptPasswordEncoder);
+        SigningKeyRing signingKeyRing = signingKeyRing();
+        JwtTokenValidator jwtTokenValidator = jwtTokenValidator(signingKeyRing);
+        String token = token(signingKeyRing.getActiveKey());
+
+        System.out.printf("%d cores, %d request threads, %d login clients, bcrypt strength %d%n",
+                Runtime.getRuntime().availableProcessors(), WORKERS, LOGIN_CLIENTS, STRENGTH);
+        run("inline", () -> bCryptPasswordEncoder.matches("secret", storedHash), jwtTokenValidator, token);
+        run("pooled", () -> passwordHasher.verify("secret", storedHash, null, null).matches(),
+                jwtTokenValidator, token);
+    }
+
+    private static void run(String name, Login login, JwtTokenValidator jwtTokenValidator, String token)
+            throws Exception {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        ExecutorService clients = Executors.newFixedThreadPool(LOGIN_CLIENTS + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong logins = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        for(int i = 0; i < LOGIN_CLIENTS; i++) {
+            clients.execute(() -> {
+                while(running.get()) {
+                    Future<Boolean> response = workers.submit(() -> {
+                        try {
+                            return login.attempt();
+                        } catch (PasswordHashingBusy | TooManyLoginAttempts exception) {
+                            return null;
+                        }
+                    });
+                    try {
+                        Boolean matched = response.get();
+                        if(!running.get()) {
+                            return;
+                        }
+                        if(matched != null) {
+                            logins.incrementAndGet();
+                        } else {
+                            rejected.incrementAndGet();
+                            Thread.sleep(1000);
+                        }
+                    } catch (Exception exception) {
+                        return;
+                    }
+                }
+            });
+        }
+        Future<List<Long>> probe = clients.submit(() -> {
+            List<Long> latencies = new ArrayList<>();
+            while(running.get()) {
+                long startedAt = System.nanoTime();
+                workers.submit(() -> jwtTokenValidator.validate(token)).get();
+                latencies.add(System.nanoTime() - startedAt);
+                Thread.sleep(5);
+            }
+            return latencies;
+        });
+
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        long[] latencies = probe.get().stream().mapToLong(Long::longValue).sorted().toArray();
+        clients.shutdownNow();
+        workers.shutdownNow();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.printf("%s: %.0f logins/s, %.0f rejected/s, validateToken p50 %.2fms p99 %.2fms p99.9 %.2fms max %.2fms%n",
+                name, logins.get() * 1000.0 / DURATION_MS, rejected.get() * 1000.0 / DURATION_MS,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if(sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private interface Login {
+        boolean attempt();
+    }
+
+    private static PasswordHasher passwordHasher(BCryptPasswordEncoder bCryptPasswordEncoder) {
+        PasswordHasher passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "bCryptPasswordEncoder", bCryptPasswordEncoder);
+        ReflectionTestUtils.setField(passwordHasher, "strength", STRENGTH);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 64);
+        ReflectionTestUtils.setField(passwordHasher, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerEmail", 2);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerAddress", 8);
+        ReflectionTestUtils.invokeMethod(passwordHasher, "init");
+        return passwordHasher;
+    }
+
+    private static SigningKeyRing signingKeyRing() {
+        SigningKeyRing signingKeyRing = new SigningKeyRing();
+        ReflectionTestUtils.setField(signingKeyRing, "keystorePath", "");
+        ReflectionTestUtils.setField(signingKeyRing, "activationDelayMs", 60000L);
+        ReflectionTestUtils.setField(signingKeyRing, "retiredKeyRetentionMs", 600000L);
+        ReflectionTestUtils.invokeMethod(signingKeyRing, "init");
+        return signingKeyRing;
+    }
+
+    private static JwtTokenValidator jwtTokenValidator(SigningKeyRing signingKeyRing) {
+        TokenRevocationList tokenRevocationList = new TokenRevocationList();
+        ReflectionTestUtils.setField(tokenRevocationList, "revokedTokenRepo", Mockito.mock(RevokedTokenRepo.class));
+        ReflectionTestUtils.setField(tokenRevocationList, "expectedRevocations", 100000);
+        ReflectionTestUtils.setField(tokenRevocationList, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.invokeMethod(tokenRevocationList, "init");
+        JwtTokenValidator jwtTokenValidator = new JwtTokenValidator();
+        ReflectionTestUtils.setField(jwtTokenValidator, "signingKeyRing", signingKeyRing);
+        ReflectionTestUtils.setField(jwtTokenValidator, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(jwtTokenValidator, "maximumSize", 1000L);
+        ReflectionTestUtils.invokeMethod(jwtTokenValidator, "init");
+        return jwtTokenValidator;
+    }
+
+    private static String token(SigningKeyRing.SigningKey signingKey) {
+        Date issuedAt = new Date();
+        return Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .id(UUID.randomUUID().toString())
+                .claim(JwtTokenValidator.USER_ID_CLAIM, 1L)
+                .issuer("scaler")
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(signingKey.secretKey())
+                .compact();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.userauthenticationservice.benchmarks;
+
+import com.example.userauthenticationservice.repos.RevokedTokenRepo;
+import com.example.userauthenticationservice.security.JwtTokenValidator;
+import com.example.userauthenticationservice.security.SigningKeyRing;
+import com.example.userauthenticationservice.security.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validations per second on one thread (one core): the old path building a
+ * parser and re-signing the claims per call (rebuildAndResign), one shared
+ * parser (sharedParser) and JwtTokenValidator with its cache (cached).
+ * Tokens are drawn from a pool of tokenCount, as if that many users were active.
+ * Run with:
+ *   ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.userauthenticationservice.benchmarks.TokenValidationBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class TokenValidationBenchmark {
+
+    @Param({"1000"})
+    public int tokenCount;
+
+    private SecretKey secretKey;
+
+    private JwtParser jwtParser;
+
+    private JwtTokenValidator jwtTokenValidator;
+
+    private String[] tokens;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SigningKeyRing signingKeyRing = new SigningKeyRing();
+        ReflectionTestUtils.setField(signingKeyRing, "keystorePath", "");
+        ReflectionTestUtils.setField(signingKeyRing, "activationDelayMs", 60000L);
+        ReflectionTestUtils.setField(signingKeyRing, "retiredKeyRetentionMs", 600000L);
+        ReflectionTestUtils.invokeMethod(signingKeyRing, "init");
+        SigningKeyRing.SigningKey signingKey = signingKeyRing.getActiveKey();
+        secretKey = signingKey.secretKey();
+
+        jwtParser = Jwts.parser().verifyWith(secretKey).build();
+        // Nothing revoked, every check ends at the Bloom filter
+        TokenRevocationList tokenRevocationList = new TokenRevocationList();
+        ReflectionTestUtils.setField(tokenRevocationList, "revokedTokenRepo", Mockito.mock(RevokedTokenRepo.class));
+        ReflectionTestUtils.setField(tokenRevocationList, "expectedRevocations", 100000);
+        ReflectionTestUtils.setField(tokenRevocationList, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.invokeMethod(tokenRevocationList, "init");
+        jwtTokenValidator = new JwtTokenValidator();
+        ReflectionTestUtils.setField(jwtTokenValidator, "signingKeyRing", signingKeyRing);
+        ReflectionTestUtils.setField(jwtTokenValidator, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(jwtTokenValidator, "maximumSize", 100000L);
+        ReflectionTestUtils.invokeMethod(jwtTokenValidator, "init");
+
+        tokens = new String[tokenCount];
+        Date issuedAt = new Date();
+        for(int i = 0; i < tokenCount; i++) {
+            tokens[i] = Jwts.builder()
+                    .header().keyId(signingKey.kid()).and()
+                    .id(UUID.randomUUID().toString())
+                    .claim(JwtTokenValidator.USER_ID_CLAIM, (long) i)
+                    .issuer("scaler")
+                    .issuedAt(issuedAt)
+                    .expiration(new Date(issuedAt.getTime() + TimeUnit.HOURS.toMillis(1)))
+                    .signWith(secretKey)
+                    .compact();
+        }
+    }
+
+    @Benchmark
+    public boolean rebuildAndResign() {
+        String token = nextToken();
+        JwtParser parser = Jwts.parser().verifyWith(secretKey).build();
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return Jwts.builder().claims(claims).signWith(secretKey).compact().equals(token);
+    }
+
+    @Benchmark
+    public Long sharedParser() {
+        return jwtParser.parseSignedClaims(nextToken()).getPayload().get(JwtTokenValidator.USER_ID_CLAIM, Long.class);
+    }
+
+    @Benchmark
+    public Long cached() {
+        return jwtTokenValidator.validate(nextToken());
+    }
+
+    private String nextToken() {
+        String token = tokens[next];
+        next = next + 1 == tokens.length ? 0 : next + 1;
+        return token;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenValidationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
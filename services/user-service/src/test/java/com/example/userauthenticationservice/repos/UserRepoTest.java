@@ -0,0 +1,31 @@
+package com.example.userauthenticationservice.repos;
+
+import com.example.userauthenticationservice.models.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.cloud.compatibility-verifier.enabled=false")
+class UserRepoTest {
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Test
+    public void TestSave_DuplicateEmailIsRejectedByUniqueIndex() {
+        userRepo.saveAndFlush(user("user@example.com"));
+        assertTrue(userRepo.findUserByEmailId("user@example.com").isPresent());
+
+        assertThrows(DataIntegrityViolationException.class, () -> userRepo.saveAndFlush(user("user@example.com")));
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmailId(email);
+        user.setPassword("hash");
+        return user;
+    }
+}
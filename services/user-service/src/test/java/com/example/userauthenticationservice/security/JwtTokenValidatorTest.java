@@ -0,0 +1,124 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.repos.RevokedTokenRepo;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtTokenValidatorTest {
+
+    private SigningKeyRing signingKeyRing;
+
+    private SigningKeyRing.SigningKey signingKey;
+
+    private JwtTokenValidator jwtTokenValidator;
+
+    @BeforeEach
+    public void setUp() {
+        signingKeyRing = SigningKeyRingTest.keyRing("", false);
+        signingKey = signingKeyRing.getActiveKey();
+        jwtTokenValidator = validator(signingKeyRing);
+    }
+
+    @Test
+    public void TestValidate_ReturnsUserIdOfToken() {
+        assertEquals(42L, jwtTokenValidator.validate(token(signingKey, 42L, 60000)));
+    }
+
+    @Test
+    public void TestValidate_RevokedTokenIsRejectedEvenWhenCached() {
+        RevokedTokenRepo revokedTokenRepo = mock(RevokedTokenRepo.class);
+        when(revokedTokenRepo.existsById(anyString())).thenReturn(true);
+        TokenRevocationList tokenRevocationList = TokenRevocationListTest.revocationList(revokedTokenRepo);
+        JwtTokenValidator revocationAwareValidator = validator(signingKeyRing, tokenRevocationList);
+        String token = token(signingKey, 42L, 60000);
+        assertEquals(42L, revocationAwareValidator.validate(token));
+
+        JwtTokenValidator.ValidatedToken validatedToken = revocationAwareValidator.verify(token);
+        tokenRevocationList.revoke(validatedToken.jti(), validatedToken.expiresAtMillis());
+
+        assertThrows(JwtException.class, () -> revocationAwareValidator.validate(token));
+        assertEquals(7L, revocationAwareValidator.validate(token(signingKey, 7L, 60000)));
+    }
+
+    @Test
+    public void TestValidate_SecondValidationIsServedFromCache() {
+        String token = token(signingKey, 42L, 60000);
+        jwtTokenValidator.validate(token);
+        // A parser that would reject every token, only tokens not seen before reach it
+        ReflectionTestUtils.setField(jwtTokenValidator, "jwtParser",
+                Jwts.parser().verifyWith(Jwts.SIG.HS256.key().build()).build());
+
+        assertEquals(42L, jwtTokenValidator.validate(token));
+        assertThrows(JwtException.class, () -> jwtTokenValidator.validate(token(signingKey, 7L, 60000)));
+
+        jwtTokenValidator.invalidate(token);
+        assertThrows(JwtException.class, () -> jwtTokenValidator.validate(token));
+    }
+
+    @Test
+    public void TestValidate_ExpiredToken_Throws() {
+        assertThrows(ExpiredJwtException.class, () -> jwtTokenValidator.validate(token(signingKey, 42L, -1000)));
+    }
+
+    @Test
+    public void TestValidate_TokenSignedWithAnotherKey_Throws() {
+        SigningKeyRing.SigningKey forged = new SigningKeyRing.SigningKey(signingKey.kid(),
+                Jwts.SIG.HS256.key().build(), signingKey.createdAt());
+        SigningKeyRing.SigningKey unknown = new SigningKeyRing.SigningKey("unknown",
+                signingKey.secretKey(), signingKey.createdAt());
+
+        assertThrows(JwtException.class, () -> jwtTokenValidator.validate(token(forged, 42L, 60000)));
+        assertThrows(JwtException.class, () -> jwtTokenValidator.validate(token(unknown, 42L, 60000)));
+    }
+
+    @Test
+    public void TestValidate_TamperedPayload_Throws() {
+        String[] parts = token(signingKey, 42L, 60000).split("\\.");
+        String otherPayload = token(signingKey, 1L, 60000).split("\\.")[1];
+
+        assertThrows(JwtException.class, () -> jwtTokenValidator.validate(parts[0] + "." + otherPayload + "." + parts[2]));
+    }
+
+    @Test
+    public void TestValidate_MissingToken_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> jwtTokenValidator.validate(null));
+        assertThrows(IllegalArgumentException.class, () -> jwtTokenValidator.validate(" "));
+    }
+
+    static JwtTokenValidator validator(SigningKeyRing signingKeyRing) {
+        return validator(signingKeyRing, TokenRevocationListTest.revocationList(mock(RevokedTokenRepo.class)));
+    }
+
+    static JwtTokenValidator validator(SigningKeyRing signingKeyRing, TokenRevocationList tokenRevocationList) {
+        JwtTokenValidator jwtTokenValidator = new JwtTokenValidator();
+        ReflectionTestUtils.setField(jwtTokenValidator, "signingKeyRing", signingKeyRing);
+        ReflectionTestUtils.setField(jwtTokenValidator, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(jwtTokenValidator, "maximumSize", 1000L);
+        jwtTokenValidator.init();
+        return jwtTokenValidator;
+    }
+
+    static String token(SigningKeyRing.SigningKey signingKey, Long userId, long ttlMs) {
+        Date issuedAt = new Date();
+        return Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .id(UUID.randomUUID().toString())
+                .claim(JwtTokenValidator.USER_ID_CLAIM, userId)
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + ttlMs))
+                .signWith(signingKey.secretKey())
+                .compact();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.exceptions.PasswordHashingBusy;
+import com.example.userauthenticationservice.exceptions.TooManyLoginAttempts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    // Encodes only once released, keeps the single hashing thread busy
+    private final BCryptPasswordEncoder blockingEncoder = new BCryptPasswordEncoder(4) {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return super.encode(rawPassword);
+        }
+    };
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void TestVerify_UpgradesHashOnlyWhenCostDiffers() {
+        PasswordHasher passwordHasher = hasher(new BCryptPasswordEncoder(4), 4);
+
+        PasswordHasher.Verification upgraded = passwordHasher.verify("secret",
+                new BCryptPasswordEncoder(6).encode("secret"), "user@example.com", "10.0.0.1");
+        PasswordHasher.Verification current = passwordHasher.verify("secret",
+                new BCryptPasswordEncoder(4).encode("secret"), "user@example.com", "10.0.0.1");
+        PasswordHasher.Verification wrong = passwordHasher.verify("wrong",
+                new BCryptPasswordEncoder(6).encode("secret"), "user@example.com", "10.0.0.1");
+
+        assertTrue(upgraded.matches());
+        assertTrue(upgraded.upgradedHash().startsWith("$2a$04$"));
+        assertTrue(current.matches());
+        assertNull(current.upgradedHash());
+        assertFalse(wrong.matches());
+        assertNull(wrong.upgradedHash());
+        assertEquals(0, passwordHasher.inFlightKeys());
+    }
+
+    @Test
+    public void TestEncode_FailsFastWhenPoolAndQueueAreFull() throws Exception {
+        PasswordHasher passwordHasher = hasher(blockingEncoder, 4);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(
+                () -> passwordHasher.encode("one", "one@example.com", "10.0.0.1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(
+                () -> passwordHasher.encode("two", "two@example.com", "10.0.0.2"));
+        waitForQueued(passwordHasher);
+
+        long startedAt = System.nanoTime();
+        assertThrows(PasswordHashingBusy.class, () -> passwordHasher.encode("three", "three@example.com", "10.0.0.3"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 500);
+
+        release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS));
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, passwordHasher.inFlightKeys());
+    }
+
+    @Test
+    public void TestEncode_LimitsConcurrentAttemptsPerEmailAndAddress() throws Exception {
+        PasswordHasher passwordHasher = hasher(blockingEncoder, 4);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerEmail", 1);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerAddress", 1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(
+                () -> passwordHasher.encode("one", "user@example.com", "10.0.0.1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(TooManyLoginAttempts.class, () -> passwordHasher.encode("two", "USER@example.com", "10.0.0.2"));
+        assertThrows(TooManyLoginAttempts.class, () -> passwordHasher.encode("two", "other@example.com", "10.0.0.1"));
+
+        release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS));
+        assertNotNull(passwordHasher.encode("two", "user@example.com", "10.0.0.1"));
+        assertEquals(0, passwordHasher.inFlightKeys());
+    }
+
+    @Test
+    public void TestEncode_TimedOutHashKeepsItsSlotsUntilItFinishes() throws Exception {
+        PasswordHasher passwordHasher = hasher(blockingEncoder, 4);
+        ReflectionTestUtils.setField(passwordHasher, "timeoutMs", 100L);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerEmail", 1);
+
+        assertThrows(PasswordHashingBusy.class, () -> passwordHasher.encode("one", "user@example.com", "10.0.0.1"));
+
+        // Still hashing on the pool thread
+        assertEquals(1, executor(passwordHasher).getActiveCount());
+        assertEquals(2, passwordHasher.inFlightKeys());
+        assertThrows(TooManyLoginAttempts.class, () -> passwordHasher.encode("two", "user@example.com", "10.0.0.2"));
+
+        release.countDown();
+        waitFor(() -> passwordHasher.inFlightKeys() == 0);
+        assertEquals(0, executor(passwordHasher).getActiveCount());
+    }
+
+    @Test
+    public void TestEncode_TimedOutWhileQueued_LeavesQueueAndReleasesSlots() throws Exception {
+        PasswordHasher passwordHasher = hasher(blockingEncoder, 4);
+        // Queues on the same pool with a short timeout, the running call keeps its own
+        PasswordHasher impatientHasher = hasher(blockingEncoder, 4);
+        ReflectionTestUtils.setField(impatientHasher, "timeoutMs", 100L);
+        executor(impatientHasher).shutdown();
+        ReflectionTestUtils.setField(impatientHasher, "executor", executor(passwordHasher));
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(
+                () -> passwordHasher.encode("one", "one@example.com", "10.0.0.1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PasswordHashingBusy.class, () -> impatientHasher.encode("two", "two@example.com", "10.0.0.2"));
+
+        assertTrue(executor(passwordHasher).getQueue().isEmpty());
+        assertEquals(0, impatientHasher.inFlightKeys());
+        assertEquals(2, passwordHasher.inFlightKeys());
+
+        release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS));
+        assertEquals(0, passwordHasher.inFlightKeys());
+    }
+
+    private static void waitForQueued(PasswordHasher passwordHasher) throws InterruptedException {
+        ThreadPoolExecutor executor = executor(passwordHasher);
+        waitFor(() -> !executor.getQueue().isEmpty());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static ThreadPoolExecutor executor(PasswordHasher passwordHasher) {
+        return (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHasher, "executor");
+    }
+
+    // One hashing thread and one queue slot, so tests can fill both
+    static PasswordHasher hasher(BCryptPasswordEncoder bCryptPasswordEncoder, int strength) {
+        PasswordHasher passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "bCryptPasswordEncoder", bCryptPasswordEncoder);
+        ReflectionTestUtils.setField(passwordHasher, "strength", strength);
+        ReflectionTestUtils.setField(passwordHasher, "threads", 1);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 1);
+        ReflectionTestUtils.setField(passwordHasher, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerEmail", 2);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerAddress", 8);
+        passwordHasher.init();
+        return passwordHasher;
+    }
+}
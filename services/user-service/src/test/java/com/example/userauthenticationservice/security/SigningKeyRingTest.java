@@ -0,0 +1,118 @@
+package com.example.userauthenticationservice.security;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SigningKeyRingTest {
+
+    private static final long ACTIVATION_DELAY_MS = 60000;
+
+    private static final long RETENTION_MS = 600000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void TestSharedKeystore_TokenFromOneNodeValidatesOnAnother() {
+        String keystorePath = directory.resolve("signing-keys.p12").toString();
+        SigningKeyRing rotatingNode = keyRing(keystorePath, true);
+        SigningKeyRing otherNode = keyRing(keystorePath, false);
+
+        String token = JwtTokenValidatorTest.token(rotatingNode.getActiveKey(), 42L, 60000);
+
+        assertEquals(rotatingNode.getActiveKey().kid(), otherNode.getActiveKey().kid());
+        assertEquals(42L, JwtTokenValidatorTest.validator(otherNode).validate(token));
+    }
+
+    @Test
+    public void TestMissingKeystore_WithoutRotation_FailsStartup() {
+        String keystorePath = directory.resolve("missing.p12").toString();
+
+        assertThrows(IllegalStateException.class, () -> keyRing(keystorePath, false));
+    }
+
+    @Test
+    public void TestBlankKeystorePassword_FailsStartup() {
+        String keystorePath = directory.resolve("signing-keys.p12").toString();
+
+        assertThrows(IllegalStateException.class, () -> keyRing(keystorePath, " ", true));
+        assertFalse(directory.resolve("signing-keys.p12").toFile().exists());
+    }
+
+    @Test
+    public void TestInMemoryKeys_NeedNoKeystorePassword() {
+        SigningKeyRing keyRing = keyRing("", "", false);
+
+        assertNotNull(keyRing.getActiveKey());
+    }
+
+    @Test
+    public void TestRotate_NewKeySignsAfterActivationDelay_OldKeyKeepsVerifying() {
+        SigningKeyRing keyRing = keyRing("", true);
+        SigningKeyRing.SigningKey firstKey = keyRing.getActiveKey();
+        Instant rotatedAt = Instant.now();
+
+        keyRing.rotate(rotatedAt);
+        SigningKeyRing.SigningKey secondKey = keyRing.getKeys().get(0);
+
+        assertNotEquals(firstKey.kid(), secondKey.kid());
+        assertEquals(firstKey.kid(), keyRing.activeKey(rotatedAt.plusMillis(ACTIVATION_DELAY_MS - 1)).kid());
+        assertEquals(secondKey.kid(), keyRing.activeKey(rotatedAt.plusMillis(ACTIVATION_DELAY_MS)).kid());
+        assertNotNull(keyRing.getVerificationKey(firstKey.kid()));
+    }
+
+    @Test
+    public void TestRotate_DropsKeysRetiredLongerThanRetention() {
+        SigningKeyRing keyRing = keyRing("", true);
+        SigningKeyRing.SigningKey firstKey = keyRing.getActiveKey();
+        Instant secondCreatedAt = Instant.now();
+        keyRing.rotate(secondCreatedAt);
+
+        // The first key retired when the second became active
+        keyRing.rotate(secondCreatedAt.plusMillis(ACTIVATION_DELAY_MS + RETENTION_MS - 1));
+        assertNotNull(keyRing.getVerificationKey(firstKey.kid()));
+
+        keyRing.rotate(secondCreatedAt.plusMillis(ACTIVATION_DELAY_MS + RETENTION_MS + 1));
+        assertNull(keyRing.getVerificationKey(firstKey.kid()));
+        assertEquals(3, keyRing.getKeys().size());
+    }
+
+    @Test
+    public void TestRefresh_OtherNodePicksUpRotatedKey() {
+        String keystorePath = directory.resolve("signing-keys.p12").toString();
+        SigningKeyRing rotatingNode = keyRing(keystorePath, true);
+        SigningKeyRing otherNode = keyRing(keystorePath, false);
+        JwtTokenValidator otherValidator = JwtTokenValidatorTest.validator(otherNode);
+
+        rotatingNode.rotate(Instant.now().minusMillis(ACTIVATION_DELAY_MS));
+        String token = JwtTokenValidatorTest.token(rotatingNode.getActiveKey(), 7L, 60000);
+        assertThrows(JwtException.class, () -> otherValidator.validate(token));
+
+        otherNode.refresh();
+        assertEquals(7L, otherValidator.validate(token));
+        assertEquals(2, otherNode.getKeys().size());
+    }
+
+    static SigningKeyRing keyRing(String keystorePath, boolean rotationEnabled) {
+        return keyRing(keystorePath, "test-keystore-password", rotationEnabled);
+    }
+
+    static SigningKeyRing keyRing(String keystorePath, String keystorePassword, boolean rotationEnabled) {
+        SigningKeyRing keyRing = new SigningKeyRing();
+        ReflectionTestUtils.setField(keyRing, "keystorePath", keystorePath);
+        ReflectionTestUtils.setField(keyRing, "keystorePassword", keystorePassword);
+        ReflectionTestUtils.setField(keyRing, "rotationEnabled", rotationEnabled);
+        ReflectionTestUtils.setField(keyRing, "rotationIntervalMs", 86400000L);
+        ReflectionTestUtils.setField(keyRing, "activationDelayMs", ACTIVATION_DELAY_MS);
+        ReflectionTestUtils.setField(keyRing, "retiredKeyRetentionMs", RETENTION_MS);
+        keyRing.init();
+        return keyRing;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.models.RevokedToken;
+import com.example.userauthenticationservice.repos.RevokedTokenRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    @Mock
+    private RevokedTokenRepo revokedTokenRepo;
+
+    private TokenRevocationList tokenRevocationList;
+
+    @BeforeEach
+    public void setUp() {
+        tokenRevocationList = revocationList(revokedTokenRepo);
+    }
+
+    @Test
+    public void TestIsRevoked_NotRevokedTokenNeverReachesTheStore() {
+        for(int i = 0; i < 1000; i++) {
+            assertFalse(tokenRevocationList.isRevoked("jti-" + i));
+        }
+
+        verify(revokedTokenRepo, never()).existsById(anyString());
+    }
+
+    @Test
+    public void TestRevoke_StoresJtiUntilExpiryAndRejectsOnThisNode() {
+        long expiresAt = System.currentTimeMillis() + 60000;
+        when(revokedTokenRepo.existsById("revoked")).thenReturn(true);
+
+        tokenRevocationList.revoke("revoked", expiresAt);
+
+        ArgumentCaptor<RevokedToken> saved = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepo).save(saved.capture());
+        assertEquals("revoked", saved.getValue().getJti());
+        assertEquals(expiresAt, saved.getValue().getExpiresAt().getTime());
+        assertTrue(tokenRevocationList.isRevoked("revoked"));
+    }
+
+    @Test
+    public void TestRevoke_ExpiredTokenIsNotStored() {
+        tokenRevocationList.revoke("expired", System.currentTimeMillis() - 1);
+
+        verify(revokedTokenRepo, never()).save(any());
+    }
+
+    @Test
+    public void TestSync_PicksUpTokensRevokedOnOtherNodes() {
+        when(revokedTokenRepo.existsById("remote")).thenReturn(true);
+        assertFalse(tokenRevocationList.isRevoked("remote"));
+
+        when(revokedTokenRepo.findJtisRevokedAfter(any())).thenReturn(List.of("remote"));
+        tokenRevocationList.sync();
+
+        assertTrue(tokenRevocationList.isRevoked("remote"));
+    }
+
+    @Test
+    public void TestRebuild_DropsExpiredRevocationsFromTheFilter() {
+        when(revokedTokenRepo.findJtisExpiringAfter(any())).thenReturn(List.of("old"));
+        tokenRevocationList.rebuild();
+        when(revokedTokenRepo.existsById("old")).thenReturn(true);
+        assertTrue(tokenRevocationList.isRevoked("old"));
+
+        when(revokedTokenRepo.findJtisExpiringAfter(any())).thenReturn(List.of());
+        tokenRevocationList.rebuild();
+
+        assertFalse(tokenRevocationList.isRevoked("old"));
+        verify(revokedTokenRepo, times(3)).deleteExpired(any());
+    }
+
+    @Test
+    public void TestBloomFilter_NoFalseNegativesAndFalsePositivesNearTarget() {
+        BloomFilter bloomFilter = new BloomFilter(10000, 0.01);
+        for(int i = 0; i < 10000; i++) {
+            bloomFilter.add("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        for(int i = 0; i < 10000; i++) {
+            assertTrue(bloomFilter.mightContain("revoked-" + i));
+            if(bloomFilter.mightContain("valid-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, falsePositives + " false positives");
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+    }
+
+    static TokenRevocationList revocationList(RevokedTokenRepo revokedTokenRepo) {
+        TokenRevocationList tokenRevocationList = new TokenRevocationList();
+        ReflectionTestUtils.setField(tokenRevocationList, "revokedTokenRepo", revokedTokenRepo);
+        ReflectionTestUtils.setField(tokenRevocationList, "expectedRevocations", 100000);
+        ReflectionTestUtils.setField(tokenRevocationList, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(tokenRevocationList, "syncOverlapMs", 60000L);
+        tokenRevocationList.init();
+        return tokenRevocationList;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.userauthenticationservice.security;
+
+import com.example.userauthenticationservice.models.User;
+import com.example.userauthenticationservice.repos.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCredentialsCacheTest {
+
+    @Mock
+    private UserRepo userRepo;
+
+    private UserCredentialsCache userCredentialsCache;
+
+    @BeforeEach
+    public void setUp() {
+        userCredentialsCache = new UserCredentialsCache();
+        ReflectionTestUtils.setField(userCredentialsCache, "userRepo", userRepo);
+        ReflectionTestUtils.setField(userCredentialsCache, "maximumSize", 1000L);
+        ReflectionTestUtils.setField(userCredentialsCache, "positiveTtlMs", 60000L);
+        ReflectionTestUtils.setField(userCredentialsCache, "negativeTtlMs", 50L);
+        userCredentialsCache.init();
+    }
+
+    @Test
+    public void TestFindByEmail_RepeatedLookupsQueryOnce() {
+        when(userRepo.findUserByEmailId("user@example.com")).thenReturn(Optional.of(user(5L, "hash")));
+
+        for(int i = 0; i < 5; i++) {
+            UserCredentialsCache.UserCredentials credentials = userCredentialsCache.findByEmail("user@example.com").get();
+            assertEquals(5L, credentials.id());
+            assertEquals("hash", credentials.passwordHash());
+        }
+
+        verify(userRepo, times(1)).findUserByEmailId("user@example.com");
+    }
+
+    @Test
+    public void TestFindByEmail_MissIsCachedForNegativeTtl() throws InterruptedException {
+        when(userRepo.findUserByEmailId("unknown@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(userCredentialsCache.findByEmail("unknown@example.com").isEmpty());
+        assertTrue(userCredentialsCache.findByEmail("unknown@example.com").isEmpty());
+        verify(userRepo, times(1)).findUserByEmailId("unknown@example.com");
+
+        Thread.sleep(100);
+        assertTrue(userCredentialsCache.findByEmail("unknown@example.com").isEmpty());
+        verify(userRepo, times(2)).findUserByEmailId("unknown@example.com");
+    }
+
+    @Test
+    public void TestInvalidate_NextLookupSeesNewPassword() {
+        when(userRepo.findUserByEmailId("user@example.com"))
+                .thenReturn(Optional.of(user(5L, "old")), Optional.of(user(5L, "new")));
+        assertEquals("old", userCredentialsCache.findByEmail("user@example.com").get().passwordHash());
+
+        userCredentialsCache.invalidate("user@example.com");
+
+        assertEquals("new", userCredentialsCache.findByEmail("user@example.com").get().passwordHash());
+    }
+
+    @Test
+    public void TestLoadUserByUsername_ServedFromCache() {
+        CustomUserDetailsService customUserDetailsService = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(customUserDetailsService, "userCredentialsCache", userCredentialsCache);
+        when(userRepo.findUserByEmailId("user@example.com")).thenReturn(Optional.of(user(5L, "hash")));
+        when(userRepo.findUserByEmailId("unknown@example.com")).thenReturn(Optional.empty());
+
+        UserDetails userDetails = customUserDetailsService.loadUserByUsername("user@example.com");
+        customUserDetailsService.loadUserByUsername("user@example.com");
+
+        assertEquals("user@example.com", userDetails.getUsername());
+        assertEquals("hash", userDetails.getPassword());
+        verify(userRepo, times(1)).findUserByEmailId("user@example.com");
+        assertThrows(UsernameNotFoundException.class,
+                () -> customUserDetailsService.loadUserByUsername("unknown@example.com"));
+    }
+
+    private static User user(Long id, String passwordHash) {
+        User user = new User();
+        user.setId(id);
+        user.setEmailId("user@example.com");
+        user.setPassword(passwordHash);
+        return user;
+    }
+}
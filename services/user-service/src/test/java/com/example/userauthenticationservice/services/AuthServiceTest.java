@@ -0,0 +1,175 @@
+package com.example.userauthenticationservice.services;
+
+import com.example.userauthenticationservice.clients.KafkaProducerClient;
+import com.example.userauthenticationservice.exceptions.IncorrectPassword;
+import com.example.userauthenticationservice.exceptions.UserAlreadyExists;
+import com.example.userauthenticationservice.exceptions.UserNotFound;
+import com.example.userauthenticationservice.models.User;
+import com.example.userauthenticationservice.repos.RevokedTokenRepo;
+import com.example.userauthenticationservice.repos.UserRepo;
+import com.example.userauthenticationservice.security.JwtTokenValidator;
+import com.example.userauthenticationservice.security.PasswordHasher;
+import com.example.userauthenticationservice.security.SigningKeyRing;
+import com.example.userauthenticationservice.security.TokenRevocationList;
+import com.example.userauthenticationservice.security.UserCredentialsCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.antlr.v4.runtime.misc.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private RevokedTokenRepo revokedTokenRepo;
+
+    @InjectMocks
+    private AuthService authService;
+
+    @BeforeEach
+    public void setUp() {
+        SigningKeyRing signingKeyRing = new SigningKeyRing();
+        ReflectionTestUtils.setField(signingKeyRing, "keystorePath", "");
+        ReflectionTestUtils.setField(signingKeyRing, "activationDelayMs", 60000L);
+        ReflectionTestUtils.setField(signingKeyRing, "retiredKeyRetentionMs", 600000L);
+        ReflectionTestUtils.invokeMethod(signingKeyRing, "init");
+        TokenRevocationList tokenRevocationList = new TokenRevocationList();
+        ReflectionTestUtils.setField(tokenRevocationList, "revokedTokenRepo", revokedTokenRepo);
+        ReflectionTestUtils.setField(tokenRevocationList, "expectedRevocations", 1000);
+        ReflectionTestUtils.setField(tokenRevocationList, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.invokeMethod(tokenRevocationList, "init");
+        PasswordHasher passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "bCryptPasswordEncoder", new BCryptPasswordEncoder(4));
+        ReflectionTestUtils.setField(passwordHasher, "strength", 4);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 8);
+        ReflectionTestUtils.setField(passwordHasher, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerEmail", 2);
+        ReflectionTestUtils.setField(passwordHasher, "maxConcurrentPerAddress", 8);
+        ReflectionTestUtils.invokeMethod(passwordHasher, "init");
+        JwtTokenValidator jwtTokenValidator = new JwtTokenValidator();
+        ReflectionTestUtils.setField(jwtTokenValidator, "signingKeyRing", signingKeyRing);
+        ReflectionTestUtils.setField(jwtTokenValidator, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(jwtTokenValidator, "maximumSize", 1000L);
+        ReflectionTestUtils.invokeMethod(jwtTokenValidator, "init");
+
+        UserCredentialsCache userCredentialsCache = new UserCredentialsCache();
+        ReflectionTestUtils.setField(userCredentialsCache, "userRepo", userRepo);
+        ReflectionTestUtils.setField(userCredentialsCache, "maximumSize", 1000L);
+        ReflectionTestUtils.setField(userCredentialsCache, "positiveTtlMs", 60000L);
+        ReflectionTestUtils.setField(userCredentialsCache, "negativeTtlMs", 60000L);
+        ReflectionTestUtils.invokeMethod(userCredentialsCache, "init");
+
+        ReflectionTestUtils.setField(authService, "userCredentialsCache", userCredentialsCache);
+        ReflectionTestUtils.setField(authService, "signingKeyRing", signingKeyRing);
+        ReflectionTestUtils.setField(authService, "passwordHasher", passwordHasher);
+        ReflectionTestUtils.setField(authService, "jwtTokenValidator", jwtTokenValidator);
+        ReflectionTestUtils.setField(authService, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(authService, "tokenTtlMs", 60000L);
+    }
+
+    @Test
+    public void TestLogin_TokensOfEveryLoginStayValid() {
+        User user = new User();
+        user.setId(5L);
+        user.setEmailId("user@example.com");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+        when(userRepo.findUserByEmailId("user@example.com")).thenReturn(Optional.of(user));
+
+        Pair<User, String> firstLogin = authService.login("user@example.com", "secret");
+        Pair<User, String> secondLogin = authService.login("user@example.com", "secret");
+
+        assertTrue(authService.validateToken(firstLogin.b, 5L));
+        assertTrue(authService.validateToken(secondLogin.b, null));
+        assertThrows(RuntimeException.class, () -> authService.validateToken(firstLogin.b, 6L));
+        verify(userRepo, times(1)).findUserByEmailId("user@example.com");
+    }
+
+    @Test
+    public void TestLogout_RevokesOnlyThatToken() {
+        User user = new User();
+        user.setId(5L);
+        user.setEmailId("user@example.com");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+        when(userRepo.findUserByEmailId("user@example.com")).thenReturn(Optional.of(user));
+        // Only jtis in the filter reach the store, those were revoked in this test
+        when(revokedTokenRepo.existsById(anyString())).thenReturn(true);
+        String loggedOut = authService.login("user@example.com", "secret").b;
+        String other = authService.login("user@example.com", "secret").b;
+
+        assertTrue(authService.logout(loggedOut));
+
+        assertThrows(RuntimeException.class, () -> authService.validateToken(loggedOut, 5L));
+        assertTrue(authService.validateToken(other, 5L));
+        assertFalse(authService.logout(loggedOut));
+        verify(revokedTokenRepo, times(1)).save(any());
+    }
+
+    @Test
+    public void TestLogin_RehashesPasswordStoredWithAnotherCost() {
+        User user = new User();
+        user.setId(5L);
+        user.setEmailId("user@example.com");
+        user.setPassword(new BCryptPasswordEncoder(5).encode("secret"));
+        when(userRepo.findUserByEmailId("user@example.com")).thenReturn(Optional.of(user));
+        when(userRepo.findById(5L)).thenReturn(Optional.of(user));
+
+        authService.login("user@example.com", "secret", "10.0.0.1");
+
+        verify(userRepo).save(user);
+        assertTrue(user.getPassword().startsWith("$2a$04$"));
+        assertTrue(new BCryptPasswordEncoder(4).matches("secret", user.getPassword()));
+
+        authService.login("user@example.com", "secret", "10.0.0.1");
+        // The new hash was read again, it is not upgraded twice
+        verify(userRepo, times(1)).save(user);
+        verify(userRepo, times(2)).findUserByEmailId("user@example.com");
+        assertThrows(IncorrectPassword.class, () -> authService.login("user@example.com", "wrong", "10.0.0.1"));
+    }
+
+    @Test
+    public void TestSignup_StoresBcryptHash() {
+        when(userRepo.findUserByEmailId("new@example.com")).thenReturn(Optional.empty());
+        when(userRepo.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ReflectionTestUtils.setField(authService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(authService, "kafkaProducerClient", mock(KafkaProducerClient.class));
+
+        User user = authService.signup("new@example.com", "secret", "10.0.0.1");
+
+        assertNotEquals("secret", user.getPassword());
+        assertTrue(new BCryptPasswordEncoder(4).matches("secret", user.getPassword()));
+    }
+
+    @Test
+    public void TestSignup_DropsCachedMissAndRejectsDuplicateFromUniqueIndex() {
+        User user = new User();
+        user.setId(9L);
+        user.setEmailId("new@example.com");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+        when(userRepo.findUserByEmailId("new@example.com")).thenReturn(Optional.empty(), Optional.of(user));
+        when(userRepo.save(any(User.class))).thenReturn(user);
+        ReflectionTestUtils.setField(authService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(authService, "kafkaProducerClient", mock(KafkaProducerClient.class));
+        assertThrows(UserNotFound.class, () -> authService.login("new@example.com", "secret"));
+
+        authService.signup("new@example.com", "secret", "10.0.0.1");
+
+        assertEquals(9L, authService.login("new@example.com", "secret").a.getId());
+        when(userRepo.findUserByEmailId("other@example.com")).thenReturn(Optional.empty());
+        when(userRepo.save(any(User.class))).thenThrow(new DataIntegrityViolationException("uk_app_user_email_id"));
+        assertThrows(UserAlreadyExists.class, () -> authService.signup("other@example.com", "secret", null));
+    }
+}